@@ -1,14 +1,33 @@
 package org.example;
 
 import com.sun.net.httpserver.HttpServer;
+import org.example.handler.BulkImportHandler;
 import org.example.handler.LoginHandler;
+import org.example.handler.MeHandler;
+import org.example.handler.MetricsHandler;
+import org.example.handler.RateLimitFilter;
 import org.example.handler.RegistrationHandler;
+import org.example.handler.SessionAuthFilter;
 import org.example.handler.StaticFileHandler;
 import org.example.handler.VerificationHandler;
+import org.example.mail.EmailOutbox;
+import org.example.mail.MailSettings;
+import org.example.mail.OutboxSender;
+import org.example.mail.VerificationMailSender;
+import org.example.repository.PasswordRehasher;
+import org.example.repository.UserStore;
+import org.example.repository.UserStores;
+import org.example.utils.BcryptCostCalibrator;
+import org.example.utils.PasswordHashingPool;
+import org.example.utils.RateLimiter;
+import org.example.utils.RequestBodyReader;
+import org.example.utils.ServerExecutors;
+import org.example.utils.SessionManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This class sets up and starts an HTTP server listening on a specified port
@@ -18,21 +37,84 @@ import java.sql.SQLException;
  * End-points:
  * For registration: http://localhost:8080/register.html
  * For login: http://localhost:8080/log.html
+ * For the logged-in user: http://localhost:8080/me (needs the session cookies set at login)
+ *
+ * The execution model can be chosen with system properties:
+ * -Dserver.executor=virtual|pool|inline (default virtual, pool on runtimes without virtual threads),
+ * -Dserver.backlog, -Dserver.pool.size and -Dserver.pool.queue.
+ * Without virtual threads the blocking calls of asynchronous requests run on -Dblocking.io.pool.size threads.
+ * Request bodies are limited with -Dhttp.max.body.bytes (default 16384).
+ * The bulk import endpoint /bulk-import is enabled with -Dbulk.import.token.
+ * The users are stored in MySQL, or with -Duser.store=embedded in an H2 file (-Dembedded.db.path),
+ * or with -Duser.store=log in log-structured files (-Dlogstore.dir),
+ * or with -Duser.store=sharded across the databases of -Dshards.config.
+ * The database schema is migrated at startup unless -Ddb.migrate=false.
+ * The bcrypt cost is the highest one hashing within -Dbcrypt.target.millis, unless -Dbcrypt.cost is set.
  */
 
 public class Main {
+
+    // Accept backlog of the listening socket, 0 means the system default
+    private static final int SERVER_BACKLOG = Integer.getInteger("server.backlog", 0);
+
     public static void main(String[] args) throws SQLException, IOException {
+        // Create or upgrade the schema of the configured user store before serving any request
+        UserStore userStore = UserStores.getConfigured();
+        userStore.open();
+
+        // Measure bcrypt on this machine now, so the first registration does not pay for it
+        BcryptCostCalibrator bcryptCost = BcryptCostCalibrator.getInstance();
+
         // Create an HTTP server listening on localhost at port 8080.
-        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 8080), 0);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 8080), SERVER_BACKLOG);
 
         // Set up context paths and their corresponding handlers.
-        server.createContext("/", new StaticFileHandler("src/main/resources/static"));
+        StaticFileHandler staticFileHandler = new StaticFileHandler("src/main/resources/static");
+        server.createContext("/", staticFileHandler);
         server.createContext("/registration", new RegistrationHandler());
-        server.createContext("/login-endpoint", new LoginHandler());
-        server.createContext("/verify", new VerificationHandler());
+        LoginHandler loginHandler = new LoginHandler();
+        VerificationHandler verificationHandler = new VerificationHandler();
+        // Login and verification attempts are limited per client address before the request body is even read
+        RateLimiter loginIpLimiter = RateLimiter.fromProperties("ratelimit.login.ip", 20, 60);
+        RateLimiter verifyIpLimiter = RateLimiter.fromProperties("ratelimit.verify.ip", 20, 60);
+        server.createContext("/login-endpoint", loginHandler).getFilters().add(new RateLimitFilter(loginIpLimiter));
+        server.createContext("/verify", verificationHandler).getFilters().add(new RateLimitFilter(verifyIpLimiter));
+        // Contexts for logged-in users, authenticated by the session cookies set at login
+        server.createContext("/me", new MeHandler()).getFilters().add(new SessionAuthFilter());
+
+        // The bulk import is only available when a token for it is configured
+        String bulkImportToken = System.getProperty("bulk.import.token");
+        if (bulkImportToken != null && !bulkImportToken.isEmpty()) {
+            server.createContext("/bulk-import", new BulkImportHandler(bulkImportToken));
+        }
+
+        // Choose on which threads the requests are handled, null keeps them on the dispatcher thread
+        ExecutorService executor = ServerExecutors.create(ServerExecutors.configuredMode());
+        server.setExecutor(executor);
+
+        // Deliver the queued verification emails in the background
+        OutboxSender outboxSender = new OutboxSender(EmailOutbox.getInstance(),
+                new VerificationMailSender(MailSettings.fromSystemProperties()));
+        outboxSender.start();
+
+        // Expose the statistics of the worker pools and queues
+        server.createContext("/metrics", new MetricsHandler()
+                .register("bcrypt", PasswordHashingPool.getInstance()::stats)
+                .register("passwordRehash", PasswordRehasher.getInstance()::stats)
+                .register("sessions", SessionManager::stats)
+                .register("loginLimitPerIp", loginIpLimiter::stats)
+                .register("loginLimitPerEmail", loginHandler.getEmailLimiter()::stats)
+                .register("verifyLimitPerIp", verifyIpLimiter::stats)
+                .register("verifyLimitPerEmail", verificationHandler.getEmailLimiter()::stats)
+                .register("userStore", userStore::stats)
+                .register("outbox", outboxSender::stats)
+                .register("requestBodies", RequestBodyReader.getInstance()::stats)
+                .register("staticFiles", staticFileHandler.getAssetCache()::stats));
 
         // Start the server.
         server.start();
-        System.out.println("Server started!");
+        System.out.println("Server started! Executor mode: "
+                + ServerExecutors.effectiveMode(ServerExecutors.configuredMode())
+                + ", bcrypt cost: " + bcryptCost.getCost());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package org.example.exception;
+
+import org.example.model.dto.BulkImportResultDTO;
+
+public class BulkImportFailedException extends RuntimeException {
+
+    private final transient BulkImportResultDTO partialResult;
+
+    public BulkImportFailedException(String message, BulkImportResultDTO partialResult, Throwable cause) {
+        super(message, cause);
+        this.partialResult = partialResult;
+    }
+
+    public BulkImportResultDTO getPartialResult() {
+        return partialResult;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.exception;
+
+public class PayloadTooLargeException extends RuntimeException {
+
+    private final int maxBytes;
+
+    public PayloadTooLargeException(String message, int maxBytes) {
+        super(message);
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+}
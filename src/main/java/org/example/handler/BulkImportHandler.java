@@ -0,0 +1,71 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.example.exception.BulkImportFailedException;
+import org.example.model.dto.BulkImportResultDTO;
+import org.example.service.BulkImportService;
+import org.example.utils.JsonCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Handles bulk user imports, used when moving whole tenants onto the system.
+ * The request body is NDJSON, or CSV when the Content-Type says so, and is streamed into the import
+ * without the size limit of the other endpoints. Only callers presenting the configured import token
+ * as a Bearer token are allowed.
+ */
+public class BulkImportHandler implements HttpHandler {
+
+    private final BulkImportService bulkImportService = BulkImportService.getInstance();
+    private final byte[] importToken;
+
+    /**
+     * @param importToken The secret the callers must send in the Authorization header.
+     */
+    public BulkImportHandler(String importToken) {
+        this.importToken = ("Bearer " + importToken).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Handles an HTTP exchange for a bulk import. Specifically handles POST requests by streaming the body
+     * into the import service and answering with the number of imported users and the rejected rows.
+     * If a batch fails, the import stops and the result up to that batch is sent with a 500 status,
+     * together with the line range of the failed batch.
+     *
+     * @param exchange The HTTP exchange containing the request from the client and used to send the response.
+     * @throws IOException if there is an issue reading the request or sending the response.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+            HttpResponses.sendMethodNotAllowed(exchange, "POST");
+            return;
+        }
+
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null
+                || !MessageDigest.isEqual(importToken, authorization.getBytes(StandardCharsets.UTF_8))) {
+            HttpResponses.sendText(exchange, 401, "Unauthorized");
+            return;
+        }
+
+        BulkImportService.Format format =
+                BulkImportService.Format.fromContentType(exchange.getRequestHeaders().getFirst("Content-Type"));
+        BulkImportResultDTO result;
+        try {
+            result = bulkImportService.importUsers(exchange.getRequestBody(), format);
+        } catch (BulkImportFailedException e) {
+            e.printStackTrace(); // Log the exception
+            JsonCodec.write(exchange, 500, e.getPartialResult());
+            return;
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Log the exception
+            HttpResponses.sendText(exchange, 500, "Server error");
+            return;
+        }
+        JsonCodec.write(exchange, 200, result);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.exception.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for the plain text responses shared by the handlers.
+ */
+final class HttpResponses {
+
+    /**
+     * Sends a response, allowed to fail with an {@link IOException}.
+     */
+    @FunctionalInterface
+    interface Response {
+        void send() throws IOException;
+    }
+
+    private HttpResponses() {
+    }
+
+    /**
+     * Sends the response of an asynchronous request from the thread completing it.
+     * If it cannot be sent, the exchange is closed, there is no caller left to report the failure to.
+     *
+     * @param exchange The exchange to respond to.
+     * @param response Sends the response.
+     */
+    static void sendLater(HttpExchange exchange, Response response) {
+        try {
+            response.send();
+        } catch (IOException | RuntimeException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the exception an asynchronous step failed with, without the wrapping added by the stages after it.
+     *
+     * @param error The exception a stage completed with.
+     * @return The original exception.
+     */
+    static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Sends a plain text response and closes the exchange.
+     *
+     * @param exchange The exchange to respond to.
+     * @param statusCode The HTTP status code.
+     * @param text The response body.
+     * @throws IOException if the response cannot be sent.
+     */
+    static void sendText(HttpExchange exchange, int statusCode, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * Answers a request whose body is over the size limit with 413 (Payload Too Large).
+     * The connection is closed afterwards, so the rest of the body never has to be read.
+     *
+     * @param exchange The exchange to respond to.
+     * @param e The exception raised by the body reader.
+     * @throws IOException if the response cannot be sent.
+     */
+    static void sendPayloadTooLarge(HttpExchange exchange, PayloadTooLargeException e) throws IOException {
+        exchange.getResponseHeaders().set("Connection", "close");
+        sendText(exchange, 413, "Request body too large, the limit is " + e.getMaxBytes() + " bytes");
+    }
+
+    /**
+     * Answers a rate limited request with 429 (Too Many Requests) and a Retry-After header.
+     *
+     * @param exchange The exchange to respond to.
+     * @param retryAfterMillis The time until the next attempt will be allowed, rounded up to whole seconds.
+     * @param text The response body.
+     * @throws IOException if the response cannot be sent.
+     */
+    static void sendTooManyRequests(HttpExchange exchange, long retryAfterMillis, String text) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf((retryAfterMillis + 999) / 1000));
+        sendText(exchange, 429, text);
+    }
+
+    /**
+     * Answers a request whose method the handler does not support with 405 (Method Not Allowed).
+     *
+     * @param exchange The exchange to respond to.
+     * @param allowed The supported methods, for the Allow header.
+     * @throws IOException if the response cannot be sent.
+     */
+    static void sendMethodNotAllowed(HttpExchange exchange, String allowed) throws IOException {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        exchange.sendResponseHeaders(405, -1);
+        exchange.close();
+    }
+}
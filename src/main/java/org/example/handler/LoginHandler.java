@@ -1,31 +1,57 @@
 package org.example.handler;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import org.example.exception.InvalidLoginException;
+import org.example.exception.PayloadTooLargeException;
+import org.example.exception.TooManyRequestsException;
 import org.example.model.User;
 import org.example.model.dto.LoginResponseDTO;
 import org.example.service.UserService;
+import org.example.utils.JsonCodec;
+import org.example.utils.RateLimiter;
+import org.example.utils.RequestBodyReader;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.sql.SQLException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Handles HTTP requests for user login.
  * This handler processes POST requests containing login data (email and password),
  * authenticates the user, and responds with the login status.
+ * A successful login sets the session cookies checked by {@link SessionAuthFilter}.
  */
 public class LoginHandler implements HttpHandler {
 
     private final UserService userService = UserService.getInstance();
+    private final RequestBodyReader bodyReader = RequestBodyReader.getInstance();
+    private final RateLimiter emailLimiter;
+
+    /**
+     * Creates the handler with the per-email limit configured by the {@code ratelimit.login.email.*} properties.
+     */
+    public LoginHandler() {
+        this(RateLimiter.fromProperties("ratelimit.login.email", 5, 10));
+    }
+
+    /**
+     * @param emailLimiter The limiter of the login attempts per account.
+     */
+    public LoginHandler(RateLimiter emailLimiter) {
+        this.emailLimiter = emailLimiter;
+    }
+
+    /**
+     * @return The limiter of the login attempts per account, for its statistics.
+     */
+    public RateLimiter getEmailLimiter() {
+        return emailLimiter;
+    }
 
     /**
      * Handles an HTTP exchange for a login request. Specifically handles POST requests
-     * for user login by reading the request body, parsing the user data from JSON,
+     * for user login by binding the user data from the JSON request body,
      * authenticating the user using UserService, and sending a response back to the client.
      *
      * @param exchange The HTTP exchange containing the request from the client and used to send the response.
@@ -35,44 +61,65 @@ public class LoginHandler implements HttpHandler {
     public void handle(HttpExchange exchange) throws IOException {
 
         if (exchange.getRequestMethod().equalsIgnoreCase("POST")) {
-            InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
-            BufferedReader br = new BufferedReader(isr);
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
+            // Bind the JSON body straight to a User object
+            User user;
+            try {
+                user = bodyReader.readJson(exchange, User.class);
+            } catch (PayloadTooLargeException e) {
+                HttpResponses.sendPayloadTooLarge(exchange, e);
+                return;
+            } catch (JsonParseException e) {
+                user = null;
+            }
+            if (user == null || user.getEmail() == null || user.getPassword() == null) {
+                HttpResponses.sendText(exchange, 400, "Invalid login data");
+                return;
             }
-            String json = sb.toString();
-
-            // Parse JSON to User object
-            Gson gson = new Gson();
-            User user = gson.fromJson(json, User.class);
 
-            // Use UserService to log in the user
-            String response;
-            int responseCode;
-            try {
-                String tokenForSession = userService.loginUser(user.getEmail(), user.getPassword());
-                boolean sessionValid = userService.isSessionValid(user.getEmail(), tokenForSession);
-                if (tokenForSession != null && sessionValid) {
-                    response = "Login successful";
-                    responseCode = 200;
-                } else {
-                    response = "Invalid credentials";
-                    responseCode = 401; // Unauthorized
-                }
-            } catch (SQLException e) {
-                response = "Server error";
-                responseCode = 500; // Internal Server Error
-                e.printStackTrace(); // Log the exception
+            // Limit the attempts per account before the database query and the bcrypt check
+            String email = user.getEmail();
+            long retryAfterMillis = emailLimiter.tryAcquire(UserService.normalizeEmail(email));
+            if (retryAfterMillis > 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf((retryAfterMillis + 999) / 1000));
+                JsonCodec.write(exchange, 429, new LoginResponseDTO("Too many login attempts, try again later", email));
+                return;
             }
-            exchange.getResponseHeaders().set("Content-Type", "application/json");
-            String jsonResponse = new Gson().toJson(new LoginResponseDTO(response, user.getEmail()));
 
-            exchange.sendResponseHeaders(responseCode, jsonResponse.length());
-            OutputStream os = exchange.getResponseBody();
-            os.write(jsonResponse.getBytes());
-            os.close();
+            // Use UserService to log in the user, the response is sent once the login finished
+            userService.loginUserAsync(email, user.getPassword())
+                    .whenComplete((tokenForSession, error) -> HttpResponses.sendLater(exchange,
+                            () -> respond(exchange, email, tokenForSession, error)));
+        } else {
+            HttpResponses.sendMethodNotAllowed(exchange, "POST");
+        }
+    }
+
+    private void respond(HttpExchange exchange, String email, String tokenForSession, Throwable error)
+            throws IOException {
+        Throwable cause = HttpResponses.unwrap(error);
+        String response;
+        int responseCode;
+        if (cause == null && userService.isSessionValid(email, tokenForSession)) {
+            response = "Login successful";
+            responseCode = 200;
+            // Later requests authenticate with the session instead of the password
+            SessionCookies.issue(exchange, UserService.normalizeEmail(email), tokenForSession);
+        } else if (cause == null || cause instanceof InvalidLoginException) {
+            response = "Invalid credentials";
+            responseCode = 401; // Unauthorized
+        } else if (cause instanceof TooManyRequestsException) {
+            response = "Too many login attempts, try again later";
+            responseCode = 429; // Too Many Requests
+            exchange.getResponseHeaders().set("Retry-After",
+                    String.valueOf(((TooManyRequestsException) cause).getRetryAfterSeconds()));
+        } else if (cause instanceof TimeoutException) {
+            response = "Server is busy, try again later";
+            responseCode = 503; // Service Unavailable
+        } else {
+            response = "Server error";
+            responseCode = 500; // Internal Server Error
+            cause.printStackTrace(); // Log the exception
         }
+        JsonCodec.write(exchange, responseCode, new LoginResponseDTO(response, email));
     }
 }
@@ -0,0 +1,39 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.example.model.SessionToken;
+import org.example.model.dto.SessionUserDTO;
+import org.example.utils.JsonCodec;
+import org.example.utils.SessionManager;
+
+import java.io.IOException;
+
+/**
+ * Handles HTTP requests for the logged-in user.
+ * This handler sits behind a {@link SessionAuthFilter} and answers GET requests with the email
+ * of the session and when it expires, without touching the database.
+ */
+public class MeHandler implements HttpHandler {
+
+    /**
+     * Handles an HTTP exchange for the current user, already authenticated by the session filter.
+     *
+     * @param exchange The HTTP exchange containing the request from the client and used to send the response.
+     * @throws IOException if there is an issue sending the response.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            String email = (String) exchange.getAttribute(SessionAuthFilter.EMAIL_ATTRIBUTE);
+            SessionToken session = email == null ? null : SessionManager.getSessionToken(email);
+            if (session == null) {
+                HttpResponses.sendText(exchange, 401, "Not logged in"); // Unauthorized
+                return;
+            }
+            JsonCodec.write(exchange, 200, new SessionUserDTO(email, session.getExpiryTime().toString()));
+        } else {
+            HttpResponses.sendMethodNotAllowed(exchange, "GET");
+        }
+    }
+}
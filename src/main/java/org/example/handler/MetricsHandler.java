@@ -0,0 +1,51 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.example.utils.JsonCodec;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Handles HTTP requests for the server metrics.
+ * This handler responds to GET requests with a JSON document holding the statistics
+ * of the server components (worker pools, caches and so on).
+ */
+public class MetricsHandler implements HttpHandler {
+
+    private final Map<String, Supplier<Map<String, Object>>> sources = new LinkedHashMap<>();
+
+    /**
+     * Registers a component whose statistics are included in the response.
+     *
+     * @param name The name under which the statistics appear.
+     * @param source Supplies a snapshot of the statistics.
+     * @return This handler, so registrations can be chained.
+     */
+    public MetricsHandler register(String name, Supplier<Map<String, Object>> source) {
+        sources.put(name, source);
+        return this;
+    }
+
+    /**
+     * Handles an HTTP exchange for a metrics request. Collects the statistics of every component
+     * and sends them back as JSON.
+     *
+     * @param exchange The HTTP exchange containing the request from the client and used to send the response.
+     * @throws IOException if there is an issue sending the response.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            sources.forEach((name, source) -> metrics.put(name, source.get()));
+
+            JsonCodec.write(exchange, 200, metrics);
+        } else {
+            HttpResponses.sendMethodNotAllowed(exchange, "GET");
+        }
+    }
+}
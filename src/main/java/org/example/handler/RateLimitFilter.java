@@ -0,0 +1,40 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.utils.RateLimiter;
+
+import java.io.IOException;
+
+/**
+ * Limits the requests of every client address before the handler runs, so a rejected request
+ * costs a map lookup instead of reading the body, a database query and a bcrypt check.
+ * The connection is closed after a rejection, the request body is never read.
+ */
+public class RateLimitFilter extends Filter {
+
+    private final RateLimiter limiter;
+
+    /**
+     * @param limiter The limiter keyed by client address.
+     */
+    public RateLimitFilter(RateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        long retryAfterMillis = limiter.tryAcquire(exchange.getRemoteAddress().getAddress().getHostAddress());
+        if (retryAfterMillis > 0) {
+            exchange.getResponseHeaders().set("Connection", "close");
+            HttpResponses.sendTooManyRequests(exchange, retryAfterMillis, "Too many requests, try again later");
+            return;
+        }
+        chain.doFilter(exchange);
+    }
+
+    @Override
+    public String description() {
+        return "Token bucket rate limit per client address";
+    }
+}
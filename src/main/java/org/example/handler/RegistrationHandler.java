@@ -1,30 +1,34 @@
 package org.example.handler;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import org.example.exception.InvalidUserInputData;
+import org.example.exception.PayloadTooLargeException;
+import org.example.exception.TooManyRequestsException;
 import org.example.model.User;
 import org.example.service.UserService;
+import org.example.utils.RequestBodyReader;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Handles HTTP requests for user registration.
  * This handler processes POST requests containing user registration data.
- * First registers the user, if everything is valid,then sends a verification email.
+ * First registers the user, if everything is valid, then queues a verification email.
+ * Both steps run asynchronously, the request thread is released right after reading the body.
  */
 public class RegistrationHandler implements HttpHandler {
 
     private final UserService userService = UserService.getInstance();
+    private final RequestBodyReader bodyReader = RequestBodyReader.getInstance();
 
     /**
      * Handles an HTTP exchange. Specifically handles POST requests for user registration.
-     * Reads the request body, parses the user data from JSON, registers the user,
-     * creates and sends a verification code, and sends a response back to the client.
+     * Binds the user data from the JSON request body, registers the user together with a verification code,
+     * queues the verification email, and sends a response back to the client.
      *
      * @param exchange The HTTP exchange containing the request from the client and used to send the response.
      * @throws IOException if there is an issue reading the request or sending the response.
@@ -33,36 +37,59 @@ public class RegistrationHandler implements HttpHandler {
     public void handle(HttpExchange exchange) throws IOException {
 
         if (exchange.getRequestMethod().equalsIgnoreCase("POST")) {
-            // Process POST request
-            InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), "utf-8");
-            BufferedReader br = new BufferedReader(isr);
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
+            User user;
+            try {
+                user = readUser(exchange);
+            } catch (PayloadTooLargeException e) {
+                HttpResponses.sendPayloadTooLarge(exchange, e);
+                return;
+            }
+            if (user == null || user.getName() == null || user.getEmail() == null || user.getPassword() == null) {
+                HttpResponses.sendText(exchange, 400, "Invalid registration data");
+                return;
             }
-            String json = sb.toString();
 
-            // Parse JSON to User
-            Gson gson = new Gson();
-            User user = gson.fromJson(json, User.class);
+            // Register the user, the response is sent by the thread finishing the last step
+            userService.registerUserAsync(user)
+                    // Queueing the verification email to the address as normalized by the registration
+                    .thenCompose(verificationCode -> userService.sendVerificationEmailAsync(
+                            user.getEmail(), verificationCode))
+                    .whenComplete((ignored, error) -> HttpResponses.sendLater(exchange, () -> respond(exchange, error)));
+        } else {
+            HttpResponses.sendMethodNotAllowed(exchange, "POST");
+        }
+    }
 
-            // Register the user
-            try {
-                // Validate registration -- > if everything is valid we insert the user into the database
-                userService.registerUser(user);
-                // After validation we create verf. code for the user to activate his account
-                String verificationCode = userService.createAndSendVerificationCode(user.getEmail());
-                // Sending the verification code via email
-                userService.sendVerificationEmail(user.getEmail(), verificationCode);
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-            String response = "Registration successful";
-            exchange.sendResponseHeaders(200, response.length());
-            OutputStream os = exchange.getResponseBody();
-            os.write(response.getBytes());
-            os.close();
+    /**
+     * Binds the JSON body straight to a User object.
+     *
+     * @return The user, or null if the body is not valid JSON.
+     */
+    private User readUser(HttpExchange exchange) throws IOException {
+        try {
+            return bodyReader.readJson(exchange, User.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private void respond(HttpExchange exchange, Throwable error) throws IOException {
+        Throwable cause = HttpResponses.unwrap(error);
+        if (cause == null) {
+            HttpResponses.sendText(exchange, 200, "Registration successful");
+        } else if (cause instanceof InvalidUserInputData) {
+            HttpResponses.sendText(exchange, 400, cause.getMessage()); // Bad Request
+        } else if (cause instanceof SQLIntegrityConstraintViolationException) {
+            HttpResponses.sendText(exchange, 409, "An account with this email already exists"); // Conflict
+        } else if (cause instanceof TooManyRequestsException) {
+            exchange.getResponseHeaders().set("Retry-After",
+                    String.valueOf(((TooManyRequestsException) cause).getRetryAfterSeconds()));
+            HttpResponses.sendText(exchange, 429, "Server is busy, try again later"); // Too Many Requests
+        } else if (cause instanceof TimeoutException) {
+            HttpResponses.sendText(exchange, 503, "Server is busy, try again later"); // Service Unavailable
+        } else {
+            cause.printStackTrace(); // Log the exception
+            HttpResponses.sendText(exchange, 500, "Server error"); // Internal Server Error
         }
     }
 }
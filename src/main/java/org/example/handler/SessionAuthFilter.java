@@ -0,0 +1,39 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.service.UserService;
+
+import java.io.IOException;
+
+/**
+ * Lets a request through to a protected context only with a valid session, checked with
+ * {@link UserService#isSessionValid} against the in-memory sessions: a map lookup instead of a password hash.
+ * The email of the session is handed to the handler in the {@link #EMAIL_ATTRIBUTE} attribute.
+ */
+public class SessionAuthFilter extends Filter {
+
+    /**
+     * The exchange attribute holding the email of the authenticated user.
+     */
+    public static final String EMAIL_ATTRIBUTE = "session.email";
+
+    private final UserService userService = UserService.getInstance();
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String email = SessionCookies.read(exchange, SessionCookies.EMAIL_COOKIE);
+        String sessionToken = SessionCookies.read(exchange, SessionCookies.TOKEN_COOKIE);
+        if (email == null || sessionToken == null || !userService.isSessionValid(email, sessionToken)) {
+            HttpResponses.sendText(exchange, 401, "Not logged in"); // Unauthorized
+            return;
+        }
+        exchange.setAttribute(EMAIL_ATTRIBUTE, UserService.normalizeEmail(email));
+        chain.doFilter(exchange);
+    }
+
+    @Override
+    public String description() {
+        return "Session cookie authentication";
+    }
+}
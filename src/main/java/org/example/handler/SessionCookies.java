@@ -0,0 +1,72 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.utils.SessionManager;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads and writes the session cookies. Sessions are kept per email, so the client gets two cookies:
+ * the token and the email it belongs to. Both are HttpOnly, scripts on the page never see them,
+ * and SameSite=Strict, other sites cannot make the browser send them.
+ */
+final class SessionCookies {
+
+    static final String TOKEN_COOKIE = "SESSION";
+    static final String EMAIL_COOKIE = "SESSION_USER";
+
+    // Only set behind TLS, the server itself speaks plain HTTP
+    private static final boolean SECURE = Boolean.getBoolean("session.cookie.secure");
+
+    private SessionCookies() {
+    }
+
+    /**
+     * Adds the session cookies to the response, they expire together with the session.
+     *
+     * @param exchange The exchange to respond to.
+     * @param email The normalized email of the user.
+     * @param sessionToken The session token.
+     */
+    static void issue(HttpExchange exchange, String email, String sessionToken) {
+        long maxAgeSeconds = SessionManager.getTokenTtlMinutes() * 60L;
+        exchange.getResponseHeaders().add("Set-Cookie", cookie(TOKEN_COOKIE, sessionToken, maxAgeSeconds));
+        exchange.getResponseHeaders().add("Set-Cookie",
+                cookie(EMAIL_COOKIE, URLEncoder.encode(email, StandardCharsets.UTF_8), maxAgeSeconds));
+    }
+
+    private static String cookie(String name, String value, long maxAgeSeconds) {
+        return name + "=" + value + "; Path=/; Max-Age=" + maxAgeSeconds + "; HttpOnly; SameSite=Strict"
+                + (SECURE ? "; Secure" : "");
+    }
+
+    /**
+     * Finds a cookie sent by the client.
+     *
+     * @param exchange The exchange holding the request.
+     * @param name The name of the cookie.
+     * @return The decoded value, or null if the client did not send it.
+     */
+    static String read(HttpExchange exchange, String name) {
+        List<String> headers = exchange.getRequestHeaders().get("Cookie");
+        if (headers == null) {
+            return null;
+        }
+        for (String header : headers) {
+            for (String pair : header.split(";")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0 && pair.substring(0, separator).trim().equals(name)) {
+                    try {
+                        return URLDecoder.decode(pair.substring(separator + 1).trim(), StandardCharsets.UTF_8);
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
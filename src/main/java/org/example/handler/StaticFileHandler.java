@@ -1,51 +1,324 @@
 package org.example.handler;
 
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import org.example.utils.ByteRange;
+import org.example.utils.StaticAssetCache;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 /**
  * Handles HTTP requests for static files.
  * This handler serves static files (like HTML, CSS, JS) from a specified root directory.
+ * The files are served from memory through a {@link StaticAssetCache}, gzip compressed when the client accepts it,
+ * and with ETag and Last-Modified validators so that unchanged files are answered with 304 (Not Modified).
+ * Large files are streamed from disk. Single byte ranges are supported and answered with 206 (Partial Content).
  */
 public class StaticFileHandler implements HttpHandler {
 
-    private final String rootPath;
+    private final StaticAssetCache assetCache;
 
     /**
      * Constructs a new StaticFileHandler with the specified root directory path.
+     * The files are loaded into memory and watched for changes.
      *
      * @param rootPath The root directory path where static files are located.
      */
     public StaticFileHandler(String rootPath) {
-        this.rootPath = rootPath;
+        this.assetCache = new StaticAssetCache(Path.of(rootPath));
+        try {
+            assetCache.startWatching();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot watch the static files in " + rootPath, e);
+        }
+    }
+
+    /**
+     * @return The cache holding the static files, for its statistics.
+     */
+    public StaticAssetCache getAssetCache() {
+        return assetCache;
     }
 
     /**
      * Handles an HTTP exchange by serving a static file.
-     * The file to serve is determined by appending the request URI to the root path.
+     * The file to serve is determined by the request URI, relative to the root path.
+     * If the path is malformed, a 400 (Bad Request) response is sent.
      * If the file does not exist, a 404 (Not Found) response is sent.
+     * If the client already has the current version, a 304 (Not Modified) response is sent.
+     * If a single byte range is requested, that part is sent with a 206 (Partial Content) response.
      * Otherwise, the file is sent with a 200 (OK) response.
      *
      * @param exchange The HTTP exchange containing the request from the client and used to send the response.
-     * @throws IOException if there is an issue reading the file or sending the response.
+     * @throws IOException if there is an issue sending the response.
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String filePath = rootPath + exchange.getRequestURI().getPath();
-        File file = new File(filePath);
-        if (!file.exists()) {
-            exchange.sendResponseHeaders(404,0);
+        String method = exchange.getRequestMethod();
+        boolean headRequest = method.equalsIgnoreCase("HEAD");
+        if (!headRequest && !method.equalsIgnoreCase("GET")) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            exchange.sendResponseHeaders(405, -1);
             exchange.close();
+            return;
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        if (!isSafePath(path)) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+
+        StaticAssetCache.Asset asset = assetCache.get(path);
+        if (asset != null) {
+            serveCachedAsset(exchange, asset, headRequest);
+            return;
+        }
+        StaticAssetCache.LargeFile largeFile = assetCache.getLargeFile(path);
+        if (largeFile != null) {
+            serveLargeFile(exchange, largeFile, headRequest);
+            return;
         }
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+    }
 
-        exchange.sendResponseHeaders(200, file.length());
+    /**
+     * Serves a file from memory, gzip compressed if the client accepts it.
+     */
+    private void serveCachedAsset(HttpExchange exchange, StaticAssetCache.Asset asset, boolean headRequest)
+            throws IOException {
+        Headers requestHeaders = exchange.getRequestHeaders();
+        ByteRange range = rangeOf(requestHeaders, asset.getEtag(), asset.getContent().length);
+        // A range refers to the identity encoding, so range requests are never compressed
+        boolean gzip = range == null && asset.getGzipContent() != null
+                && acceptsGzip(requestHeaders.getFirst("Accept-Encoding"));
+        String etag = gzip ? asset.getGzipEtag() : asset.getEtag();
+
+        Headers responseHeaders = exchange.getResponseHeaders();
+        setValidatorHeaders(responseHeaders, asset.getContentType(), etag, asset.getLastModifiedHttpDate());
+        if (asset.getGzipContent() != null) {
+            responseHeaders.set("Vary", "Accept-Encoding");
+        }
+
+        if (isNotModified(requestHeaders, etag, asset.getLastModifiedMillis())) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        if (range == ByteRange.UNSATISFIABLE) {
+            sendRangeNotSatisfiable(exchange, asset.getContent().length);
+            return;
+        }
+
+        byte[] body = gzip ? asset.getGzipContent() : asset.getContent();
+        int offset = 0;
+        int length = body.length;
+        int status = 200;
+        if (gzip) {
+            responseHeaders.set("Content-Encoding", "gzip");
+        }
+        if (range != null) {
+            responseHeaders.set("Content-Range", range.toContentRange(body.length));
+            offset = (int) range.getStart();
+            length = (int) range.getLength();
+            status = 206;
+        }
+        if (!sendHeaders(exchange, status, length, headRequest)) {
+            return;
+        }
         try (OutputStream outputStream = exchange.getResponseBody()) {
-            Files.copy(file.toPath(), outputStream);
+            outputStream.write(body, offset, length);
+        }
+    }
+
+    /**
+     * Streams a large file from disk with FileChannel.transferTo, so the content never goes through
+     * heap buffers sized to the file, whatever the number of concurrent downloads.
+     */
+    private void serveLargeFile(HttpExchange exchange, StaticAssetCache.LargeFile largeFile, boolean headRequest)
+            throws IOException {
+        Headers requestHeaders = exchange.getRequestHeaders();
+        Headers responseHeaders = exchange.getResponseHeaders();
+        setValidatorHeaders(responseHeaders, largeFile.getContentType(), largeFile.getEtag(),
+                largeFile.getLastModifiedHttpDate());
+
+        if (isNotModified(requestHeaders, largeFile.getEtag(), largeFile.getLastModifiedMillis())) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(largeFile.getPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteRange range = rangeOf(requestHeaders, largeFile.getEtag(), size);
+            if (range == ByteRange.UNSATISFIABLE) {
+                sendRangeNotSatisfiable(exchange, size);
+                return;
+            }
+            long position = 0;
+            long length = size;
+            int status = 200;
+            if (range != null) {
+                responseHeaders.set("Content-Range", range.toContentRange(size));
+                position = range.getStart();
+                length = range.getLength();
+                status = 206;
+            }
+            if (!sendHeaders(exchange, status, length, headRequest)) {
+                return;
+            }
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                WritableByteChannel target = Channels.newChannel(outputStream);
+                long remaining = length;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        break; // The file was truncated while being sent
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends the headers of a response whose body has the given length.
+     * For an empty body and for HEAD, -1 tells the server no body follows, 0 would mean a chunked one.
+     * A HEAD response still announces the Content-Length the GET response would have.
+     *
+     * @return true if the body must be written, false if the exchange is already closed.
+     */
+    private static boolean sendHeaders(HttpExchange exchange, int status, long length, boolean headRequest)
+            throws IOException {
+        if (headRequest) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+        }
+        if (headRequest || length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return false;
+        }
+        exchange.sendResponseHeaders(status, length);
+        return true;
+    }
+
+    private static void setValidatorHeaders(Headers responseHeaders, String contentType, String etag,
+                                            String lastModified) {
+        responseHeaders.set("Content-Type", contentType);
+        responseHeaders.set("ETag", etag);
+        responseHeaders.set("Last-Modified", lastModified);
+        responseHeaders.set("Cache-Control", "no-cache"); // Cache, but revalidate with the validators
+        responseHeaders.set("Accept-Ranges", "bytes");
+    }
+
+    private static void sendRangeNotSatisfiable(HttpExchange exchange, long size) throws IOException {
+        exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+        exchange.sendResponseHeaders(416, -1);
+        exchange.close();
+    }
+
+    /**
+     * Returns the requested range, or null if the whole file must be sent.
+     * With If-Range, the range only applies while the client's copy is still current, a date is not
+     * precise enough to tell, so the whole file is sent in that case.
+     */
+    private static ByteRange rangeOf(Headers requestHeaders, String etag, long size) {
+        String rangeHeader = requestHeaders.getFirst("Range");
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = requestHeaders.getFirst("If-Range");
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        return ByteRange.parse(rangeHeader, size);
+    }
+
+    /**
+     * Rejects request paths that could escape the root directory. The check is cheap: the lookups only
+     * hit files known to the cache, this stops malformed paths before any of them.
+     *
+     * @param path The decoded path of the request URI.
+     * @return true if the path is safe to look up.
+     */
+    static boolean isSafePath(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+        return path.indexOf('\\') < 0 && path.indexOf('\0') < 0 && !path.contains("/../")
+                && !path.endsWith("/..") && !path.contains("//");
+    }
+
+    /**
+     * Checks the conditional request headers. If-None-Match takes precedence over If-Modified-Since.
+     */
+    static boolean isNotModified(Headers requestHeaders, String etag, long lastModifiedMillis) {
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                // Weak comparison, as required for If-None-Match
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli();
+                // HTTP dates have a precision of one second
+                return lastModifiedMillis / 1000 <= since / 1000;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the Accept-Encoding header allows gzip, honouring an explicit "q=0".
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
         }
+        return false;
     }
 }
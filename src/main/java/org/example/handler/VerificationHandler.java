@@ -1,17 +1,16 @@
 package org.example.handler;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import org.example.model.User;
+import org.example.exception.PayloadTooLargeException;
 import org.example.model.dto.UserForVerificationDTO;
 import org.example.service.UserService;
+import org.example.utils.RateLimiter;
+import org.example.utils.RequestBodyReader;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.sql.SQLException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Handles HTTP requests for user verification.
@@ -21,10 +20,33 @@ import java.sql.SQLException;
 public class VerificationHandler implements HttpHandler {
 
     private final UserService userService = UserService.getInstance();
+    private final RequestBodyReader bodyReader = RequestBodyReader.getInstance();
+    private final RateLimiter emailLimiter;
+
+    /**
+     * Creates the handler with the per-email limit configured by the {@code ratelimit.verify.email.*} properties.
+     */
+    public VerificationHandler() {
+        this(RateLimiter.fromProperties("ratelimit.verify.email", 5, 10));
+    }
+
+    /**
+     * @param emailLimiter The limiter of the verification attempts per account.
+     */
+    public VerificationHandler(RateLimiter emailLimiter) {
+        this.emailLimiter = emailLimiter;
+    }
+
+    /**
+     * @return The limiter of the verification attempts per account, for its statistics.
+     */
+    public RateLimiter getEmailLimiter() {
+        return emailLimiter;
+    }
 
     /**
      * Handles an HTTP exchange for a user verification request. Specifically handles POST requests
-     * by reading the request body, parsing the verification data from JSON, authenticating the user's verification code
+     * by binding the verification data from the JSON request body, authenticating the user's verification code
      * using UserService, and sending a response back to the client.
      *
      * @param exchange The HTTP exchange containing the request from the client and used to send the response.
@@ -33,41 +55,56 @@ public class VerificationHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         if (exchange.getRequestMethod().equalsIgnoreCase("POST")) {
-            // Process POST request
-            InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), "utf-8");
-            BufferedReader br = new BufferedReader(isr);
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
+            // Bind the JSON body straight to the verification DTO
+            UserForVerificationDTO user;
+            try {
+                user = bodyReader.readJson(exchange, UserForVerificationDTO.class);
+            } catch (PayloadTooLargeException e) {
+                HttpResponses.sendPayloadTooLarge(exchange, e);
+                return;
+            } catch (JsonParseException e) {
+                user = null;
+            }
+            if (user == null || user.getEmail() == null || user.getVerificationCode() == null) {
+                HttpResponses.sendText(exchange, 400, "Invalid verification data");
+                return;
             }
-            String json = sb.toString();
-
-            // Parse JSON to User
-            Gson gson = new Gson();
-            UserForVerificationDTO user = gson.fromJson(json, UserForVerificationDTO.class);
 
-            // Verify the user
-            String response;
-            int responseCode;
-            try {
-                boolean isVerified = userService.verifyUserEmail(user.getEmail(), user.getVerificationCode());
-                if (isVerified) {
-                    response = "Verified successful";
-                    responseCode = 200;
-                } else {
-                    response = "Not verified";
-                    responseCode = 401; // Unauthorized
-                }
-            } catch (SQLException e) {
-                response = "Server error";
-                responseCode = 500; // Internal Server Error
-                e.printStackTrace(); // Log the exception
+            // Limit the guesses per account before the code is checked against the database
+            long retryAfterMillis = emailLimiter.tryAcquire(UserService.normalizeEmail(user.getEmail()));
+            if (retryAfterMillis > 0) {
+                HttpResponses.sendTooManyRequests(exchange, retryAfterMillis,
+                        "Too many verification attempts, try again later");
+                return;
             }
-            exchange.sendResponseHeaders(responseCode, response.length());
-            OutputStream os = exchange.getResponseBody();
-            os.write(response.getBytes());
-            os.close();
+
+            // Verify the user, the response is sent once the verification finished
+            userService.verifyUserEmailAsync(user.getEmail(), user.getVerificationCode())
+                    .whenComplete((isVerified, error) -> HttpResponses.sendLater(exchange,
+                            () -> respond(exchange, isVerified, error)));
+        } else {
+            HttpResponses.sendMethodNotAllowed(exchange, "POST");
+        }
+    }
+
+    private void respond(HttpExchange exchange, Boolean isVerified, Throwable error) throws IOException {
+        Throwable cause = HttpResponses.unwrap(error);
+        String response;
+        int responseCode;
+        if (cause == null && isVerified) {
+            response = "Verified successful";
+            responseCode = 200;
+        } else if (cause == null) {
+            response = "Not verified";
+            responseCode = 401; // Unauthorized
+        } else if (cause instanceof TimeoutException) {
+            response = "Server is busy, try again later";
+            responseCode = 503; // Service Unavailable
+        } else {
+            response = "Server error";
+            responseCode = 500; // Internal Server Error
+            cause.printStackTrace(); // Log the exception
         }
+        HttpResponses.sendText(exchange, responseCode, response);
     }
 }
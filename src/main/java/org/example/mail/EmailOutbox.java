@@ -0,0 +1,255 @@
+package org.example.mail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Durable outbox for verification emails, stored as a spool directory.
+ * Every message is one small properties file, written to a temporary file first and then atomically
+ * renamed once it is forced to disk, so a crash never leaves a half written message and pending messages
+ * survive restarts. Messages that failed for good are moved to the "dead-letter" subdirectory, where they are kept
+ * for inspection. A file that cannot be parsed is moved to the "corrupt" subdirectory, so it never blocks the
+ * messages queued after it.
+ */
+public class EmailOutbox {
+
+    private static final String MESSAGE_SUFFIX = ".properties";
+    private static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+    private static final String CORRUPT_DIRECTORY = "corrupt";
+
+    private static EmailOutbox emailOutbox;
+
+    private final Path directory;
+    private final Path deadLetterDirectory;
+    private final Path corruptDirectory;
+
+    /**
+     * Singleton pattern to ensure only one instance of EmailOutbox exists.
+     * The spool directory is taken from the "mail.outbox.dir" system property.
+     *
+     * @return The single instance of EmailOutbox.
+     */
+    public static synchronized EmailOutbox getInstance() {
+        if (emailOutbox == null) {
+            emailOutbox = new EmailOutbox(Path.of(System.getProperty("mail.outbox.dir", "data/outbox")));
+        }
+        return emailOutbox;
+    }
+
+    /**
+     * Creates an outbox stored in the given directory, creating the directory if needed.
+     *
+     * @param directory The spool directory.
+     */
+    public EmailOutbox(Path directory) {
+        this.directory = directory;
+        this.deadLetterDirectory = directory.resolve(DEAD_LETTER_DIRECTORY);
+        this.corruptDirectory = directory.resolve(CORRUPT_DIRECTORY);
+        try {
+            Files.createDirectories(deadLetterDirectory);
+            Files.createDirectories(corruptDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the outbox directory " + directory, e);
+        }
+    }
+
+    /**
+     * Adds a verification email to the outbox. The message is on disk when the method returns.
+     *
+     * @param recipient The email address of the user.
+     * @param verificationCode The verification code to send.
+     * @return The stored message.
+     * @throws IOException if the message cannot be written.
+     */
+    public OutboxMessage enqueue(String recipient, String verificationCode) throws IOException {
+        long now = System.currentTimeMillis();
+        // The time prefix keeps the file names, and so the delivery order, sorted by creation time
+        String id = String.format("%013d-%s", now, UUID.randomUUID());
+        OutboxMessage message = new OutboxMessage(id, recipient, verificationCode, now, 0, now, null);
+        write(directory, message);
+        return message;
+    }
+
+    /**
+     * Returns the messages whose next delivery attempt is due, oldest first.
+     * Files that cannot be parsed are moved to the "corrupt" subdirectory and skipped.
+     *
+     * @param now The current time in epoch milliseconds.
+     * @param limit The maximum number of messages to return.
+     * @return The due messages.
+     * @throws IOException if the outbox cannot be read.
+     */
+    public List<OutboxMessage> findDue(long now, int limit) throws IOException {
+        List<OutboxMessage> due = new ArrayList<>();
+        for (Path file : listMessages(directory)) {
+            if (due.size() >= limit) {
+                break;
+            }
+            OutboxMessage message = readOrQuarantine(file);
+            if (message != null && message.getNextAttemptAt() <= now) {
+                due.add(message);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Persists the new delivery state of a message after a failed attempt.
+     *
+     * @param message The message with its updated attempts, next attempt time and error.
+     * @throws IOException if the message cannot be written.
+     */
+    public void update(OutboxMessage message) throws IOException {
+        write(directory, message);
+    }
+
+    /**
+     * Removes a delivered message from the outbox.
+     *
+     * @param message The delivered message.
+     * @throws IOException if the file cannot be deleted.
+     */
+    public void remove(OutboxMessage message) throws IOException {
+        Files.deleteIfExists(fileFor(directory, message.getId()));
+    }
+
+    /**
+     * Moves a message that cannot be delivered to the dead-letter store.
+     *
+     * @param message The message, with the error that made it fail.
+     * @throws IOException if the message cannot be moved.
+     */
+    public void moveToDeadLetter(OutboxMessage message) throws IOException {
+        write(deadLetterDirectory, message);
+        remove(message);
+    }
+
+    /**
+     * @return The files that could not be parsed, oldest first.
+     * @throws IOException if the store cannot be read.
+     */
+    public List<Path> corruptFiles() throws IOException {
+        return listMessages(corruptDirectory);
+    }
+
+    /**
+     * @return The number of messages waiting for delivery.
+     * @throws IOException if the outbox cannot be read.
+     */
+    public int pendingCount() throws IOException {
+        return listMessages(directory).size();
+    }
+
+    /**
+     * @return The messages in the dead-letter store, oldest first.
+     * @throws IOException if the store cannot be read.
+     */
+    public List<OutboxMessage> deadLetters() throws IOException {
+        List<OutboxMessage> messages = new ArrayList<>();
+        for (Path file : listMessages(deadLetterDirectory)) {
+            OutboxMessage message = readOrQuarantine(file);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private List<Path> listMessages(Path messageDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(messageDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(MESSAGE_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path fileFor(Path messageDirectory, String id) {
+        return messageDirectory.resolve(id + MESSAGE_SUFFIX);
+    }
+
+    private static void write(Path messageDirectory, OutboxMessage message) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("id", message.getId());
+        properties.setProperty("recipient", message.getRecipient());
+        properties.setProperty("verificationCode", message.getVerificationCode());
+        properties.setProperty("createdAt", String.valueOf(message.getCreatedAt()));
+        properties.setProperty("attempts", String.valueOf(message.getAttempts()));
+        properties.setProperty("nextAttemptAt", String.valueOf(message.getNextAttemptAt()));
+        if (message.getLastError() != null) {
+            properties.setProperty("lastError", message.getLastError());
+        }
+
+        Path temporary = messageDirectory.resolve(message.getId() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            properties.store(Channels.newOutputStream(channel), null);
+            // Without it the rename can reach the disk before the content, leaving an empty file after a power loss
+            channel.force(true);
+        }
+        Files.move(temporary, fileFor(messageDirectory, message.getId()),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a message file, returns null if it was removed in the meantime or could not be parsed,
+     * in which case it is moved to the "corrupt" subdirectory.
+     */
+    private OutboxMessage readOrQuarantine(Path file) throws IOException {
+        try {
+            return read(file);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unreadable outbox message moved to " + corruptDirectory + ": " + file.getFileName()
+                    + " (" + e.getMessage() + ")");
+            try {
+                Files.move(file, corruptDirectory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            } catch (NoSuchFileException ignored) {
+                // Removed in the meantime
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads a message file, returns null if it was removed in the meantime.
+     *
+     * @throws IllegalArgumentException if the file is not a complete message.
+     */
+    private static OutboxMessage read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return new OutboxMessage(
+                required(properties, "id"),
+                required(properties, "recipient"),
+                required(properties, "verificationCode"),
+                Long.parseLong(required(properties, "createdAt")),
+                Integer.parseInt(required(properties, "attempts")),
+                Long.parseLong(required(properties, "nextAttemptAt")),
+                properties.getProperty("lastError"));
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.mail;
+
+import javax.mail.Authenticator;
+import javax.mail.PasswordAuthentication;
+import javax.mail.Session;
+import java.util.Properties;
+
+/**
+ * Holds the SMTP settings used to send the verification emails.
+ * The defaults point to Gmail, every value can be overridden with a system property
+ * (mail.smtp.host, mail.smtp.port, mail.smtp.auth, mail.smtp.starttls, mail.from and mail.password),
+ * which is how the tests point the sender to a local SMTP server.
+ */
+public class MailSettings {
+
+    /**
+     * To test the send mail: fromEmail - is your actual gmail,
+     * password - is your gmail app password, this password can be made
+     * when you make a 2 step verification, then you can make a app password
+     * Gmail -> Profile -> Security ->  2 Steps Verification -> App password
+     */
+    private static final String DEFAULT_FROM_EMAIL = "your email"; // TODO: Change the email and password
+    private static final String DEFAULT_PASSWORD = "your email password";
+
+    private final String host;
+    private final int port;
+    private final boolean auth;
+    private final boolean startTls;
+    private final String fromEmail;
+    private final String password;
+
+    public MailSettings(String host, int port, boolean auth, boolean startTls, String fromEmail, String password) {
+        this.host = host;
+        this.port = port;
+        this.auth = auth;
+        this.startTls = startTls;
+        this.fromEmail = fromEmail;
+        this.password = password;
+    }
+
+    /**
+     * Reads the settings from the system properties, falling back to the Gmail defaults.
+     *
+     * @return The configured settings.
+     */
+    public static MailSettings fromSystemProperties() {
+        return new MailSettings(
+                System.getProperty("mail.smtp.host", "smtp.gmail.com"), // SMTP Host
+                Integer.getInteger("mail.smtp.port", 587), // TLS Port
+                Boolean.parseBoolean(System.getProperty("mail.smtp.auth", "true")),
+                Boolean.parseBoolean(System.getProperty("mail.smtp.starttls", "true")),
+                System.getProperty("mail.from", DEFAULT_FROM_EMAIL),
+                System.getProperty("mail.password", DEFAULT_PASSWORD));
+    }
+
+    /**
+     * Creates a mail session for these settings. A session is thread-safe and can be shared by all senders.
+     *
+     * @return The mail session.
+     */
+    public Session createSession() {
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", host);
+        properties.put("mail.smtp.port", String.valueOf(port));
+        properties.put("mail.smtp.auth", String.valueOf(auth)); // enable authentication
+        properties.put("mail.smtp.starttls.enable", String.valueOf(startTls)); // enable STARTTLS
+        properties.put("mail.smtp.connectiontimeout", "10000");
+        properties.put("mail.smtp.timeout", "10000");
+
+        if (!auth) {
+            return Session.getInstance(properties);
+        }
+        // Create Authenticator object to pass in Session.getInstance argument
+        Authenticator authenticator = new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(fromEmail, password);
+            }
+        };
+        return Session.getInstance(properties, authenticator);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getFromEmail() {
+        return fromEmail;
+    }
+}
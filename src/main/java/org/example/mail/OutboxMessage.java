@@ -0,0 +1,66 @@
+package org.example.mail;
+
+/**
+ * A verification email waiting in the outbox, together with its delivery state.
+ */
+public class OutboxMessage {
+
+    private final String id;
+    private final String recipient;
+    private final String verificationCode;
+    private final long createdAt;
+    private int attempts;
+    private long nextAttemptAt;
+    private String lastError;
+
+    public OutboxMessage(String id, String recipient, String verificationCode, long createdAt,
+                         int attempts, long nextAttemptAt, String lastError) {
+        this.id = id;
+        this.recipient = recipient;
+        this.verificationCode = verificationCode;
+        this.createdAt = createdAt;
+        this.attempts = attempts;
+        this.nextAttemptAt = nextAttemptAt;
+        this.lastError = lastError;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getVerificationCode() {
+        return verificationCode;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(long nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
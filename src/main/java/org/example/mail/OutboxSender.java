@@ -0,0 +1,237 @@
+package org.example.mail;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.example.utils.ServerExecutors;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.AddressException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background sender draining the {@link EmailOutbox}.
+ * A single thread polls the outbox, sends every due message and removes it once the SMTP server accepted it.
+ * The messages of one poll are delivered in parallel over the pooled SMTP connections.
+ * Temporary failures are retried with exponential backoff, permanent failures (rejected addresses, 5xx replies)
+ * and messages out of attempts are moved to the dead-letter store.
+ */
+public class OutboxSender {
+
+    private static final long POLL_INTERVAL_MILLIS = Long.getLong("mail.outbox.poll.millis", 500);
+    private static final int BATCH_SIZE = Integer.getInteger("mail.outbox.batch", 50);
+    private static final int MAX_ATTEMPTS = Integer.getInteger("mail.outbox.max.attempts", 8);
+    private static final long BASE_BACKOFF_MILLIS = Long.getLong("mail.outbox.backoff.millis", 1000);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    // One delivery thread per pooled SMTP connection
+    private static final int PARALLELISM = Integer.getInteger("mail.outbox.parallelism",
+            Integer.getInteger("mail.smtp.pool.size", 3));
+
+    private final EmailOutbox outbox;
+    private final VerificationMailSender mailSender;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final int parallelism;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private ScheduledExecutorService scheduler;
+    private volatile ExecutorService deliveryExecutor;
+
+    /**
+     * Creates a sender using the configured retry policy.
+     *
+     * @param outbox The outbox to drain.
+     * @param mailSender The sender used to deliver the messages.
+     */
+    public OutboxSender(EmailOutbox outbox, VerificationMailSender mailSender) {
+        this(outbox, mailSender, MAX_ATTEMPTS, BASE_BACKOFF_MILLIS, PARALLELISM);
+    }
+
+    public OutboxSender(EmailOutbox outbox, VerificationMailSender mailSender, int maxAttempts,
+                        long baseBackoffMillis, int parallelism) {
+        this.outbox = outbox;
+        this.mailSender = mailSender;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Starts polling the outbox in the background, with the delivery threads.
+     */
+    public synchronized void start() {
+        if (scheduler == null) {
+            if (parallelism > 1) {
+                deliveryExecutor = Executors.newFixedThreadPool(parallelism,
+                        ServerExecutors.namedThreadFactory("outbox-delivery-"));
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("outbox-sender-"));
+            scheduler.scheduleWithFixedDelay(this::drainQuietly, 0, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops polling, messages still in the outbox are sent after the next start.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (deliveryExecutor != null) {
+            deliveryExecutor.shutdownNow();
+            deliveryExecutor = null;
+        }
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (IOException | RuntimeException e) {
+            // Keep the scheduler alive, the messages are still in the outbox for the next round
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Sends the messages that are currently due, one batch at most.
+     * The batch is spread over the delivery threads, each of them reusing a pooled SMTP connection,
+     * so a batch goes out over a few long-lived SMTP sessions. While the sender is stopped,
+     * the batch is sent from the calling thread.
+     *
+     * @return The number of messages delivered.
+     * @throws IOException if the outbox cannot be read or updated.
+     */
+    public int drain() throws IOException {
+        long now = System.currentTimeMillis();
+        List<OutboxMessage> due = outbox.findDue(now, BATCH_SIZE);
+        ExecutorService deliveryExecutor = this.deliveryExecutor;
+        if (deliveryExecutor == null) {
+            int delivered = 0;
+            for (OutboxMessage message : due) {
+                if (deliver(message, now)) {
+                    delivered++;
+                }
+            }
+            return delivered;
+        }
+
+        List<Future<Boolean>> results = new ArrayList<>(due.size());
+        for (OutboxMessage message : due) {
+            results.add(deliveryExecutor.submit(() -> deliver(message, now)));
+        }
+        int delivered = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (result.get()) {
+                    delivered++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Sends one message and records the outcome in the outbox.
+     *
+     * @return true if the message was delivered.
+     */
+    private boolean deliver(OutboxMessage message, long now) throws IOException {
+        try {
+            mailSender.send(message.getRecipient(), message.getVerificationCode());
+            outbox.remove(message);
+            sent.increment();
+            return true;
+        } catch (MessagingException e) {
+            handleFailure(message, e, now);
+            return false;
+        }
+    }
+
+    private void handleFailure(OutboxMessage message, MessagingException e, long now) throws IOException {
+        message.setAttempts(message.getAttempts() + 1);
+        message.setLastError(e.getClass().getSimpleName() + ": " + e.getMessage());
+        if (isPermanent(e) || message.getAttempts() >= maxAttempts) {
+            outbox.moveToDeadLetter(message);
+            deadLettered.increment();
+        } else {
+            message.setNextAttemptAt(now + backoffMillis(message.getAttempts()));
+            outbox.update(message);
+            retried.increment();
+        }
+    }
+
+    /**
+     * Computes the delay before the next attempt: the base delay doubled for every failed attempt, capped.
+     *
+     * @param attempts The number of failed attempts so far.
+     * @return The delay in milliseconds.
+     */
+    long backoffMillis(int attempts) {
+        long delay = baseBackoffMillis << Math.min(attempts - 1, 20);
+        return Math.min(delay, MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Decides whether retrying a failed message makes sense.
+     * Malformed addresses and 5xx replies from the SMTP server will fail the same way again.
+     */
+    static boolean isPermanent(MessagingException e) {
+        if (e instanceof AddressException) {
+            return true;
+        }
+        if (e instanceof SMTPAddressFailedException) {
+            return ((SMTPAddressFailedException) e).getReturnCode() >= 500;
+        }
+        if (e instanceof SMTPSendFailedException) {
+            return ((SMTPSendFailedException) e).getReturnCode() >= 500;
+        }
+        if (e instanceof SendFailedException) {
+            SendFailedException sendFailed = (SendFailedException) e;
+            if (sendFailed.getNextException() instanceof MessagingException) {
+                return isPermanent((MessagingException) sendFailed.getNextException());
+            }
+            return sendFailed.getInvalidAddresses() != null && sendFailed.getInvalidAddresses().length > 0;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a snapshot of the sender statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        try {
+            stats.put("pending", outbox.pendingCount());
+        } catch (IOException e) {
+            stats.put("pending", -1);
+        }
+        stats.put("sent", sent.sum());
+        stats.put("retried", retried.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        stats.put("smtpConnections", mailSender.stats());
+        return stats;
+    }
+}
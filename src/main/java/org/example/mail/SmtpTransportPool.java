@@ -0,0 +1,187 @@
+package org.example.mail;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small pool of connected and authenticated SMTP transports.
+ * Opening an SMTP connection costs a TCP handshake, STARTTLS and AUTH, so instead of paying that
+ * for every message, the transports are kept open and reused for many messages.
+ * A transport that sat idle for a while is checked with NOOP before it is handed out again,
+ * broken transports are closed and replaced, and every transport is retired after a number of messages
+ * so that servers limiting messages per connection are respected.
+ */
+public class SmtpTransportPool implements AutoCloseable {
+
+    private static final int MAX_SIZE = Integer.getInteger("mail.smtp.pool.size", 3);
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = Long.getLong("mail.smtp.pool.validate.millis", 1000);
+    private static final int MAX_MESSAGES_PER_CONNECTION = Integer.getInteger("mail.smtp.pool.max.messages", 100);
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    private final Session session;
+    private final int maxSize;
+    private final long validateAfterIdleMillis;
+    private final int maxMessagesPerConnection;
+    // Most recently used first, so the warm connections are reused and the others can time out on the server
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * A transport together with its usage, as kept in the pool.
+     */
+    static class PooledTransport {
+        private final Transport transport;
+        private int messagesSent;
+        private long lastUsedAt;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+
+        Transport getTransport() {
+            return transport;
+        }
+
+        /**
+         * @return true if the transport already sent messages, so its connection may have gone stale.
+         */
+        boolean isReused() {
+            return messagesSent > 0;
+        }
+    }
+
+    public SmtpTransportPool(Session session) {
+        this(session, MAX_SIZE, VALIDATE_AFTER_IDLE_MILLIS, MAX_MESSAGES_PER_CONNECTION);
+    }
+
+    public SmtpTransportPool(Session session, int maxSize, long validateAfterIdleMillis, int maxMessagesPerConnection) {
+        this.session = session;
+        this.maxSize = maxSize;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Takes a connected transport from the pool, connecting a new one if no healthy idle transport is available.
+     * Blocks while all transports are in use.
+     *
+     * @return A connected transport, to be given back with {@link #release(PooledTransport, boolean)}.
+     * @throws MessagingException if a new connection cannot be opened.
+     */
+    PooledTransport borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("The SMTP transport pool is closed");
+        }
+        acquirePermit();
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isHealthy(pooled)) {
+                    borrowed.increment();
+                    return pooled;
+                }
+                discard(pooled);
+            }
+            Transport transport = session.getTransport("smtp");
+            transport.connect();
+            created.increment();
+            borrowed.increment();
+            return new PooledTransport(transport);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a transport back to the pool.
+     *
+     * @param pooled The borrowed transport.
+     * @param reusable false if sending failed, the transport is then closed instead of being reused.
+     */
+    void release(PooledTransport pooled, boolean reusable) {
+        try {
+            pooled.messagesSent++;
+            pooled.lastUsedAt = System.currentTimeMillis();
+            if (reusable && !closed && pooled.messagesSent < maxMessagesPerConnection) {
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquirePermit() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+    }
+
+    /**
+     * A recently used transport is trusted, one idle for longer is checked with a NOOP,
+     * which SMTPTransport.isConnected sends.
+     */
+    private boolean isHealthy(PooledTransport pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedAt < validateAfterIdleMillis) {
+            return true;
+        }
+        return pooled.transport.isConnected();
+    }
+
+    private void discard(PooledTransport pooled) {
+        discarded.increment();
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            // The connection is broken anyway
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxSize", maxSize);
+        stats.put("idle", idle.size());
+        stats.put("inUse", maxSize - permits.availablePermits());
+        stats.put("connectionsOpened", created.sum());
+        stats.put("borrowed", borrowed.sum());
+        stats.put("discarded", discarded.sum());
+        return stats;
+    }
+
+    /**
+     * Closes the idle transports, borrowed ones are closed when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+}
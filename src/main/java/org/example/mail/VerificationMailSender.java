@@ -0,0 +1,111 @@
+package org.example.mail;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.Map;
+
+/**
+ * Builds and sends the verification emails over SMTP.
+ * The mail session is created once and the messages go over pooled connections,
+ * so many messages share one connected and authenticated SMTP session.
+ */
+public class VerificationMailSender implements AutoCloseable {
+
+    private final MailSettings settings;
+    private final Session session;
+    private final SmtpTransportPool transportPool;
+
+    public VerificationMailSender(MailSettings settings) {
+        this.settings = settings;
+        this.session = settings.createSession();
+        this.transportPool = new SmtpTransportPool(session);
+    }
+
+    /**
+     * Sends a verification email to the user.
+     * If a pooled connection turns out to be broken, the message is sent once more on a new connection.
+     *
+     * @param email The email address where the verification email is sent.
+     * @param verificationCode The verification code to be included in the email.
+     * @throws MessagingException if the message cannot be built or the SMTP server refuses it.
+     */
+    public void send(String email, String verificationCode) throws MessagingException {
+        MimeMessage message = createMessage(email, verificationCode);
+        message.saveChanges();
+
+        SmtpTransportPool.PooledTransport pooled = transportPool.borrow();
+        boolean reused = pooled.isReused();
+        try {
+            pooled.getTransport().sendMessage(message, message.getAllRecipients());
+            transportPool.release(pooled, true);
+        } catch (MessagingException e) {
+            transportPool.release(pooled, false);
+            if (!reused || !isConnectionFailure(e)) {
+                throw e;
+            }
+            // The server closed the pooled connection in the meantime, try once more on a new one
+            pooled = transportPool.borrow();
+            boolean sent = false;
+            try {
+                pooled.getTransport().sendMessage(message, message.getAllRecipients());
+                sent = true;
+            } finally {
+                transportPool.release(pooled, sent);
+            }
+        }
+    }
+
+    /**
+     * Tells a broken connection apart from a reply of the server refusing the message:
+     * only the former is worth sending again on a new connection.
+     */
+    static boolean isConnectionFailure(MessagingException e) {
+        if (e instanceof SMTPAddressFailedException) {
+            return false;
+        }
+        if (e instanceof SMTPSendFailedException) {
+            // A negative return code means no reply was read from the server
+            return ((SMTPSendFailedException) e).getReturnCode() < 0;
+        }
+        return !(e instanceof SendFailedException);
+    }
+
+    /**
+     * Builds the verification email.
+     *
+     * @param email The recipient.
+     * @param verificationCode The verification code to be included in the email.
+     * @return The message, ready to be sent.
+     * @throws MessagingException if an address is malformed.
+     */
+    MimeMessage createMessage(String email, String verificationCode) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(settings.getFromEmail()));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(email));
+        message.setSubject("Email Verification");
+        message.setText("Your verification code is: " + verificationCode);
+        return message;
+    }
+
+    /**
+     * @return The statistics of the SMTP connection pool.
+     */
+    public Map<String, Object> stats() {
+        return transportPool.stats();
+    }
+
+    /**
+     * Closes the pooled SMTP connections.
+     */
+    @Override
+    public void close() {
+        transportPool.close();
+    }
+}
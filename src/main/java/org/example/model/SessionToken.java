@@ -19,4 +19,8 @@ public class SessionToken {
     public String getToken() {
         return token;
     }
+
+    public LocalDateTime getExpiryTime() {
+        return expiryTime;
+    }
 }
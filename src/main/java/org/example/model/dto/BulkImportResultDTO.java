@@ -0,0 +1,92 @@
+package org.example.model.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResultDTO {
+
+    private int imported;
+    private int failed;
+    private boolean errorsTruncated;
+    private final List<RowError> errors = new ArrayList<>();
+    private Long failedBatchFromRow;
+    private Long failedBatchToRow;
+    private String failedBatchError;
+    private final transient int maxReportedErrors;
+
+    public BulkImportResultDTO(int maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public void addImported() {
+        imported++;
+    }
+
+    public void addError(long row, String email, String message) {
+        failed++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new RowError(row, email, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    public void failBatch(long fromRow, long toRow, String error) {
+        failedBatchFromRow = fromRow;
+        failedBatchToRow = toRow;
+        failedBatchError = error;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public Long getFailedBatchFromRow() {
+        return failedBatchFromRow;
+    }
+
+    public Long getFailedBatchToRow() {
+        return failedBatchToRow;
+    }
+
+    public String getFailedBatchError() {
+        return failedBatchError;
+    }
+
+    public static class RowError {
+
+        private final long row;
+        private final String email;
+        private final String message;
+
+        public RowError(long row, String email, String message) {
+            this.row = row;
+            this.email = email;
+            this.message = message;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
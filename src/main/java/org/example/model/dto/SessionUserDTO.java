@@ -0,0 +1,28 @@
+package org.example.model.dto;
+
+public class SessionUserDTO {
+
+    private String userEmail;
+    private String sessionExpiresAt;
+
+    public SessionUserDTO(String userEmail, String sessionExpiresAt) {
+        this.userEmail = userEmail;
+        this.sessionExpiresAt = sessionExpiresAt;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public void setUserEmail(String userEmail) {
+        this.userEmail = userEmail;
+    }
+
+    public String getSessionExpiresAt() {
+        return sessionExpiresAt;
+    }
+
+    public void setSessionExpiresAt(String sessionExpiresAt) {
+        this.sessionExpiresAt = sessionExpiresAt;
+    }
+}
@@ -0,0 +1,241 @@
+package org.example.repository;
+
+import org.example.utils.Hashing;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of the credential rows read by login (password hash and verification status), keyed by email.
+ * <p>
+ * Eviction is frequency-aware: the cache is kept in least recently used order, but when it is full a new row
+ * only replaces the eldest one if it was asked for more often, according to a small count-min sketch of recent
+ * lookups (the TinyLFU admission policy). A burst of one-off lookups for unknown or rarely used accounts therefore
+ * cannot flush the accounts that log in all the time.
+ * <p>
+ * Only verified accounts are cached, so a stale "not verified" state can never be served, and every entry expires
+ * after its time to live. Writes to a cached row must call {@link #invalidate(String)}; a row loaded while an
+ * invalidation happened is not stored, so a slow reader cannot put an outdated row back.
+ */
+public class CredentialCache {
+
+    /**
+     * The cached part of a user row.
+     */
+    public static class Credentials {
+        private final String passwordHash;
+        private final boolean verified;
+
+        public Credentials(String passwordHash, boolean verified) {
+            this.passwordHash = passwordHash;
+            this.verified = verified;
+        }
+
+        public String getPasswordHash() {
+            return passwordHash;
+        }
+
+        public boolean isVerified() {
+            return verified;
+        }
+    }
+
+    private static class Entry {
+        private final Credentials credentials;
+        private final long expiresAt;
+
+        Entry(Credentials credentials, long expiresAt) {
+            this.credentials = credentials;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejectedAdmissions;
+
+    /**
+     * @param maxSize The maximum number of cached rows, 0 disables the cache.
+     * @param ttlMillis How long a row is served from the cache.
+     */
+    public CredentialCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    CredentialCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.sketch = new FrequencySketch(Math.max(maxSize, 16));
+    }
+
+    /**
+     * Looks up the credentials of an email.
+     *
+     * @param email The normalized email.
+     * @return The cached credentials, or null if they are not cached or expired.
+     */
+    public synchronized Credentials get(String email) {
+        sketch.increment(email);
+        Entry entry = entries.get(email);
+        if (entry != null && entry.expiresAt > clock.getAsLong()) {
+            hits++;
+            return entry.credentials;
+        }
+        if (entry != null) {
+            entries.remove(email);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Marks the start of a database read for a later {@link #put(String, Credentials, long)}.
+     *
+     * @return The stamp to pass to put.
+     */
+    public synchronized long startLoad() {
+        return invalidations;
+    }
+
+    /**
+     * Caches credentials read from the database, unless a row was invalidated since the read started
+     * or the account is not verified yet.
+     *
+     * @param email The normalized email.
+     * @param credentials The credentials read from the database.
+     * @param loadStamp The value {@link #startLoad()} returned before the read.
+     */
+    public synchronized void put(String email, Credentials credentials, long loadStamp) {
+        if (maxSize <= 0 || !credentials.isVerified() || loadStamp != invalidations) {
+            return;
+        }
+        Entry entry = new Entry(credentials, clock.getAsLong() + ttlMillis);
+        if (entries.containsKey(email) || entries.size() < maxSize) {
+            entries.put(email, entry);
+            return;
+        }
+        // Full: the candidate has to be more popular than the least recently used row
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        Map.Entry<String, Entry> victim = eldest.next();
+        boolean victimExpired = victim.getValue().expiresAt <= clock.getAsLong();
+        if (!victimExpired && sketch.frequency(email) <= sketch.frequency(victim.getKey())) {
+            rejectedAdmissions++;
+            return;
+        }
+        eldest.remove();
+        evictions++;
+        entries.put(email, entry);
+    }
+
+    /**
+     * Drops the cached row of an email, to be called whenever the row is written.
+     *
+     * @param email The normalized email.
+     */
+    public synchronized void invalidate(String email) {
+        invalidations++;
+        entries.remove(email);
+    }
+
+    /**
+     * @return The share of lookups answered from the cache, between 0 and 1.
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns a snapshot of the cache statistics.
+     *
+     * @return The statistics by name.
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", getHitRate());
+        stats.put("evictions", evictions);
+        stats.put("rejectedAdmissions", rejectedAdmissions);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    /**
+     * Count-min sketch of how often keys were looked up recently, with 4-bit counters.
+     * All counters are halved after a number of increments proportional to the cache size,
+     * so that the popularity of the past fades out.
+     * The row indexes are derived from a 64-bit hash by double hashing, so emails sharing a
+     * {@code String.hashCode()}, which are easy to make up, do not share their counters.
+     */
+    static class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int resetAfter;
+        private int additions;
+
+        FrequencySketch(int expectedSize) {
+            int width = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) * 2;
+            this.counters = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.resetAfter = expectedSize * 10;
+        }
+
+        void increment(String key) {
+            long hash = Hashing.hash64(key);
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (counters[row][index] < MAX_COUNT) {
+                    counters[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= resetAfter) {
+                reset();
+            }
+        }
+
+        int frequency(String key) {
+            long hash = Hashing.hash64(key);
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[row][indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        /**
+         * The low half of the hash plus the row times the high half, odd so every row gets a different index.
+         */
+        private int indexOf(long hash, int row) {
+            return ((int) hash + row * ((int) (hash >>> 32) | 1)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
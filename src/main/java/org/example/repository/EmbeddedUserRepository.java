@@ -0,0 +1,31 @@
+package org.example.repository;
+
+import org.example.utils.ConnectionPool;
+
+import java.nio.file.Paths;
+import java.sql.DriverManager;
+
+/**
+ * {@link UserStore} backend keeping the users in an embedded H2 database file inside the server process,
+ * for single-node deployments that should not pay a network hop per query.
+ * It runs the same SQL and schema migrations as the MySQL backend, only the connections differ.
+ * Closing the repository closes the pooled connections, and H2 closes the database file with the last one.
+ */
+public class EmbeddedUserRepository extends PooledUserRepository {
+
+    private static final int POOL_MAX_SIZE = Integer.getInteger("embedded.db.pool.max", 8);
+
+    /**
+     * @param databasePath The path of the database file, without the H2 file extension.
+     */
+    public EmbeddedUserRepository(String databasePath) {
+        super("embedded", createPool(databasePath));
+    }
+
+    private static ConnectionPool createPool(String databasePath) {
+        String url = "jdbc:h2:file:" + Paths.get(databasePath).toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+        // Connections to an embedded database are cheap and never go stale, they only save the per-query setup
+        return new ConnectionPool(() -> DriverManager.getConnection(url, "sa", ""),
+                1, POOL_MAX_SIZE, 5_000, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 60_000, 30_000);
+    }
+}
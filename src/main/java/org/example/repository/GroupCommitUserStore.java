@@ -0,0 +1,320 @@
+package org.example.repository;
+
+import org.example.model.User;
+import org.example.utils.ServerExecutors;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind stage in front of a {@link UserStore} that turns concurrent registrations into batches.
+ * <p>
+ * New users and verification code writes are queued, and a single writer thread commits them in batches:
+ * a batch is written once it holds the maximum number of rows, or once the first row has waited for the maximum
+ * delay. Every caller blocks until the batch holding its row is committed and then gets the outcome of its own row,
+ * including a duplicate email, so an acknowledged registration is as durable as without batching,
+ * only with one commit per batch instead of one per registration. The queued writes are committed in arrival order.
+ * A caller waits at most group.commit.timeout.millis, and if the writer thread dies every write still waiting fails.
+ * <p>
+ * Reads and the other writes go straight to the wrapped store.
+ */
+public class GroupCommitUserStore implements UserStore, AutoCloseable {
+
+    private static final int MAX_BATCH = Integer.getInteger("group.commit.max.batch", 100);
+    private static final long MAX_DELAY_MILLIS = Long.getLong("group.commit.max.delay.millis", 5);
+    private static final long TIMEOUT_MILLIS = Long.getLong("group.commit.timeout.millis", 30_000);
+
+    /**
+     * A queued write and the future its caller waits on.
+     */
+    private static class PendingWrite {
+        private final User user;
+        private final String email;
+        private final String verificationCode;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingWrite(User user, String email, String verificationCode) {
+            this.user = user;
+            this.email = email;
+            this.verificationCode = verificationCode;
+        }
+
+        private boolean isInsert() {
+            return user != null;
+        }
+    }
+
+    private final UserStore store;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private volatile int largestBatch;
+
+    /**
+     * Wraps a store using the configured batch size and delay.
+     *
+     * @param store The store the batches are written to.
+     */
+    public GroupCommitUserStore(UserStore store) {
+        this(store, MAX_BATCH, MAX_DELAY_MILLIS, TIMEOUT_MILLIS);
+    }
+
+    GroupCommitUserStore(UserStore store, int maxBatch, long maxDelayMillis) {
+        this(store, maxBatch, maxDelayMillis, TIMEOUT_MILLIS);
+    }
+
+    GroupCommitUserStore(UserStore store, int maxBatch, long maxDelayMillis, long timeoutMillis) {
+        this.store = store;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.writer = ServerExecutors.namedThreadFactory("group-commit-").newThread(this::writeLoop);
+        this.writer.start();
+    }
+
+    @Override
+    public void open() throws SQLException {
+        store.open();
+    }
+
+    @Override
+    public void saveUserToDatabase(String username, String email, String password, String verificationCode)
+            throws SQLException {
+        submit(new PendingWrite(new User(username, email, password), email, verificationCode));
+    }
+
+    @Override
+    public void storeVerificationCodeInDatabase(String verificationCode, String email) throws SQLException {
+        submit(new PendingWrite(null, email, verificationCode));
+    }
+
+    /**
+     * Queues a write and waits until its batch is committed, at most the commit timeout.
+     */
+    private void submit(PendingWrite write) throws SQLException {
+        if (closed) {
+            throw new SQLException("The user store is closed");
+        }
+        queue.add(write);
+        // Queued after a dead writer drained the queue for the last time, nothing would ever complete it
+        if (!writer.isAlive() && queue.remove(write)) {
+            throw new SQLException("The group commit writer has stopped");
+        }
+        try {
+            write.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // The write may still be committed, the caller just stops waiting for it
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the commit", e);
+        } catch (TimeoutException e) {
+            // Same here, the write stays queued and may still be committed
+            throw new SQLTimeoutException("No commit within " + timeoutMillis + " ms", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Group commit failed", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatch);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                try {
+                    PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + maxDelayNanos;
+                    while (batch.size() < maxBatch) {
+                        long remaining = deadline - System.nanoTime();
+                        PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                writeBatch(batch);
+                batch.clear();
+            }
+        } finally {
+            // Left on an interrupt or an Error: the writes already polled or still queued would never be committed
+            SQLException stopped = new SQLException("The group commit writer has stopped");
+            for (PendingWrite write : batch) {
+                write.result.completeExceptionally(stopped);
+            }
+            PendingWrite write;
+            while ((write = queue.poll()) != null) {
+                write.result.completeExceptionally(stopped);
+            }
+        }
+    }
+
+    /**
+     * Writes a batch, one commit per run of consecutive writes of the same kind so the arrival order holds.
+     */
+    private void writeBatch(List<PendingWrite> batch) {
+        largestBatch = Math.max(largestBatch, batch.size());
+        int start = 0;
+        while (start < batch.size()) {
+            boolean inserts = batch.get(start).isInsert();
+            int end = start;
+            while (end < batch.size() && batch.get(end).isInsert() == inserts) {
+                end++;
+            }
+            List<PendingWrite> run = batch.subList(start, end);
+            try {
+                if (inserts) {
+                    insert(run);
+                } else {
+                    storeVerificationCodes(run);
+                }
+            } catch (SQLException | RuntimeException e) {
+                failedRows.add(run.size());
+                for (PendingWrite write : run) {
+                    write.result.completeExceptionally(e);
+                }
+            }
+            commits.increment();
+            rows.add(run.size());
+            start = end;
+        }
+    }
+
+    private void insert(List<PendingWrite> run) throws SQLException {
+        List<User> users = new ArrayList<>(run.size());
+        List<String> verificationCodes = new ArrayList<>(run.size());
+        for (PendingWrite write : run) {
+            users.add(write.user);
+            verificationCodes.add(write.verificationCode);
+        }
+        List<SQLException> errors = store.insertUsers(users, verificationCodes);
+        for (int i = 0; i < run.size(); i++) {
+            if (errors.get(i) == null) {
+                run.get(i).result.complete(null);
+            } else {
+                failedRows.increment();
+                run.get(i).result.completeExceptionally(errors.get(i));
+            }
+        }
+    }
+
+    private void storeVerificationCodes(List<PendingWrite> run) throws SQLException {
+        List<String> verificationCodes = new ArrayList<>(run.size());
+        List<String> emails = new ArrayList<>(run.size());
+        for (PendingWrite write : run) {
+            verificationCodes.add(write.verificationCode);
+            emails.add(write.email);
+        }
+        store.storeVerificationCodesInDatabase(verificationCodes, emails);
+        for (PendingWrite write : run) {
+            write.result.complete(null);
+        }
+    }
+
+    @Override
+    public List<String> saveUsersToDatabase(List<User> users, List<String> verificationCodes) throws SQLException {
+        return store.saveUsersToDatabase(users, verificationCodes);
+    }
+
+    @Override
+    public List<SQLException> insertUsers(List<User> users, List<String> verificationCodes) throws SQLException {
+        return store.insertUsers(users, verificationCodes);
+    }
+
+    @Override
+    public boolean verify(String email, String verificationCode) throws SQLException {
+        return store.verify(email, verificationCode);
+    }
+
+    @Override
+    public String login(String email, String password) throws SQLException {
+        return store.login(email, password);
+    }
+
+    @Override
+    public String getHashedPasswordForUser(String email) throws SQLException {
+        return store.getHashedPasswordForUser(email);
+    }
+
+    @Override
+    public CredentialCache.Credentials getCredentials(String email) throws SQLException {
+        return store.getCredentials(email);
+    }
+
+    @Override
+    public boolean updatePassword(String email, String hashedPassword) throws SQLException {
+        return store.updatePassword(email, hashedPassword);
+    }
+
+    @Override
+    public boolean replacePassword(String email, String currentHash, String newHash) throws SQLException {
+        return store.replacePassword(email, currentHash, newHash);
+    }
+
+    /**
+     * @return The wrapped store.
+     */
+    public UserStore getStore() {
+        return store;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(store.stats());
+        Map<String, Object> groupCommit = new LinkedHashMap<>();
+        long rowCount = rows.sum();
+        long commitCount = commits.sum();
+        groupCommit.put("maxBatch", maxBatch);
+        groupCommit.put("maxDelayMillis", TimeUnit.NANOSECONDS.toMillis(maxDelayNanos));
+        groupCommit.put("queued", queue.size());
+        groupCommit.put("rows", rowCount);
+        groupCommit.put("commits", commitCount);
+        groupCommit.put("averageBatchSize", commitCount == 0 ? 0 : (double) rowCount / commitCount);
+        groupCommit.put("largestBatch", largestBatch);
+        groupCommit.put("failedRows", failedRows.sum());
+        stats.put("groupCommit", groupCommit);
+        return stats;
+    }
+
+    /**
+     * Commits the queued writes and stops the writer thread. The wrapped store is not closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // A write queued while closing, after the writer left, is not left waiting forever
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            write.result.completeExceptionally(new SQLException("The user store is closed"));
+        }
+    }
+}
@@ -0,0 +1,869 @@
+package org.example.repository;
+
+import org.example.model.User;
+import org.example.utils.Hashing;
+import org.example.utils.PasswordHashingPool;
+import org.example.utils.ServerExecutors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+import static org.example.utils.SessionManager.storeSessionToken;
+
+/**
+ * {@link UserStore} backend without any SQL engine, for edge nodes.
+ * <p>
+ * Every change of a user appends the whole user record to a log file; the latest record of an email wins.
+ * An open-addressing hash index from email to log offset lives in a memory-mapped file, and the log itself is mapped
+ * read-only, so a lookup is a few memory reads. The log is mapped again only every logstore.remap.bytes of appends,
+ * the records appended in between are also kept in a heap buffer and read from there.
+ * The index header records up to which log offset the index is known
+ * to be complete on disk: a restart maps the index and only replays the log written after that offset, and a record
+ * torn by a crash at the end of the log is detected by its checksum and cut off.
+ * <p>
+ * Superseded records, such as the unverified version of a verified user, stay in the log until it is compacted:
+ * once less than half of the log is live, a background thread copies the live records of a snapshot of the index
+ * into a new generation of log and index files. Only the switch to the new generation holds the write lock,
+ * it copies over the records appended during the compaction and deletes the old generation.
+ * The log of one generation is limited to 2 GB by the mapping.
+ */
+public class LogStructuredUserStore implements UserStore, AutoCloseable {
+
+    // Version 2 hashes with the full finalizer of Hashing, an index of version 1 is rebuilt from the log
+    private static final long INDEX_MAGIC = 0x5553455249445832L; // "USERIDX2"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double MAX_LOAD = 0.7;
+    private static final int CHECKPOINT_EVERY_APPENDS = 1000;
+
+    private static final boolean FSYNC = Boolean.parseBoolean(System.getProperty("logstore.fsync", "true"));
+    private static final long COMPACT_MIN_BYTES = Long.getLong("logstore.compact.min.bytes", 1024 * 1024);
+    private static final int REMAP_BYTES = Integer.getInteger("logstore.remap.bytes", 1024 * 1024);
+
+    /**
+     * A user as stored in one log record.
+     */
+    static class StoredUser {
+        private final String name;
+        private final String email;
+        private final String password;
+        private final boolean verified;
+        private final String verificationCode;
+
+        StoredUser(String name, String email, String password, boolean verified, String verificationCode) {
+            this.name = name;
+            this.email = email;
+            this.password = password;
+            this.verified = verified;
+            this.verificationCode = verificationCode;
+        }
+    }
+
+    private final Path directory;
+    private final boolean fsync;
+    private final long compactMinBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ByteBuffer tail = ByteBuffer.allocate(Math.max(REMAP_BYTES, RECORD_HEADER_BYTES + MAX_RECORD_BYTES));
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private final ExecutorService compactor =
+            Executors.newSingleThreadExecutor(ServerExecutors.namedThreadFactory("log-compaction-"));
+    private final LongAdder compactionFailures = new LongAdder();
+
+    private long generation;
+    private FileChannel logChannel;
+    private MappedByteBuffer logMap;
+    private long mappedEnd;
+    private long logEnd;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int size;
+    private long liveBytes;
+    private int appendsSinceCheckpoint;
+    private long recoveredRecords;
+    private long truncatedBytes;
+    private long compactions;
+    private volatile boolean closed;
+
+    /**
+     * Opens the store in a directory, creating it if needed and recovering from an unclean shutdown.
+     *
+     * @param directory The directory of the log and index files.
+     */
+    public LogStructuredUserStore(Path directory) {
+        this(directory, FSYNC, COMPACT_MIN_BYTES);
+    }
+
+    LogStructuredUserStore(Path directory, boolean fsync, long compactMinBytes) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.compactMinBytes = compactMinBytes;
+        try {
+            Files.createDirectories(directory);
+            Path current = directory.resolve("CURRENT");
+            generation = Files.exists(current) ? Long.parseLong(Files.readString(current).trim()) : 1;
+            recoveredRecords = openGeneration();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the user store in " + directory, e);
+        }
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve("users-" + generation + ".log");
+    }
+
+    private Path indexPath(long generation) {
+        return directory.resolve("users-" + generation + ".idx");
+    }
+
+    /**
+     * Maps the index of the current generation and replays the part of the log it does not cover yet.
+     *
+     * @return The number of records replayed.
+     */
+    private long openGeneration() throws IOException {
+        logChannel = FileChannel.open(logPath(generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logEnd = logChannel.size();
+        remapLog();
+
+        Path indexPath = indexPath(generation);
+        boolean reusable = Files.exists(indexPath) && Files.size(indexPath) >= HEADER_BYTES;
+        indexChannel = FileChannel.open(indexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long indexedUpTo = 0;
+        if (reusable) {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+            reusable = index.getLong(0) == INDEX_MAGIC
+                    && indexChannel.size() == HEADER_BYTES + (long) index.getInt(8) * SLOT_BYTES;
+        }
+        if (reusable) {
+            capacity = index.getInt(8);
+            indexedUpTo = Math.min(index.getLong(16), logEnd);
+            liveBytes = Math.min(index.getLong(24), indexedUpTo);
+        }
+        truncateTornTail(indexedUpTo);
+        // Slots written after the last checkpoint may have reached the disk too, so they are counted again
+        reusable = reusable && countSlots();
+        if (!reusable) {
+            // No usable index, it is rebuilt from the whole log
+            createIndex(INITIAL_CAPACITY);
+            indexedUpTo = 0;
+        }
+        long replayed = replay(indexedUpTo);
+        checkpoint();
+        return replayed;
+    }
+
+    /**
+     * Counts the used slots of a mapped index.
+     *
+     * @return false if a slot points past the end of the log, the index must then be rebuilt.
+     */
+    private boolean countSlots() {
+        size = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (index.getLong(slotPosition(slot)) != 0) {
+                if (index.getLong(slotPosition(slot) + 8) >= logEnd) {
+                    return false;
+                }
+                size++;
+            }
+        }
+        return true;
+    }
+
+    private void createIndex(int newCapacity) throws IOException {
+        indexChannel.truncate(0);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+        index.putLong(0, INDEX_MAGIC);
+        index.putInt(8, newCapacity);
+        capacity = newCapacity;
+        size = 0;
+        liveBytes = 0;
+        writeHeader(0);
+    }
+
+    private void writeHeader(long indexedUpTo) {
+        index.putInt(12, size);
+        index.putLong(16, indexedUpTo);
+        index.putLong(24, liveBytes);
+    }
+
+    /**
+     * Checks the records from an offset to the end of the log and cuts off the first incomplete or corrupt one
+     * with everything after it, which is what a crash in the middle of an append leaves behind.
+     */
+    private void truncateTornTail(long from) throws IOException {
+        long position = from;
+        while (position < logEnd) {
+            int length = recordLength(position);
+            if (length < 0) {
+                truncatedBytes += logEnd - position;
+                logChannel.truncate(position);
+                logChannel.force(true);
+                logEnd = position;
+                remapLog();
+                return;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+    }
+
+    /**
+     * Indexes the records from an offset to the end of the log.
+     *
+     * @return The number of records indexed.
+     */
+    private long replay(long from) throws IOException {
+        long replayed = 0;
+        long position = from;
+        while (position < logEnd) {
+            StoredUser user = decode(position);
+            upsert(user.email, position);
+            replayed++;
+            position += recordSize(position);
+        }
+        return replayed;
+    }
+
+    /**
+     * @return The payload length of the record at the position, or -1 if the record is incomplete or corrupt.
+     */
+    private int recordLength(long position) {
+        if (position + RECORD_HEADER_BYTES > logEnd) {
+            return -1;
+        }
+        int length = logMap.getInt((int) position);
+        if (length <= 0 || length > MAX_RECORD_BYTES || position + RECORD_HEADER_BYTES + length > logEnd) {
+            return -1;
+        }
+        ByteBuffer payload = logMap.duplicate();
+        payload.position((int) position + RECORD_HEADER_BYTES).limit((int) position + RECORD_HEADER_BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == logMap.getInt((int) position + 4) ? length : -1;
+    }
+
+    private void remapLog() throws IOException {
+        if (logEnd > Integer.MAX_VALUE) {
+            throw new IOException("The user log is larger than 2 GB, it must be compacted");
+        }
+        logMap = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, logEnd);
+        mappedEnd = logEnd;
+        tail.clear();
+    }
+
+    /**
+     * Makes a record just written at the end of the log readable, from the tail buffer or,
+     * once the buffer is full, by mapping the log again up to its end.
+     */
+    private void addToTail(ByteBuffer record) throws IOException {
+        record.rewind();
+        if (record.remaining() > tail.remaining()) {
+            remapLog();
+        } else {
+            tail.put(record);
+        }
+    }
+
+    /**
+     * @return The record at the position, header included, from the mapping or from the tail buffer.
+     */
+    private ByteBuffer recordAt(long position) {
+        ByteBuffer record;
+        int start;
+        if (position < mappedEnd) {
+            record = logMap.duplicate();
+            start = (int) position;
+        } else {
+            record = tail.duplicate();
+            start = (int) (position - mappedEnd);
+        }
+        record.position(start).limit(start + recordSize(position));
+        return record.slice();
+    }
+
+    private static ByteBuffer encode(StoredUser user) {
+        byte[][] fields = {bytes(user.name), bytes(user.email), bytes(user.password), bytes(user.verificationCode)};
+        int length = 1;
+        for (byte[] field : fields) {
+            length += 2 + (field == null ? 0 : field.length);
+        }
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("User record too large");
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        record.putInt(length).putInt(0);
+        record.put((byte) (user.verified ? 1 : 0));
+        for (byte[] field : fields) {
+            if (field == null) {
+                record.putShort((short) -1);
+            } else {
+                record.putShort((short) field.length).put(field);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private StoredUser decode(long position) {
+        ByteBuffer record = recordAt(position);
+        record.position(RECORD_HEADER_BYTES);
+        boolean verified = record.get() == 1;
+        String name = readString(record);
+        String email = readString(record);
+        String password = readString(record);
+        String verificationCode = readString(record);
+        return new StoredUser(name, email, password, verified, verificationCode);
+    }
+
+    private static String readString(ByteBuffer record) {
+        short length = record.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        record.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private int recordSize(long position) {
+        int length = position < mappedEnd ? logMap.getInt((int) position) : tail.getInt((int) (position - mappedEnd));
+        return RECORD_HEADER_BYTES + length;
+    }
+
+    /**
+     * The hash of the email, 0 is reserved for empty slots.
+     */
+    private static long hash(String email) {
+        long hash = Hashing.hash64(email);
+        return hash == 0 ? 1 : hash;
+    }
+
+    private int slotPosition(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * Finds the slot of an email.
+     *
+     * @return The slot holding the email, or -(free slot + 1) if the email is not indexed.
+     */
+    private int findSlot(String email, long hash) {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        while (true) {
+            long slotHash = index.getLong(slotPosition(slot));
+            if (slotHash == 0) {
+                return -(slot + 1);
+            }
+            if (slotHash == hash && email.equals(decode(index.getLong(slotPosition(slot) + 8)).email)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Points the index entry of an email at a record, unless it already points at a newer one.
+     */
+    private void upsert(String email, long offset) throws IOException {
+        if (size + 1 > capacity * MAX_LOAD) {
+            resizeIndex(capacity * 2);
+        }
+        long hash = hash(email);
+        int slot = findSlot(email, hash);
+        if (slot >= 0) {
+            long current = index.getLong(slotPosition(slot) + 8);
+            if (offset > current) {
+                liveBytes += recordSize(offset) - recordSize(current);
+                index.putLong(slotPosition(slot) + 8, offset);
+            }
+        } else {
+            slot = -slot - 1;
+            index.putLong(slotPosition(slot) + 8, offset);
+            index.putLong(slotPosition(slot), hash);
+            size++;
+            liveBytes += recordSize(offset);
+        }
+    }
+
+    /**
+     * Rehashes the index into a bigger file, written next to the old one and then moved over it.
+     */
+    private void resizeIndex(int newCapacity) throws IOException {
+        Path temporary = directory.resolve(indexPath(generation).getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer resized = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+            int mask = newCapacity - 1;
+            for (int slot = 0; slot < capacity; slot++) {
+                long hash = index.getLong(slotPosition(slot));
+                if (hash == 0) {
+                    continue;
+                }
+                int target = (int) hash & mask;
+                while (resized.getLong(HEADER_BYTES + target * SLOT_BYTES) != 0) {
+                    target = (target + 1) & mask;
+                }
+                resized.putLong(HEADER_BYTES + target * SLOT_BYTES + 8, index.getLong(slotPosition(slot) + 8));
+                resized.putLong(HEADER_BYTES + target * SLOT_BYTES, hash);
+            }
+            resized.putLong(0, INDEX_MAGIC);
+            resized.putInt(8, newCapacity);
+            resized.putInt(12, size);
+            // The entries after the last checkpoint may not be on disk yet, so they are replayed after a crash
+            resized.putLong(16, index.getLong(16));
+            resized.putLong(24, liveBytes);
+            resized.force();
+        }
+        indexChannel.close();
+        Files.move(temporary, indexPath(generation), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        indexChannel = FileChannel.open(indexPath(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+        capacity = newCapacity;
+    }
+
+    /**
+     * Flushes the index and records that it covers the whole log, so a restart has nothing to replay.
+     */
+    private void checkpoint() {
+        index.force();
+        writeHeader(logEnd);
+        index.force();
+        appendsSinceCheckpoint = 0;
+    }
+
+    /**
+     * Appends a record and indexes it. The record is on disk before the index points at it.
+     */
+    private void append(StoredUser user) throws IOException {
+        ByteBuffer record = encode(user);
+        long offset = logEnd;
+        while (record.hasRemaining()) {
+            logChannel.write(record, offset + record.position());
+        }
+        if (fsync) {
+            logChannel.force(false);
+        }
+        logEnd = offset + record.limit();
+        addToTail(record);
+        upsert(user.email, offset);
+        if (++appendsSinceCheckpoint >= CHECKPOINT_EVERY_APPENDS) {
+            checkpoint();
+        }
+        if (needsCompaction()) {
+            scheduleCompaction();
+        }
+    }
+
+    private boolean needsCompaction() {
+        return logEnd >= compactMinBytes && liveBytes * 2 < logEnd;
+    }
+
+    /**
+     * Queues a compaction on the background thread, unless one is already queued or running.
+     * The appends made while it runs do not queue another, so the threshold is checked again once it is done.
+     */
+    private void scheduleCompaction() {
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compactNow();
+                } catch (IOException | RuntimeException e) {
+                    // The old generation stays in use, the next append over the threshold tries again
+                    compactionFailures.increment();
+                    return;
+                } finally {
+                    compactionQueued.set(false);
+                }
+                // Under the lock, so close cannot shut the compactor down in between
+                lock.readLock().lock();
+                try {
+                    if (!closed && needsCompaction()) {
+                        scheduleCompaction();
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+            });
+        }
+    }
+
+    /**
+     * Copies the live records into a new generation of log and index files and deletes the old generation.
+     * Reads and writes carry on while the live records are copied.
+     *
+     * @throws IOException if the new generation cannot be written, the old one then stays in use.
+     */
+    public void compactNow() throws IOException {
+        synchronized (compactionLock) {
+            compact();
+        }
+    }
+
+    private void compact() throws IOException {
+        // A snapshot of the index entries, and a mapping of the log they point into, which is only ever appended to
+        long[] hashes;
+        long[] offsets;
+        MappedByteBuffer snapshot;
+        long snapshotEnd;
+        long newGeneration;
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            hashes = new long[size];
+            offsets = new long[size];
+            int entry = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                long hash = index.getLong(slotPosition(slot));
+                if (hash != 0) {
+                    hashes[entry] = hash;
+                    offsets[entry++] = index.getLong(slotPosition(slot) + 8);
+                }
+            }
+            snapshotEnd = logEnd;
+            snapshot = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, snapshotEnd);
+            newGeneration = generation + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int newCapacity = INITIAL_CAPACITY;
+        while (hashes.length + 1 > newCapacity * MAX_LOAD) {
+            newCapacity *= 2;
+        }
+        long newEnd = 0;
+        try (FileChannel newLog = FileChannel.open(logPath(newGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel newIndexChannel = FileChannel.open(indexPath(newGeneration), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer newIndex = newIndexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+            int mask = newCapacity - 1;
+            for (int entry = 0; entry < hashes.length && !closed; entry++) {
+                int offset = (int) offsets[entry];
+                ByteBuffer record = snapshot.duplicate();
+                record.position(offset).limit(offset + RECORD_HEADER_BYTES + snapshot.getInt(offset));
+                long newOffset = newEnd;
+                while (record.hasRemaining()) {
+                    newEnd += newLog.write(record, newEnd);
+                }
+                int target = (int) hashes[entry] & mask;
+                while (newIndex.getLong(HEADER_BYTES + target * SLOT_BYTES) != 0) {
+                    target = (target + 1) & mask;
+                }
+                newIndex.putLong(HEADER_BYTES + target * SLOT_BYTES + 8, newOffset);
+                newIndex.putLong(HEADER_BYTES + target * SLOT_BYTES, hashes[entry]);
+            }
+            newIndex.putLong(0, INDEX_MAGIC);
+            newIndex.putInt(8, newCapacity);
+            newIndex.putInt(12, hashes.length);
+            newIndex.putLong(16, newEnd);
+            newIndex.putLong(24, newEnd);
+            newIndex.force();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                Files.deleteIfExists(logPath(newGeneration));
+                Files.deleteIfExists(indexPath(newGeneration));
+                return;
+            }
+            // The records appended during the copy are copied as they are, the new index is caught up with them
+            // when the new generation is opened
+            try (FileChannel newLog = FileChannel.open(logPath(newGeneration), StandardOpenOption.WRITE)) {
+                long position = snapshotEnd;
+                newLog.position(newEnd);
+                while (position < logEnd) {
+                    position += logChannel.transferTo(position, logEnd - position, newLog);
+                }
+                newLog.force(true);
+            }
+
+            // Switching CURRENT is the commit point, a crash before it keeps the old generation
+            Path temporary = directory.resolve("CURRENT.tmp");
+            Files.writeString(temporary, Long.toString(newGeneration));
+            Files.move(temporary, directory.resolve("CURRENT"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+            long oldGeneration = generation;
+            logChannel.close();
+            indexChannel.close();
+            generation = newGeneration;
+            openGeneration();
+            Files.deleteIfExists(logPath(oldGeneration));
+            Files.deleteIfExists(indexPath(oldGeneration));
+            compactions++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private StoredUser find(String email) {
+        int slot = findSlot(email, hash(email));
+        return slot < 0 ? null : decode(index.getLong(slotPosition(slot) + 8));
+    }
+
+    private StoredUser read(String email) {
+        lock.readLock().lock();
+        try {
+            return find(email);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveUserToDatabase(String username, String email, String password, String verificationCode)
+            throws SQLException {
+        lock.writeLock().lock();
+        try {
+            if (find(email) != null) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate email " + email);
+            }
+            append(new StoredUser(username, email, password, false, verificationCode));
+        } catch (IOException e) {
+            throw new SQLException("Cannot append to the user log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> saveUsersToDatabase(List<User> users, List<String> verificationCodes) throws SQLException {
+        List<String> errors = new ArrayList<>(users.size());
+        for (SQLException error : insertUsers(users, verificationCodes)) {
+            errors.add(error == null ? null : error.getMessage());
+        }
+        return errors;
+    }
+
+    /**
+     * Appends several users with a single flush to disk at the end, none of them is indexed before the flush.
+     */
+    @Override
+    public List<SQLException> insertUsers(List<User> users, List<String> verificationCodes) throws SQLException {
+        List<SQLException> errors = new ArrayList<>(users.size());
+        List<StoredUser> accepted = new ArrayList<>(users.size());
+        lock.writeLock().lock();
+        try {
+            Set<String> emails = new HashSet<>();
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                if (find(user.getEmail()) != null || !emails.add(user.getEmail())) {
+                    errors.add(new SQLIntegrityConstraintViolationException("Duplicate email " + user.getEmail()));
+                } else {
+                    errors.add(null);
+                    accepted.add(new StoredUser(user.getName(), user.getEmail(), user.getPassword(), false,
+                            verificationCodes.get(i)));
+                }
+            }
+            if (accepted.isEmpty()) {
+                return errors;
+            }
+            // The records are written first and indexed after the flush, so a failed flush leaves them unreachable
+            long start = logEnd;
+            for (StoredUser user : accepted) {
+                ByteBuffer record = encode(user);
+                long offset = logEnd;
+                while (record.hasRemaining()) {
+                    logChannel.write(record, offset + record.position());
+                }
+                logEnd = offset + record.limit();
+                addToTail(record);
+            }
+            if (fsync) {
+                logChannel.force(false);
+            }
+            for (long offset = start; offset < logEnd; offset += recordSize(offset)) {
+                upsert(decode(offset).email, offset);
+            }
+            appendsSinceCheckpoint += accepted.size();
+            if (appendsSinceCheckpoint >= CHECKPOINT_EVERY_APPENDS) {
+                checkpoint();
+            }
+            return errors;
+        } catch (IOException e) {
+            throw new SQLException("Cannot append to the user log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void storeVerificationCodeInDatabase(String verificationCode, String email) throws SQLException {
+        rewrite(email, user -> new StoredUser(user.name, user.email, user.password, user.verified, verificationCode));
+    }
+
+    @Override
+    public boolean verify(String email, String verificationCode) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            StoredUser user = find(email);
+            if (user == null || user.verificationCode == null || !user.verificationCode.equals(verificationCode)) {
+                return false;
+            }
+            append(new StoredUser(user.name, user.email, user.password, true, null));
+            return true;
+        } catch (IOException e) {
+            throw new SQLException("Cannot append to the user log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updatePassword(String email, String hashedPassword) throws SQLException {
+        return rewrite(email, user -> new StoredUser(user.name, user.email, hashedPassword, user.verified,
+                user.verificationCode));
+    }
+
+    @Override
+    public boolean replacePassword(String email, String currentHash, String newHash) throws SQLException {
+        // Checked under the write lock, so no update can slip in between the check and the append
+        return rewrite(email, user -> !user.password.equals(currentHash) ? null
+                : new StoredUser(user.name, user.email, newHash, user.verified, user.verificationCode));
+    }
+
+    /**
+     * Appends a changed copy of a user, the change returning null leaves the user as it is.
+     */
+    private boolean rewrite(String email, UnaryOperator<StoredUser> change) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            StoredUser user = find(email);
+            if (user == null) {
+                return false;
+            }
+            StoredUser changed = change.apply(user);
+            if (changed == null) {
+                return false;
+            }
+            append(changed);
+            return true;
+        } catch (IOException e) {
+            throw new SQLException("Cannot append to the user log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String login(String email, String password) {
+        StoredUser user = read(email);
+        // Checking if the password is correct and the account is verified
+        if (user != null && user.verified && PasswordHashingPool.getInstance().check(password, user.password)) {
+            String sessionToken = UUID.randomUUID().toString();
+            storeSessionToken(email, sessionToken);
+            PasswordRehasher.getInstance().rehashIfOutdated(this, email, password, user.password);
+            return sessionToken;
+        }
+        return null;
+    }
+
+    @Override
+    public String getHashedPasswordForUser(String email) {
+        StoredUser user = read(email);
+        return user == null ? null : user.password;
+    }
+
+    @Override
+    public CredentialCache.Credentials getCredentials(String email) {
+        StoredUser user = read(email);
+        return user == null ? null : new CredentialCache.Credentials(user.password, user.verified);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("backend", "log");
+            stats.put("generation", generation);
+            stats.put("users", size);
+            stats.put("logBytes", logEnd);
+            stats.put("mappedBytes", mappedEnd);
+            stats.put("liveBytes", liveBytes);
+            stats.put("indexCapacity", capacity);
+            stats.put("indexBytes", HEADER_BYTES + (long) capacity * SLOT_BYTES);
+            stats.put("recoveredRecords", recoveredRecords);
+            stats.put("truncatedBytes", truncatedBytes);
+            stats.put("compactions", compactions);
+            stats.put("compactionFailures", compactionFailures.sum());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a checkpoint, so the next start has nothing to replay, and closes the files.
+     * A compaction already running is abandoned and its files deleted before this returns, one queued never starts.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            compactor.shutdown();
+            checkpoint();
+            logChannel.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
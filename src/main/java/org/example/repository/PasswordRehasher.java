@@ -0,0 +1,106 @@
+package org.example.repository;
+
+import org.example.utils.BcryptCostCalibrator;
+import org.example.utils.PasswordHashingPool;
+import org.example.utils.ServerExecutors;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Upgrades password hashes made with a lower cost than the one {@link BcryptCostCalibrator} picked,
+ * using the plain text password of a successful login. The login does not wait for it:
+ * the new hash is made on the bcrypt pool and stored on a blocking I/O thread.
+ * <p>
+ * Rehashing is opportunistic. It is skipped while the bcrypt pool has a queue, so it never delays
+ * interactive requests, and a skipped or failed rehash is simply retried on the next login.
+ */
+public class PasswordRehasher {
+
+    private static PasswordRehasher passwordRehasher;
+
+    private final PasswordHashingPool pool;
+    private final BcryptCostCalibrator calibrator;
+    private final Executor writer;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final LongAdder rehashed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Singleton pattern to ensure only one instance of PasswordRehasher exists.
+     *
+     * @return The single instance of PasswordRehasher.
+     */
+    public static synchronized PasswordRehasher getInstance() {
+        if (passwordRehasher == null) {
+            passwordRehasher = new PasswordRehasher(PasswordHashingPool.getInstance(),
+                    BcryptCostCalibrator.getInstance(), ServerExecutors.newBlockingIoExecutor());
+        }
+        return passwordRehasher;
+    }
+
+    PasswordRehasher(PasswordHashingPool pool, BcryptCostCalibrator calibrator, Executor writer) {
+        this.pool = pool;
+        this.calibrator = calibrator;
+        this.writer = writer;
+    }
+
+    /**
+     * Replaces the stored hash in the background if its cost is outdated, only called after the password matched.
+     *
+     * @param store The store holding the user.
+     * @param email The email of the user.
+     * @param password The plain text password that matched the stored hash.
+     * @param storedHash The stored hash, the replacement is dropped if it changes in the meantime.
+     */
+    public void rehashIfOutdated(UserStore store, String email, String password, String storedHash) {
+        if (!calibrator.needsRehash(storedHash)) {
+            return;
+        }
+        // One rehash per user at a time, and only with spare bcrypt capacity
+        if (pool.getQueueDepth() > 0 || !inFlight.add(email)) {
+            skipped.increment();
+            return;
+        }
+        pool.hashAsync(password)
+                .thenAcceptAsync(newHash -> {
+                    try {
+                        if (store.replacePassword(email, storedHash, newHash)) {
+                            rehashed.increment();
+                        } else {
+                            skipped.increment();
+                        }
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                }, writer)
+                .whenComplete((ignored, error) -> {
+                    inFlight.remove(email);
+                    if (error != null) {
+                        failed.increment();
+                    }
+                });
+    }
+
+    /**
+     * Returns a snapshot of the rehash statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", calibrator.getCost());
+        stats.put("inFlight", inFlight.size());
+        stats.put("rehashed", rehashed.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+}
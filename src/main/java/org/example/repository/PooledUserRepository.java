@@ -0,0 +1,60 @@
+package org.example.repository;
+
+import org.example.utils.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * {@link UserRepository} with a connection pool of its own instead of the shared one of
+ * {@link org.example.utils.DatabaseConnection}, for a database that is not the main MySQL server:
+ * an embedded database or one shard of the users table. There are no replicas, every read goes to the pool.
+ */
+public class PooledUserRepository extends UserRepository implements AutoCloseable {
+
+    private final String backendName;
+    private final ConnectionPool connectionPool;
+
+    /**
+     * @param backendName The name of the backend, as reported in the statistics.
+     * @param connectionPool The pool of the database holding the users table, closed with the repository.
+     */
+    public PooledUserRepository(String backendName, ConnectionPool connectionPool) {
+        this.backendName = backendName;
+        this.connectionPool = connectionPool;
+    }
+
+    @Override
+    protected Connection getConnection() throws SQLException {
+        return connectionPool.getConnection();
+    }
+
+    @Override
+    protected Connection getReadConnection(String email) throws SQLException {
+        return connectionPool.getConnection();
+    }
+
+    @Override
+    protected void recordWrite(String email) {
+        // A single database, every read sees every write
+    }
+
+    @Override
+    protected String getBackendName() {
+        return backendName;
+    }
+
+    @Override
+    protected Map<String, Object> connectionStats() {
+        return connectionPool.stats();
+    }
+
+    /**
+     * Closes the connections.
+     */
+    @Override
+    public void close() {
+        connectionPool.close();
+    }
+}
@@ -0,0 +1,228 @@
+package org.example.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates and upgrades the database schema at startup.
+ * Every migration has a version, the applied versions are recorded in the schema_version table,
+ * so each migration runs exactly once per database and in order. The statements are plain SQL
+ * understood by both MySQL and H2.
+ * <p>
+ * After migrating, the queries on the login, verification and registration paths can be checked with EXPLAIN,
+ * to catch a query that would scan the whole users table.
+ */
+public class SchemaMigrator {
+
+    /**
+     * One versioned schema change.
+     */
+    static class Migration {
+        private final int version;
+        private final String description;
+        private final List<String> statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = List.of(statements);
+        }
+
+        int getVersion() {
+            return version;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create the users table",
+                    "CREATE TABLE IF NOT EXISTS users (" +
+                            "name VARCHAR(255), " +
+                            "email VARCHAR(255) NOT NULL, " +
+                            "password VARCHAR(255), " +
+                            "verification_status BOOLEAN DEFAULT FALSE NOT NULL, " +
+                            "verification_code VARCHAR(255))"),
+            // The application stores and looks up emails in lower case from now on
+            new Migration(2, "Normalize existing emails to lower case",
+                    "UPDATE users SET email = LOWER(TRIM(email)) WHERE email <> LOWER(TRIM(email))"),
+            new Migration(3, "Unique index on email",
+                    "CREATE UNIQUE INDEX ux_users_email ON users (email)"),
+            // Login reads only these columns, so it is answered from the index without touching the rows
+            new Migration(4, "Covering index for login",
+                    "CREATE INDEX ix_users_login ON users (email, password, verification_status)"),
+            // Written on the primary and read on the replicas to measure their lag, see ReplicaRouter
+            new Migration(5, "Replication heartbeat",
+                    "CREATE TABLE IF NOT EXISTS replication_heartbeat (" +
+                            "id INT NOT NULL PRIMARY KEY, " +
+                            "beat_millis BIGINT NOT NULL)",
+                    "INSERT INTO replication_heartbeat (id, beat_millis) VALUES (1, 0)")
+    );
+
+    /**
+     * The statements {@link UserRepository} runs on the hot paths, exactly as it issues them,
+     * as checked by {@link #findTableScans(Connection)}.
+     */
+    static final List<String> HOT_QUERIES = List.of(
+            // Login and the credential lookup
+            "SELECT password, verification_status FROM users WHERE email = ?",
+            "SELECT password FROM users WHERE email = ?",
+            // Registration stores the verification code
+            "UPDATE users SET verification_code = ? WHERE email = ?",
+            // Verification
+            "UPDATE users SET verification_status = TRUE, verification_code = NULL "
+                    + "WHERE email = ? AND verification_code = ?",
+            // Rehashing an outdated password after login
+            "UPDATE users SET password = ? WHERE email = ? AND password = ?"
+    );
+
+    private static SchemaMigrator schemaMigrator;
+
+    private final List<Migration> migrations;
+
+    /**
+     * Singleton pattern to ensure only one instance of SchemaMigrator exists.
+     *
+     * @return The single instance of SchemaMigrator.
+     */
+    public static synchronized SchemaMigrator getInstance() {
+        if (schemaMigrator == null) {
+            schemaMigrator = new SchemaMigrator(MIGRATIONS);
+        }
+        return schemaMigrator;
+    }
+
+    SchemaMigrator(List<Migration> migrations) {
+        this.migrations = migrations;
+    }
+
+    /**
+     * Applies the pending migrations and warns about hot queries scanning the table.
+     *
+     * @param connection The connection to migrate.
+     * @throws SQLException If a migration fails, the schema is then left at the last successful version.
+     */
+    public void migrateAndCheck(Connection connection) throws SQLException {
+        int version = migrate(connection);
+        System.out.println("Database schema is at version " + version);
+        for (String query : findTableScans(connection)) {
+            System.err.println("Warning: query scans the whole users table: " + query);
+        }
+    }
+
+    /**
+     * Applies the pending migrations, each one in its own transaction.
+     * Note that MySQL commits DDL statements implicitly, so only the version bookkeeping is transactional there.
+     *
+     * @param connection The connection to migrate.
+     * @return The schema version after migrating.
+     * @throws SQLException If a migration fails, the schema is then left at the last successful version.
+     */
+    public int migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT NOT NULL PRIMARY KEY, " +
+                    "description VARCHAR(255), " +
+                    "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+        int current = currentVersion(connection);
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+            for (Migration migration : migrations) {
+                if (migration.version > current) {
+                    apply(connection, migration);
+                    current = migration.version;
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return current;
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.statements) {
+                statement.execute(sql);
+            }
+            try (PreparedStatement record = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                record.setInt(1, migration.version);
+                record.setString(2, migration.description);
+                record.executeUpdate();
+            }
+            connection.commit();
+            System.out.println("Applied schema migration V" + migration.version + ": " + migration.description);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Schema migration V" + migration.version + " (" + migration.description
+                    + ") failed: " + e.getMessage(), e.getSQLState(), e);
+        }
+    }
+
+    /**
+     * Returns the highest applied migration version.
+     *
+     * @param connection The connection to the database.
+     * @return The version, 0 if no migration has been applied.
+     * @throws SQLException If a database access error occurs.
+     */
+    public int currentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Runs EXPLAIN on every hot query and returns the ones whose plan reads the whole users table.
+     * A MySQL plan row of access type ALL, or an H2 plan mentioning a table scan, counts as a full scan.
+     *
+     * @param connection The connection to the database.
+     * @return The queries that scan the table, empty if all of them use an index.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<String> findTableScans(Connection connection) throws SQLException {
+        List<String> scans = new ArrayList<>();
+        for (String query : HOT_QUERIES) {
+            if (scansTable(connection, query)) {
+                scans.add(query);
+            }
+        }
+        return scans;
+    }
+
+    private boolean scansTable(Connection connection, String query) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query)) {
+            // Every parameter of the hot statements is a string, the email or a code or hash compared with a column
+            int parameters = (int) query.chars().filter(c -> c == '?').count();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setString(i, "someone@example.com");
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                while (resultSet.next()) {
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        String column = metaData.getColumnLabel(i);
+                        String value = resultSet.getString(i);
+                        if (value == null) {
+                            continue;
+                        }
+                        if (column.equalsIgnoreCase("type") && value.equalsIgnoreCase("ALL")) {
+                            return true; // MySQL
+                        }
+                        if (value.contains("tableScan")) {
+                            return true; // H2
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.repository;
+
+import org.example.utils.Hashing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consistent hash ring mapping normalized emails to shard names.
+ * <p>
+ * Every shard owns a number of points on a 64-bit ring proportional to its weight (virtual nodes),
+ * and an email belongs to the shard owning the first point at or after the hash of the email.
+ * Adding a shard therefore only takes over the emails falling just before its own points,
+ * about 1/N of all emails, and leaves every other email where it is.
+ */
+public class ShardRouter {
+
+    /**
+     * Points per unit of weight, enough for the shards to get within a few percent of their share.
+     */
+    public static final int VIRTUAL_NODES = 160;
+
+    private final Map<String, Integer> weights;
+    private final long[] points;
+    private final String[] owners;
+
+    /**
+     * @param weights The weight of every shard by name, a shard of weight 2 gets twice the emails of weight 1.
+     */
+    public ShardRouter(Map<String, Integer> weights) {
+        this(weights, VIRTUAL_NODES);
+    }
+
+    ShardRouter(Map<String, Integer> weights, int virtualNodes) {
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.weights = new LinkedHashMap<>(weights);
+        List<long[]> ring = new ArrayList<>();
+        List<String> names = new ArrayList<>(weights.keySet());
+        for (int shard = 0; shard < names.size(); shard++) {
+            int nodes = virtualNodes * Math.max(1, weights.get(names.get(shard)));
+            for (int node = 0; node < nodes; node++) {
+                ring.add(new long[]{Hashing.hash64(names.get(shard) + "#" + node), shard});
+            }
+        }
+        ring.sort((a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            points[i] = ring.get(i)[0];
+            owners[i] = names.get((int) ring.get(i)[1]);
+        }
+    }
+
+    /**
+     * Returns the shard owning an email.
+     *
+     * @param email The normalized email.
+     * @return The name of the shard.
+     */
+    public String shardFor(String email) {
+        int index = Arrays.binarySearch(points, Hashing.hash64(email));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        // Past the last point the ring wraps around to the first one
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * @return The names of the shards.
+     */
+    public Set<String> getShards() {
+        return weights.keySet();
+    }
+
+    /**
+     * @return The weight of every shard by name.
+     */
+    public Map<String, Integer> getWeights() {
+        return weights;
+    }
+}
@@ -0,0 +1,399 @@
+package org.example.repository;
+
+import org.example.model.User;
+import org.example.utils.DatabaseConnection;
+import org.example.utils.ServerExecutors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link UserStore} spreading the users table over several databases by email.
+ * <p>
+ * Every email-keyed operation goes to the shard the {@link ShardRouter} assigns to the normalized email,
+ * each shard being a {@link UserRepository} with its own connection pool, credential cache and email filter,
+ * so the shards share nothing and throughput grows with their number.
+ * <p>
+ * The shards are declared in a properties file:
+ * <pre>
+ * shards=a,b
+ * shard.a.url=jdbc:mysql://db-a:3306/user_registration?rewriteBatchedStatements=true
+ * shard.a.user=root
+ * shard.a.password=1234
+ * shard.a.weight=1
+ * </pre>
+ * To reshard, the new layout becomes the configuration and the old one is passed as the previous configuration;
+ * shards are identified by name, so a shard listed in both keeps its rows. A background task then moves every row
+ * whose shard changed while traffic continues: an email whose shard changed is looked up on its new shard first and
+ * on its old shard until its row has moved, and new users always go to their new shard. Moving a row and the
+ * operations on it are serialized by a lock per email, which assumes a single application instance during resharding.
+ */
+public class ShardedUserStore implements UserStore, AutoCloseable {
+
+    private static final int RESHARD_PAGE_SIZE = Integer.getInteger("shards.reshard.page.size", 500);
+    private static final int LOCK_STRIPES = 256;
+
+    /**
+     * An operation on the shard holding an email.
+     */
+    @FunctionalInterface
+    private interface ShardOperation<T> {
+        T apply(UserRepository shard) throws SQLException;
+    }
+
+    private final Map<String, UserRepository> shards;
+    private final ShardRouter router;
+    private volatile ShardRouter previousRouter;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final LongAdder movedUsers = new LongAdder();
+
+    /**
+     * @param shards Every shard of the current and the previous layout by name.
+     * @param router The current layout.
+     * @param previousRouter The layout the rows are moved from, or null if no resharding is going on.
+     */
+    public ShardedUserStore(Map<String, ? extends UserRepository> shards, ShardRouter router,
+                            ShardRouter previousRouter) {
+        this.shards = new LinkedHashMap<>(shards);
+        this.router = router;
+        this.previousRouter = previousRouter;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Creates the store from shard configuration files.
+     *
+     * @param config The current shard layout.
+     * @param previousConfig The layout to move the rows from, or null.
+     * @return The store, with a connection pool per shard.
+     * @throws IllegalArgumentException If a shard has no URL.
+     */
+    public static ShardedUserStore fromConfig(Path config, Path previousConfig) {
+        Map<String, UserRepository> shards = new LinkedHashMap<>();
+        ShardRouter router = createRouter(loadProperties(config), shards);
+        ShardRouter previousRouter = previousConfig == null
+                ? null : createRouter(loadProperties(previousConfig), shards);
+        return new ShardedUserStore(shards, router, previousRouter);
+    }
+
+    private static Properties loadProperties(Path path) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the shard configuration " + path, e);
+        }
+        return properties;
+    }
+
+    private static ShardRouter createRouter(Properties properties, Map<String, UserRepository> shards) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String shard : properties.getProperty("shards", "").split(",")) {
+            String name = shard.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            String url = properties.getProperty("shard." + name + ".url");
+            if (url == null) {
+                throw new IllegalArgumentException("No shard." + name + ".url in the shard configuration");
+            }
+            String user = properties.getProperty("shard." + name + ".user", System.getProperty("db.user", "root"));
+            String password = properties.getProperty("shard." + name + ".password",
+                    System.getProperty("db.password", "1234"));
+            weights.put(name, Integer.parseInt(properties.getProperty("shard." + name + ".weight", "1")));
+            shards.computeIfAbsent(name,
+                    key -> new PooledUserRepository("shard", DatabaseConnection.createPool(url, user, password)));
+        }
+        return new ShardRouter(weights);
+    }
+
+    /**
+     * Opens every shard and starts moving the rows in the background if a previous layout is given.
+     *
+     * @throws SQLException If a shard cannot be opened.
+     */
+    @Override
+    public void open() throws SQLException {
+        for (UserRepository shard : shards.values()) {
+            shard.open();
+        }
+        if (previousRouter != null) {
+            ServerExecutors.namedThreadFactory("resharding-").newThread(() -> {
+                try {
+                    long moved = reshard();
+                    System.out.println("Resharding done, " + moved + " users moved. "
+                            + "The previous shard configuration is no longer needed.");
+                } catch (SQLException e) {
+                    System.err.println("Resharding stopped, it continues after a restart: " + e.getMessage());
+                }
+            }).start();
+        }
+    }
+
+    /**
+     * Moves every row whose shard changed from the previous to the current layout. Moving again after an
+     * interruption is safe, rows already moved are not found on their old shard anymore.
+     *
+     * @return The number of rows moved.
+     * @throws SQLException If a shard cannot be read or written, the remaining rows stay where they are.
+     */
+    public long reshard() throws SQLException {
+        ShardRouter previous = previousRouter;
+        if (previous == null) {
+            return 0;
+        }
+        long moved = 0;
+        for (String name : previous.getShards()) {
+            UserRepository source = shards.get(name);
+            String afterEmail = "";
+            List<UserRow> page;
+            do {
+                page = source.scanUsers(afterEmail, RESHARD_PAGE_SIZE);
+                for (UserRow row : page) {
+                    afterEmail = row.getEmail();
+                    String owner = router.shardFor(row.getEmail());
+                    if (!owner.equals(name) && move(row.getEmail(), source, shards.get(owner))) {
+                        moved++;
+                    }
+                }
+            } while (page.size() == RESHARD_PAGE_SIZE);
+        }
+        previousRouter = null;
+        return moved;
+    }
+
+    private boolean move(String email, UserRepository source, UserRepository target) throws SQLException {
+        ReentrantLock lock = lockFor(email);
+        lock.lock();
+        try {
+            // Read again under the lock, the row may have changed since the page was read
+            UserRow row = source.findUser(email);
+            if (row == null) {
+                return false;
+            }
+            try {
+                target.insertRow(row);
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Copied before an interruption, the copy has been the live row since
+            }
+            source.deleteUser(email);
+            movedUsers.increment();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String email) {
+        return locks[Math.floorMod(email.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Runs an operation on the shard holding an email. While resharding, an email whose shard changed is served
+     * by its new shard once its row is there and by its old shard until then.
+     */
+    private <T> T onShard(String email, ShardOperation<T> operation) throws SQLException {
+        String owner = router.shardFor(email);
+        ShardRouter previous = previousRouter;
+        String previousOwner = previous == null ? owner : previous.shardFor(email);
+        if (previousOwner.equals(owner)) {
+            return operation.apply(shards.get(owner));
+        }
+        ReentrantLock lock = lockFor(email);
+        lock.lock();
+        try {
+            UserRepository shard = shards.get(owner);
+            if (shard.getHashedPasswordForUser(email) == null) {
+                shard = shards.get(previousOwner);
+            }
+            return operation.apply(shard);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void saveUserToDatabase(String username, String email, String password, String verificationCode)
+            throws SQLException {
+        String owner = router.shardFor(email);
+        ShardRouter previous = previousRouter;
+        String previousOwner = previous == null ? owner : previous.shardFor(email);
+        if (previousOwner.equals(owner)) {
+            shards.get(owner).saveUserToDatabase(username, email, password, verificationCode);
+            return;
+        }
+        // A new user goes to the new shard, the old shard must not have the email either
+        ReentrantLock lock = lockFor(email);
+        lock.lock();
+        try {
+            if (shards.get(previousOwner).getHashedPasswordForUser(email) != null) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + email + "' for key 'email'");
+            }
+            shards.get(owner).saveUserToDatabase(username, email, password, verificationCode);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> saveUsersToDatabase(List<User> users, List<String> verificationCodes) throws SQLException {
+        List<String> errors = new ArrayList<>(users.size());
+        for (SQLException error : insertUsers(users, verificationCodes)) {
+            errors.add(error == null ? null : error.getMessage());
+        }
+        return errors;
+    }
+
+    /**
+     * Inserts the users shard by shard, one batch per shard. While resharding they are inserted one at a time.
+     */
+    @Override
+    public List<SQLException> insertUsers(List<User> users, List<String> verificationCodes) throws SQLException {
+        if (previousRouter != null) {
+            return UserStore.super.insertUsers(users, verificationCodes);
+        }
+        Map<String, List<Integer>> rowsByShard = new LinkedHashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            rowsByShard.computeIfAbsent(router.shardFor(users.get(i).getEmail()), key -> new ArrayList<>()).add(i);
+        }
+        SQLException[] errors = new SQLException[users.size()];
+        for (Map.Entry<String, List<Integer>> entry : rowsByShard.entrySet()) {
+            List<User> shardUsers = new ArrayList<>(entry.getValue().size());
+            List<String> shardCodes = new ArrayList<>(entry.getValue().size());
+            for (int row : entry.getValue()) {
+                shardUsers.add(users.get(row));
+                shardCodes.add(verificationCodes.get(row));
+            }
+            List<SQLException> shardErrors = shards.get(entry.getKey()).insertUsers(shardUsers, shardCodes);
+            for (int i = 0; i < shardErrors.size(); i++) {
+                errors[entry.getValue().get(i)] = shardErrors.get(i);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(errors));
+    }
+
+    @Override
+    public void storeVerificationCodeInDatabase(String verificationCode, String email) throws SQLException {
+        onShard(email, shard -> {
+            shard.storeVerificationCodeInDatabase(verificationCode, email);
+            return null;
+        });
+    }
+
+    @Override
+    public void storeVerificationCodesInDatabase(List<String> verificationCodes, List<String> emails)
+            throws SQLException {
+        if (previousRouter != null) {
+            UserStore.super.storeVerificationCodesInDatabase(verificationCodes, emails);
+            return;
+        }
+        Map<String, List<Integer>> rowsByShard = new LinkedHashMap<>();
+        for (int i = 0; i < emails.size(); i++) {
+            rowsByShard.computeIfAbsent(router.shardFor(emails.get(i)), key -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : rowsByShard.entrySet()) {
+            List<String> shardCodes = new ArrayList<>(entry.getValue().size());
+            List<String> shardEmails = new ArrayList<>(entry.getValue().size());
+            for (int row : entry.getValue()) {
+                shardCodes.add(verificationCodes.get(row));
+                shardEmails.add(emails.get(row));
+            }
+            shards.get(entry.getKey()).storeVerificationCodesInDatabase(shardCodes, shardEmails);
+        }
+    }
+
+    @Override
+    public boolean verify(String email, String verificationCode) throws SQLException {
+        return onShard(email, shard -> shard.verify(email, verificationCode));
+    }
+
+    @Override
+    public String login(String email, String password) throws SQLException {
+        return onShard(email, shard -> shard.login(email, password));
+    }
+
+    @Override
+    public String getHashedPasswordForUser(String email) throws SQLException {
+        return onShard(email, shard -> shard.getHashedPasswordForUser(email));
+    }
+
+    @Override
+    public CredentialCache.Credentials getCredentials(String email) throws SQLException {
+        return onShard(email, shard -> shard.getCredentials(email));
+    }
+
+    @Override
+    public boolean updatePassword(String email, String hashedPassword) throws SQLException {
+        return onShard(email, shard -> shard.updatePassword(email, hashedPassword));
+    }
+
+    @Override
+    public boolean replacePassword(String email, String currentHash, String newHash) throws SQLException {
+        return onShard(email, shard -> shard.replacePassword(email, currentHash, newHash));
+    }
+
+    /**
+     * @return The shards by name.
+     */
+    public Map<String, UserRepository> getShards() {
+        return Collections.unmodifiableMap(shards);
+    }
+
+    /**
+     * @return The current layout.
+     */
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * @return true while rows are being moved to the current layout.
+     */
+    public boolean isResharding() {
+        return previousRouter != null;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", "sharded");
+        stats.put("resharding", isResharding());
+        stats.put("movedUsers", movedUsers.sum());
+        Map<String, Object> shardStats = new LinkedHashMap<>();
+        for (Map.Entry<String, UserRepository> entry : shards.entrySet()) {
+            Map<String, Object> stat = new LinkedHashMap<>(entry.getValue().stats());
+            stat.put("weight", router.getWeights().getOrDefault(entry.getKey(), 0));
+            shardStats.put(entry.getKey(), stat);
+        }
+        stats.put("shards", shardStats);
+        return stats;
+    }
+
+    /**
+     * Closes the connection pools of the shards.
+     */
+    @Override
+    public void close() {
+        for (UserRepository shard : shards.values()) {
+            if (shard instanceof PooledUserRepository) {
+                ((PooledUserRepository) shard).close();
+            }
+        }
+    }
+}
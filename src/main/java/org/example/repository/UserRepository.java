@@ -1,26 +1,56 @@
 package org.example.repository;
 
+import org.example.model.User;
 import org.example.service.UserService;
+import org.example.utils.BloomFilter;
 import org.example.utils.DatabaseConnection;
-import org.mindrot.jbcrypt.BCrypt;
+import org.example.utils.PasswordHashingPool;
+import org.example.utils.ReplicaRouter;
+import org.example.utils.ServerExecutors;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.example.utils.SessionManager.storeSessionToken;
 
 /**
- * Repository class for managing user-related data persistence.
+ * Repository class for managing user-related data persistence, the JDBC backend of {@link UserStore} for MySQL.
  * Provides methods for saving users to the database, storing verification codes,
  * verifying users, logging in users, and retrieving hashed passwords.
+ * The credential rows read by login are served from a {@link CredentialCache},
+ * every method writing the password or the verification status invalidates the cached row.
+ * Lookups of emails that were never registered are answered from a Bloom filter without a query.
  */
-public class UserRepository {
+public class UserRepository implements UserStore {
+
+    private static final int CREDENTIAL_CACHE_SIZE = Integer.getInteger("credential.cache.size", 10_000);
+    private static final long CREDENTIAL_CACHE_TTL_MILLIS = Long.getLong("credential.cache.ttl.millis", 60_000);
+
+    private static final boolean EMAIL_FILTER_ENABLED =
+            Boolean.parseBoolean(System.getProperty("email.filter.enabled", "true"));
+    private static final long EMAIL_FILTER_EXPECTED_USERS = Long.getLong("email.filter.expected.users", 1_000_000);
+    private static final double EMAIL_FILTER_FPP =
+            Double.parseDouble(System.getProperty("email.filter.fpp", "0.01"));
 
     private static UserRepository userRepository;
 
+    private final CredentialCache credentialCache = new CredentialCache(CREDENTIAL_CACHE_SIZE,
+            CREDENTIAL_CACHE_TTL_MILLIS);
+    // Registered emails, only consulted once it holds every row of the users table
+    private final BloomFilter emailFilter = EMAIL_FILTER_ENABLED
+            ? new BloomFilter(EMAIL_FILTER_EXPECTED_USERS, EMAIL_FILTER_FPP) : null;
+    private volatile boolean emailFilterReady;
+    private final LongAdder skippedLookups = new LongAdder();
+
     /**
      * Singleton pattern to ensure only one instance of UserRepository exists.
      *
@@ -34,26 +64,163 @@ public class UserRepository {
     }
 
     /**
-     * Saves a user's data to the database.
+     * Returns a connection to the database holding the users table, closing it gives it back.
+     * The MySQL backend uses the shared pool of {@link DatabaseConnection}.
+     *
+     * @return The connection.
+     * @throws SQLException If no connection can be obtained.
+     */
+    protected Connection getConnection() throws SQLException {
+        return DatabaseConnection.getConnection();
+    }
+
+    /**
+     * Returns a connection for a read about one user, closing it gives it back.
+     * The MySQL backend reads from a replica when replicas are configured, see {@link DatabaseConnection}.
+     *
+     * @param email The email of the user the read is about.
+     * @return The connection.
+     * @throws SQLException If no connection can be obtained.
+     */
+    protected Connection getReadConnection(String email) throws SQLException {
+        return DatabaseConnection.getReadConnection(email);
+    }
+
+    /**
+     * Called after every write about a user, so the reads of that user see the write even on a lagging replica.
+     *
+     * @param email The email of the user that was written.
+     */
+    protected void recordWrite(String email) {
+        DatabaseConnection.recordWrite(email);
+    }
+
+    /**
+     * Creates or upgrades the schema, unless -Ddb.migrate=false, and starts loading the registered email filter
+     * in the background. Lookups use the database until the filter is loaded.
+     *
+     * @throws SQLException If the schema cannot be migrated.
+     */
+    @Override
+    public void open() throws SQLException {
+        if (Boolean.parseBoolean(System.getProperty("db.migrate", "true"))) {
+            try (Connection connection = getConnection()) {
+                SchemaMigrator.getInstance().migrateAndCheck(connection);
+            }
+        }
+        ServerExecutors.namedThreadFactory("email-filter-").newThread(() -> {
+            try {
+                loadEmailFilter();
+            } catch (SQLException e) {
+                System.err.println("Registered email filter not loaded: " + e.getMessage());
+            }
+        }).start();
+    }
+
+    /**
+     * Saves a user's data to the database together with the verification code,
+     * so the user and the code are written in one statement.
      *
      * @param username The user's name.
      * @param email The user's email.
      * @param password The user's hashed password.
+     * @param verificationCode The code the user must send back to verify the account.
      * @throws SQLException If a database access error occurs.
      */
-    public void saveUserToDatabase(String username, String email, String password) throws SQLException {
+    @Override
+    public void saveUserToDatabase(String username, String email, String password, String verificationCode)
+            throws SQLException {
+        // Added before the insert, so there is no moment where the row exists but the filter denies it
+        addToEmailFilter(email);
         // Store user in the database
-        try (Connection connection = DatabaseConnection.getConnection()){
-            String sqlStatement = "INSERT INTO users (name, email, password, verification_status) " +
-                    "VALUES (?, ?, ?, ?)";
+        try (Connection connection = getConnection()){
+            String sqlStatement = "INSERT INTO users (name, email, password, verification_status, verification_code) " +
+                    "VALUES (?, ?, ?, ?, ?)";
             try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
-                statement.setString(1, username);
-                statement.setString(2, email);
-                statement.setString(3, password);
-                statement.setBoolean(4, false);
+                bindNewUser(statement, new User(username, email, password), verificationCode);
                 statement.execute();
             }
         }
+        recordWrite(email);
+    }
+
+    /**
+     * Saves several users with their verification codes in one transaction, using a JDBC batch insert.
+     * If the batch fails, it is rolled back and the users are inserted one at a time,
+     * so a single bad row does not cost the rest of the batch.
+     *
+     * @param users The users to save, with hashed passwords.
+     * @param verificationCodes The verification code of every user, in the same order.
+     * @return For every user, null if it was saved, otherwise the reason it was not.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<String> saveUsersToDatabase(List<User> users, List<String> verificationCodes) throws SQLException {
+        List<String> errors = new ArrayList<>(users.size());
+        for (SQLException error : insertUsers(users, verificationCodes)) {
+            errors.add(error == null ? null : error.getMessage());
+        }
+        return errors;
+    }
+
+    /**
+     * Inserts several users in one transaction, see {@link #saveUsersToDatabase(List, List)}.
+     *
+     * @param users The users to save, with hashed passwords.
+     * @param verificationCodes The verification code of every user, in the same order.
+     * @return For every user, null if it was saved, otherwise the exception its insert failed with.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<SQLException> insertUsers(List<User> users, List<String> verificationCodes) throws SQLException {
+        List<SQLException> errors = new ArrayList<>(Collections.nCopies(users.size(), null));
+        for (User user : users) {
+            addToEmailFilter(user.getEmail());
+            // Recorded up front like the filter, the read-your-writes window is far longer than the batch
+            recordWrite(user.getEmail());
+        }
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            String sqlStatement = "INSERT INTO users (name, email, password, verification_status, verification_code) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                connection.setAutoCommit(false);
+                try {
+                    for (int i = 0; i < users.size(); i++) {
+                        bindNewUser(statement, users.get(i), verificationCodes.get(i));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    connection.commit();
+                    return errors;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    statement.clearBatch();
+                }
+
+                // The batch failed as a whole, find out which rows are to blame
+                connection.setAutoCommit(true);
+                for (int i = 0; i < users.size(); i++) {
+                    try {
+                        bindNewUser(statement, users.get(i), verificationCodes.get(i));
+                        statement.executeUpdate();
+                    } catch (SQLException e) {
+                        errors.set(i, e);
+                    }
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return errors;
+    }
+
+    private void bindNewUser(PreparedStatement statement, User user, String verificationCode) throws SQLException {
+        statement.setString(1, user.getName());
+        statement.setString(2, user.getEmail());
+        statement.setString(3, user.getPassword());
+        statement.setBoolean(4, false);
+        statement.setString(5, verificationCode);
     }
 
     /**
@@ -63,9 +230,10 @@ public class UserRepository {
      * @param email The email of the user to whom the code belongs.
      * @throws SQLException If a database access error occurs.
      */
+    @Override
     public void storeVerificationCodeInDatabase(String verificationCode, String email) throws SQLException {
         // Store the verification code in the database
-        try (Connection connection = DatabaseConnection.getConnection()) {
+        try (Connection connection = getConnection()) {
             String sqlStatement = "UPDATE users SET verification_code = ? WHERE email = ?";
             try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
                 statement.setString(1, verificationCode);
@@ -75,30 +243,112 @@ public class UserRepository {
         }
     }
 
+    /**
+     * Stores several verification codes in one transaction, using a JDBC batch update.
+     *
+     * @param verificationCodes The new verification codes.
+     * @param emails The email of every code, in the same order.
+     * @throws SQLException If a database access error occurs, none of the codes is stored then.
+     */
+    @Override
+    public void storeVerificationCodesInDatabase(List<String> verificationCodes, List<String> emails)
+            throws SQLException {
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            String sqlStatement = "UPDATE users SET verification_code = ? WHERE email = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                connection.setAutoCommit(false);
+                for (int i = 0; i < emails.size(); i++) {
+                    statement.setString(1, verificationCodes.get(i));
+                    statement.setString(2, emails.get(i));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
     /**
      * Verifies a user's email using the provided verification code.
+     * The check and the update are one conditional statement, so a code cannot be used twice
+     * and no other request can slip in between.
      *
      * @param email The user's email to verify.
      * @param verificationCode The verification code for validation.
      * @return true if the verification is successful, false otherwise.
      * @throws SQLException If a database access error occurs.
      */
+    @Override
     public boolean verify(String email, String verificationCode) throws SQLException {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String sqlStatement = "SELECT verification_code FROM users WHERE email = ?";
+        if (isDefinitelyUnknown(email)) {
+            return false;
+        }
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "UPDATE users SET verification_status = TRUE, verification_code = NULL " +
+                    "WHERE email = ? AND verification_code = ?";
             try (PreparedStatement preparedStatement = connection.prepareStatement(sqlStatement)) {
                 preparedStatement.setString(1, email);
-                ResultSet resultSet = preparedStatement.executeQuery();
-                if (resultSet.next()) {
-                    String storedCode = resultSet.getString("verification_code");
-                    if (storedCode != null && storedCode.equals(verificationCode)) {
-                        updateVerificationStatus(email);
-                        return true;
-                    }
-                }
+                preparedStatement.setString(2, verificationCode);
+                return preparedStatement.executeUpdate() > 0;
             }
+        } finally {
+            credentialCache.invalidate(email);
+            recordWrite(email);
+        }
+    }
+
+    /**
+     * Replaces the password hash of a user.
+     *
+     * @param email The email of the user.
+     * @param hashedPassword The new bcrypt hash.
+     * @return true if the user exists and was updated, false otherwise.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public boolean updatePassword(String email, String hashedPassword) throws SQLException {
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "UPDATE users SET password = ? WHERE email = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                statement.setString(1, hashedPassword);
+                statement.setString(2, email);
+                return statement.executeUpdate() > 0;
+            }
+        } finally {
+            credentialCache.invalidate(email);
+            recordWrite(email);
+        }
+    }
+
+    /**
+     * Replaces the password hash of a user only if it is still the expected one, in a single statement.
+     *
+     * @param email The email of the user.
+     * @param currentHash The hash the caller read.
+     * @param newHash The new bcrypt hash.
+     * @return true if the hash was replaced, false if the user is gone or the hash changed.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public boolean replacePassword(String email, String currentHash, String newHash) throws SQLException {
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "UPDATE users SET password = ? WHERE email = ? AND password = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                statement.setString(1, newHash);
+                statement.setString(2, email);
+                statement.setString(3, currentHash);
+                return statement.executeUpdate() > 0;
+            }
+        } finally {
+            credentialCache.invalidate(email);
+            recordWrite(email);
         }
-        return false;
     }
 
     /**
@@ -108,29 +358,256 @@ public class UserRepository {
      * @param password The user's password.
      * @return A session token if login is successful, null otherwise.
      * @throws SQLException If a database access error occurs.
+     * @throws org.example.exception.TooManyRequestsException If the password hashing pool is saturated.
      */
+    @Override
     public String login(String email, String password) throws SQLException {
-        try (Connection connection = DatabaseConnection.getConnection()) {
+        CredentialCache.Credentials credentials = getCredentials(email);
+        // The connection is back in the pool before the slow bcrypt check starts
+        // Checking if the password is correct and the account is verified
+        if (credentials != null && credentials.isVerified()
+                && PasswordHashingPool.getInstance().check(password, credentials.getPasswordHash())) {
+            // Create a session token
+            String sessionToken = UUID.randomUUID().toString();
+
+            // Store session token
+            storeSessionToken(email, sessionToken);
+            PasswordRehasher.getInstance().rehashIfOutdated(this, email, password, credentials.getPasswordHash());
+            return sessionToken; // Login successful return the token
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the credentials of a user, from the credential cache when they are cached.
+     *
+     * @param email The user's email.
+     * @return The password hash and verification status, or null if there is no such user.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public CredentialCache.Credentials getCredentials(String email) throws SQLException {
+        if (isDefinitelyUnknown(email)) {
+            return null;
+        }
+        CredentialCache.Credentials credentials = credentialCache.get(email);
+        if (credentials != null) {
+            return credentials;
+        }
+        long loadStamp = credentialCache.startLoad();
+        try (Connection connection = getReadConnection(email)) {
             String sqlStatement = "SELECT password, verification_status FROM users WHERE email = ?";
             try (PreparedStatement preparedStatement = connection.prepareStatement(sqlStatement)) {
                 preparedStatement.setString(1, email);
-                ResultSet resultSet = preparedStatement.executeQuery();
-                if (resultSet.next()) {
-                    String storedPassword = resultSet.getString("password");
-                    boolean isVerifiedAccount = resultSet.getBoolean("verification_status");
-                    // Checking if the password is correct and the account is verified
-                    if (BCrypt.checkpw(password, storedPassword) && isVerifiedAccount) {
-                        // Create a session token
-                        String sessionToken = UUID.randomUUID().toString();
-
-                        // Store session token
-                        storeSessionToken(email, sessionToken);
-                        return sessionToken; // Login successful return the token
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        credentials = new CredentialCache.Credentials(resultSet.getString("password"),
+                                resultSet.getBoolean("verification_status"));
                     }
                 }
             }
         }
-        return null;
+        if (credentials != null) {
+            credentialCache.put(email, credentials, loadStamp);
+        }
+        return credentials;
+    }
+
+    /**
+     * Fills the registered email filter by streaming the email column of the users table.
+     * Until it completes, the filter is not consulted; emails saved meanwhile are added to it as well,
+     * so none is missed.
+     *
+     * @throws SQLException If a database access error occurs, the filter then stays unused.
+     */
+    public void loadEmailFilter() throws SQLException {
+        if (emailFilter == null) {
+            return;
+        }
+        long loaded = 0;
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "SELECT email FROM users";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // MySQL only streams the rows instead of buffering the whole result with this fetch size
+                boolean mysql = connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL");
+                statement.setFetchSize(mysql ? Integer.MIN_VALUE : 1000);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        emailFilter.put(resultSet.getString(1));
+                        loaded++;
+                    }
+                }
+            }
+        }
+        emailFilterReady = true;
+        System.out.println("Registered email filter loaded with " + loaded + " emails, "
+                + emailFilter.getMemoryBytes() / 1024 + " KiB");
+    }
+
+    /**
+     * Reads a page of complete rows in email order, for moving them to another database.
+     *
+     * @param afterEmail Only rows with a greater email are read, "" for the first page.
+     * @param limit The maximum number of rows.
+     * @return The rows, fewer than the limit on the last page.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<UserRow> scanUsers(String afterEmail, int limit) throws SQLException {
+        List<UserRow> rows = new ArrayList<>();
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "SELECT name, email, password, verification_status, verification_code FROM users " +
+                    "WHERE email > ? ORDER BY email LIMIT ?";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                statement.setString(1, afterEmail);
+                statement.setInt(2, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows.add(readRow(resultSet));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the complete row of a user from the primary database.
+     *
+     * @param email The user's email.
+     * @return The row, or null if there is no such user.
+     * @throws SQLException If a database access error occurs.
+     */
+    public UserRow findUser(String email) throws SQLException {
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "SELECT name, email, password, verification_status, verification_code FROM users " +
+                    "WHERE email = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                statement.setString(1, email);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? readRow(resultSet) : null;
+                }
+            }
+        }
+    }
+
+    private static UserRow readRow(ResultSet resultSet) throws SQLException {
+        return new UserRow(resultSet.getString("name"), resultSet.getString("email"),
+                resultSet.getString("password"), resultSet.getBoolean("verification_status"),
+                resultSet.getString("verification_code"));
+    }
+
+    /**
+     * Inserts a complete row, keeping its verification status.
+     *
+     * @param row The row to insert.
+     * @throws SQLException If the row cannot be inserted, for example because the email is taken.
+     */
+    public void insertRow(UserRow row) throws SQLException {
+        addToEmailFilter(row.getEmail());
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "INSERT INTO users (name, email, password, verification_status, verification_code) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                statement.setString(1, row.getName());
+                statement.setString(2, row.getEmail());
+                statement.setString(3, row.getPassword());
+                statement.setBoolean(4, row.isVerified());
+                statement.setString(5, row.getVerificationCode());
+                statement.execute();
+            }
+        }
+        recordWrite(row.getEmail());
+    }
+
+    /**
+     * Deletes the row of a user.
+     *
+     * @param email The user's email.
+     * @return true if the row existed.
+     * @throws SQLException If a database access error occurs.
+     */
+    public boolean deleteUser(String email) throws SQLException {
+        try (Connection connection = getConnection()) {
+            String sqlStatement = "DELETE FROM users WHERE email = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
+                statement.setString(1, email);
+                return statement.executeUpdate() > 0;
+            }
+        } finally {
+            credentialCache.invalidate(email);
+            recordWrite(email);
+        }
+    }
+
+    private void addToEmailFilter(String email) {
+        if (emailFilter != null) {
+            emailFilter.put(email);
+        }
+    }
+
+    /**
+     * @return true if the email was never registered, so the database does not need to be asked.
+     */
+    private boolean isDefinitelyUnknown(String email) {
+        if (emailFilterReady && !emailFilter.mightContain(email)) {
+            skippedLookups.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a snapshot of the registered email filter statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> emailFilterStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", emailFilter != null);
+        stats.put("ready", emailFilterReady);
+        stats.put("skippedLookups", skippedLookups.sum());
+        if (emailFilter != null) {
+            stats.put("configuredFalsePositiveRate", EMAIL_FILTER_FPP);
+            stats.putAll(emailFilter.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return The statistics of the connections returned by {@link #getConnection()}.
+     */
+    protected Map<String, Object> connectionStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(DatabaseConnection.getPool().stats());
+        ReplicaRouter replicaRouter = DatabaseConnection.getReplicaRouter();
+        if (replicaRouter != null) {
+            stats.put("replication", replicaRouter.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return The name of the backend, as reported in the statistics.
+     */
+    protected String getBackendName() {
+        return "mysql";
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", getBackendName());
+        stats.put("database", connectionStats());
+        stats.put("credentialCache", credentialCache.stats());
+        stats.put("emailFilter", emailFilterStats());
+        return stats;
+    }
+
+    /**
+     * @return The cache of the credential rows read by login.
+     */
+    public CredentialCache getCredentialCache() {
+        return credentialCache;
     }
 
     /**
@@ -140,9 +617,13 @@ public class UserRepository {
      * @return The hashed password of the user.
      * @throws SQLException If a database access error occurs.
      */
+    @Override
     public String getHashedPasswordForUser(String email) throws SQLException {
+        if (isDefinitelyUnknown(email)) {
+            return null;
+        }
         String hashedPassword = null;
-        try (Connection connection = DatabaseConnection.getConnection()) {
+        try (Connection connection = getReadConnection(email)) {
             String sqlStatement = "SELECT password FROM users WHERE email = ?";
             try (PreparedStatement preparedStatement = connection.prepareStatement(sqlStatement)) {
                 preparedStatement.setString(1, email);
@@ -155,21 +636,4 @@ public class UserRepository {
         }
         return hashedPassword;
     }
-
-    /**
-     * Updates the verification status of a user to true.
-     *
-     * @param email The email of the user whose status is to be updated.
-     * @throws SQLException If a database access error occurs.
-     */
-    private void updateVerificationStatus(String email) throws SQLException {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            String sqlStatement = "UPDATE users SET verification_status = TRUE, " +
-                    "verification_code = NULL WHERE email = ?";
-            try (PreparedStatement statement = connection.prepareStatement(sqlStatement)) {
-                statement.setString(1, email);
-                statement.executeUpdate();
-            }
-        }
-    }
 }
@@ -0,0 +1,41 @@
+package org.example.repository;
+
+/**
+ * A complete row of the users table, as moved between shards by {@link ShardedUserStore}.
+ */
+public class UserRow {
+
+    private final String name;
+    private final String email;
+    private final String password;
+    private final boolean verified;
+    private final String verificationCode;
+
+    public UserRow(String name, String email, String password, boolean verified, String verificationCode) {
+        this.name = name;
+        this.email = email;
+        this.password = password;
+        this.verified = verified;
+        this.verificationCode = verificationCode;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public String getVerificationCode() {
+        return verificationCode;
+    }
+}
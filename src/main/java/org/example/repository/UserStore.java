@@ -0,0 +1,162 @@
+package org.example.repository;
+
+import org.example.model.User;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage of the user accounts.
+ * The service layer only talks to this interface, so the backend can be chosen per deployment,
+ * see {@link UserStores#getConfigured()}. Emails passed in are already normalized.
+ */
+public interface UserStore {
+
+    /**
+     * Prepares the store before the first request, for example by creating or upgrading the schema.
+     *
+     * @throws SQLException If the store cannot be prepared.
+     */
+    default void open() throws SQLException {
+    }
+
+    /**
+     * Saves a new user together with the verification code.
+     *
+     * @param username The user's name.
+     * @param email The user's email.
+     * @param password The user's hashed password.
+     * @param verificationCode The code the user must send back to verify the account.
+     * @throws SQLException If the user cannot be saved, for example because the email is taken.
+     */
+    void saveUserToDatabase(String username, String email, String password, String verificationCode)
+            throws SQLException;
+
+    /**
+     * Saves several new users at once.
+     *
+     * @param users The users to save, with hashed passwords.
+     * @param verificationCodes The verification code of every user, in the same order.
+     * @return For every user, null if it was saved, otherwise the reason it was not.
+     * @throws SQLException If a storage access error occurs.
+     */
+    List<String> saveUsersToDatabase(List<User> users, List<String> verificationCodes) throws SQLException;
+
+    /**
+     * Saves several new users in as few commits as the backend allows, see {@link GroupCommitUserStore}.
+     *
+     * @param users The users to save, with hashed passwords.
+     * @param verificationCodes The verification code of every user, in the same order.
+     * @return For every user, null if it was saved, otherwise the exception saving it failed with.
+     * @throws SQLException If a storage access error occurs.
+     */
+    default List<SQLException> insertUsers(List<User> users, List<String> verificationCodes) throws SQLException {
+        List<SQLException> errors = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            try {
+                saveUserToDatabase(user.getName(), user.getEmail(), user.getPassword(), verificationCodes.get(i));
+                errors.add(null);
+            } catch (SQLException e) {
+                errors.add(e);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Replaces the verification code of a user.
+     *
+     * @param verificationCode The new verification code.
+     * @param email The email of the user.
+     * @throws SQLException If a storage access error occurs.
+     */
+    void storeVerificationCodeInDatabase(String verificationCode, String email) throws SQLException;
+
+    /**
+     * Replaces the verification codes of several users in as few commits as the backend allows.
+     *
+     * @param verificationCodes The new verification codes.
+     * @param emails The email of every code, in the same order.
+     * @throws SQLException If a storage access error occurs.
+     */
+    default void storeVerificationCodesInDatabase(List<String> verificationCodes, List<String> emails)
+            throws SQLException {
+        for (int i = 0; i < emails.size(); i++) {
+            storeVerificationCodeInDatabase(verificationCodes.get(i), emails.get(i));
+        }
+    }
+
+    /**
+     * Marks a user as verified if the code matches, a code can only be used once.
+     *
+     * @param email The user's email.
+     * @param verificationCode The verification code for validation.
+     * @return true if the verification is successful, false otherwise.
+     * @throws SQLException If a storage access error occurs.
+     */
+    boolean verify(String email, String verificationCode) throws SQLException;
+
+    /**
+     * Checks the password of a verified user and starts a session.
+     *
+     * @param email The user's email.
+     * @param password The user's plain text password.
+     * @return A session token if login is successful, null otherwise.
+     * @throws SQLException If a storage access error occurs.
+     */
+    String login(String email, String password) throws SQLException;
+
+    /**
+     * Retrieves the hashed password of a user.
+     *
+     * @param email The user's email.
+     * @return The hashed password, or null if there is no such user.
+     * @throws SQLException If a storage access error occurs.
+     */
+    String getHashedPasswordForUser(String email) throws SQLException;
+
+    /**
+     * Retrieves what login checks, so the bcrypt check can run without holding the store.
+     *
+     * @param email The user's email.
+     * @return The password hash and verification status, or null if there is no such user.
+     * @throws SQLException If a storage access error occurs.
+     */
+    CredentialCache.Credentials getCredentials(String email) throws SQLException;
+
+    /**
+     * Replaces the password hash of a user.
+     *
+     * @param email The user's email.
+     * @param hashedPassword The new bcrypt hash.
+     * @return true if the user exists and was updated, false otherwise.
+     * @throws SQLException If a storage access error occurs.
+     */
+    boolean updatePassword(String email, String hashedPassword) throws SQLException;
+
+    /**
+     * Replaces the password hash of a user only if it is still the expected one,
+     * so a background rehash never overwrites a password changed in the meantime.
+     *
+     * @param email The email of the user.
+     * @param currentHash The hash the caller read.
+     * @param newHash The new bcrypt hash.
+     * @return true if the hash was replaced, false if the user is gone or the hash changed.
+     * @throws SQLException If a storage access error occurs.
+     */
+    default boolean replacePassword(String email, String currentHash, String newHash) throws SQLException {
+        return currentHash.equals(getHashedPasswordForUser(email)) && updatePassword(email, newHash);
+    }
+
+    /**
+     * Returns a snapshot of the store statistics.
+     *
+     * @return The statistics by name.
+     */
+    default Map<String, Object> stats() {
+        return Map.of();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.repository;
+
+import java.nio.file.Paths;
+
+/**
+ * Chooses the {@link UserStore} backend with the user.store system property:
+ * "mysql" (default) for the shared MySQL database, or "embedded" for an H2 database file
+ * inside the server process, located with -Dembedded.db.path (default data/users), or "log" for the
+ * log-structured files of {@link LogStructuredUserStore} in -Dlogstore.dir (default data/logstore),
+ * or "sharded" for the databases listed in -Dshards.config (default shards.properties), see {@link ShardedUserStore};
+ * during resharding -Dshards.previous.config names the layout the rows are moved from.
+ * With -Dgroup.commit.enabled=true the registrations are batched by a {@link GroupCommitUserStore}.
+ */
+public final class UserStores {
+
+    private static UserStore userStore;
+
+    private UserStores() {
+    }
+
+    /**
+     * Returns the configured store, creating it on first use.
+     *
+     * @return The single configured store.
+     * @throws IllegalArgumentException If user.store names an unknown backend.
+     */
+    public static synchronized UserStore getConfigured() {
+        if (userStore == null) {
+            String backend = System.getProperty("user.store", "mysql");
+            switch (backend) {
+                case "mysql":
+                    userStore = UserRepository.getInstance();
+                    break;
+                case "embedded":
+                    userStore = new EmbeddedUserRepository(System.getProperty("embedded.db.path", "data/users"));
+                    break;
+                case "log":
+                    userStore = new LogStructuredUserStore(Paths.get(System.getProperty("logstore.dir", "data/logstore")));
+                    break;
+                case "sharded":
+                    String config = System.getProperty("shards.config", "shards.properties");
+                    String previousConfig = System.getProperty("shards.previous.config");
+                    userStore = ShardedUserStore.fromConfig(Paths.get(config),
+                            previousConfig == null ? null : Paths.get(previousConfig));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown user.store: " + backend);
+            }
+            if (Boolean.getBoolean("group.commit.enabled")) {
+                userStore = new GroupCommitUserStore(userStore);
+            }
+        }
+        return userStore;
+    }
+}
@@ -0,0 +1,267 @@
+package org.example.service;
+
+import com.google.gson.JsonParseException;
+import org.example.exception.BulkImportFailedException;
+import org.example.exception.InvalidUserInputData;
+import org.example.model.User;
+import org.example.model.dto.BulkImportResultDTO;
+import org.example.repository.UserStore;
+import org.example.repository.UserStores;
+import org.example.utils.JsonCodec;
+import org.example.utils.PasswordHashingPool;
+import org.example.utils.ServerExecutors;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports users in bulk from NDJSON (one JSON user per line) or CSV (name,email,password).
+ * The input is streamed in batches: the passwords of a batch are hashed in parallel on all cores,
+ * then the batch is written with one JDBC batch insert in its own transaction, verification codes included.
+ * Invalid or rejected rows are reported with their line number and do not stop the import.
+ * A batch that cannot be written stops it, the batches before it stay imported.
+ */
+public class BulkImportService {
+
+    /**
+     * The supported input formats.
+     */
+    public enum Format {
+        NDJSON, CSV;
+
+        /**
+         * Picks the format from the Content-Type of a request, NDJSON unless it names CSV.
+         *
+         * @param contentType The Content-Type header, may be null.
+         * @return The format.
+         */
+        public static Format fromContentType(String contentType) {
+            return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv") ? CSV : NDJSON;
+        }
+    }
+
+    private static final int BATCH_SIZE = Integer.getInteger("bulk.import.batch.size", 500);
+    private static final int HASH_THREADS = Integer.getInteger("bulk.import.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final int MAX_REPORTED_ERRORS = Integer.getInteger("bulk.import.max.errors", 1000);
+
+    private static BulkImportService bulkImportService;
+
+    private final UserService userService;
+    private final UserStore userRepository;
+    private final int batchSize;
+    private final int hashThreads;
+
+    /**
+     * Singleton pattern to ensure only one instance of BulkImportService exists.
+     *
+     * @return The single instance of BulkImportService.
+     */
+    public static synchronized BulkImportService getInstance() {
+        if (bulkImportService == null) {
+            bulkImportService = new BulkImportService(UserService.getInstance(), UserStores.getConfigured(),
+                    BATCH_SIZE, HASH_THREADS);
+        }
+        return bulkImportService;
+    }
+
+    BulkImportService(UserService userService, UserStore userRepository, int batchSize, int hashThreads) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.batchSize = batchSize;
+        this.hashThreads = hashThreads;
+    }
+
+    /**
+     * Imports every user of the input. The saved users get a verification code and a queued verification email,
+     * just like users registered one at a time.
+     *
+     * @param in The input, UTF-8 encoded, it is read to the end but not closed.
+     * @param format The input format.
+     * @return The number of imported users and the errors of the rejected rows.
+     * @throws IOException If the input cannot be read.
+     * @throws BulkImportFailedException If a batch cannot be hashed or written, with the result up to that batch
+     *                                   and its line range.
+     */
+    public BulkImportResultDTO importUsers(InputStream in, Format format) throws IOException {
+        BulkImportResultDTO result = new BulkImportResultDTO(MAX_REPORTED_ERRORS);
+        // bcrypt runs on dedicated workers, so the import does not fill the queue of the interactive pool
+        ExecutorService hashers = Executors.newFixedThreadPool(hashThreads,
+                ServerExecutors.namedThreadFactory("bulk-import-"));
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<ImportRow> batch = new ArrayList<>(batchSize);
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (format == Format.CSV && lineNumber == 1 && isCsvHeader(line))) {
+                    continue;
+                }
+                User user = null;
+                try {
+                    user = format == Format.CSV ? parseCsv(line) : parseJson(line);
+                    validate(user);
+                } catch (JsonParseException | InvalidUserInputData e) {
+                    result.addError(lineNumber, user == null ? null : user.getEmail(), e.getMessage());
+                    continue;
+                }
+                batch.add(new ImportRow(lineNumber, user));
+                if (batch.size() == batchSize) {
+                    importBatchOrFail(batch, hashers, result);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatchOrFail(batch, hashers, result);
+            }
+        } finally {
+            hashers.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Imports a batch, or records its line range in the result and stops the import if it fails.
+     */
+    private void importBatchOrFail(List<ImportRow> batch, ExecutorService hashers, BulkImportResultDTO result)
+            throws IOException {
+        try {
+            importBatch(batch, hashers, result);
+        } catch (SQLException | RuntimeException e) {
+            long fromRow = batch.get(0).lineNumber;
+            long toRow = batch.get(batch.size() - 1).lineNumber;
+            result.failBatch(fromRow, toRow, e.getMessage());
+            throw new BulkImportFailedException("Import stopped at the batch of lines " + fromRow + " to " + toRow,
+                    result, e);
+        }
+    }
+
+    private void importBatch(List<ImportRow> batch, ExecutorService hashers, BulkImportResultDTO result)
+            throws IOException, SQLException {
+        // Hash the whole batch in parallel
+        List<Future<String>> hashes = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            String password = row.user.getPassword();
+            hashes.add(hashers.submit(() -> PasswordHashingPool.hashOnCallingThread(password)));
+        }
+
+        List<User> users = new ArrayList<>(batch.size());
+        List<String> verificationCodes = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.get(i).user;
+            users.add(new User(user.getName(), user.getEmail(), awaitHash(hashes.get(i))));
+            verificationCodes.add(UUID.randomUUID().toString());
+        }
+
+        List<String> errors = userRepository.saveUsersToDatabase(users, verificationCodes);
+        for (int i = 0; i < batch.size(); i++) {
+            ImportRow row = batch.get(i);
+            if (errors.get(i) != null) {
+                result.addError(row.lineNumber, row.user.getEmail(), errors.get(i));
+                continue;
+            }
+            result.addImported();
+            try {
+                userService.sendVerificationEmail(row.user.getEmail(), verificationCodes.get(i));
+            } catch (IOException e) {
+                // The user is saved, only the email is missing, so the row is still counted as imported
+                result.addError(row.lineNumber, row.user.getEmail(),
+                        "Imported, but the verification email could not be queued: " + e.getMessage());
+            }
+        }
+    }
+
+    private String awaitHash(Future<String> hash) throws InterruptedIOException {
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing passwords");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private void validate(User user) {
+        if (user == null || user.getName() == null || user.getEmail() == null || user.getPassword() == null) {
+            throw new InvalidUserInputData("Missing name, email or password");
+        }
+        user.setEmail(UserService.normalizeEmail(user.getEmail()));
+        userService.validateRegistration(user);
+    }
+
+    private User parseJson(String line) {
+        return JsonCodec.read(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)), User.class);
+    }
+
+    private User parseCsv(String line) {
+        List<String> fields = splitCsvLine(line);
+        if (fields.size() < 3) {
+            throw new InvalidUserInputData("Expected name,email,password");
+        }
+        return new User(fields.get(0), fields.get(1), fields.get(2));
+    }
+
+    private boolean isCsvHeader(String line) {
+        List<String> fields = splitCsvLine(line);
+        return fields.size() >= 2 && fields.get(1).equalsIgnoreCase("email");
+    }
+
+    /**
+     * Splits a CSV line into trimmed fields. Fields may be quoted with '"', a doubled quote inside them
+     * stands for a single one. Quoted fields cannot span several lines.
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static class ImportRow {
+
+        private final long lineNumber;
+        private final User user;
+
+        private ImportRow(long lineNumber, User user) {
+            this.lineNumber = lineNumber;
+            this.user = user;
+        }
+    }
+}
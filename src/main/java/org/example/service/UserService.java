@@ -2,31 +2,50 @@ package org.example.service;
 
 import org.example.exception.InvalidLoginException;
 import org.example.exception.InvalidUserInputData;
-import org.example.model.SessionToken;
+import org.example.exception.TooManyRequestsException;
+import org.example.mail.EmailOutbox;
 import org.example.model.User;
-import org.example.repository.UserRepository;
+import org.example.repository.PasswordRehasher;
+import org.example.repository.UserStore;
+import org.example.repository.UserStores;
 
+import org.example.utils.PasswordHashingPool;
+import org.example.utils.ServerExecutors;
 import org.example.utils.SessionManager;
-import org.mindrot.jbcrypt.BCrypt;
-
-import javax.mail.*;
-import javax.mail.internet.*;
 
+import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Properties;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Service class for handling user-related operations.
  * This class provides functionalities for registering users, verifying user emails,
- * user login, and managing session tokens. It interacts with the UserRepository for data persistence.
+ * user login, and managing session tokens. It interacts with a UserStore for data persistence.
+ * Every operation also has an asynchronous variant returning a {@link CompletionStage}, running the blocking
+ * steps on the bcrypt pool and the blocking I/O executor so the calling thread never waits.
  */
 public class UserService {
 
     private static UserService userService;
-    private static UserRepository userRepository = UserRepository.getInstance();
+    private static UserStore userRepository = UserStores.getConfigured();
+    private static EmailOutbox emailOutbox;
+    private static ExecutorService blockingExecutor;
+
+    // Timeouts of the steps of the asynchronous methods
+    private static final long HASH_TIMEOUT_MILLIS = Long.getLong("service.async.hash.timeout.millis", 10_000);
+    private static final long STORE_TIMEOUT_MILLIS = Long.getLong("service.async.store.timeout.millis", 5_000);
 
     /**
      * Singleton pattern to ensure only one instance of UserService exists.
@@ -41,22 +60,45 @@ public class UserService {
     }
 
     /**
-     * Injects a UserRepository instance for testing purposes.
+     * Injects a UserStore instance for testing purposes.
      *
-     * @param userRepository The UserRepository instance to be injected.
+     * @param userRepository The UserStore instance to be injected.
      */
-    public void setUserRepository(UserRepository userRepository) {
+    public void setUserRepository(UserStore userRepository) {
         UserService.userRepository = userRepository;
     }
 
     /**
      * Registers a new user in the system after validation.
+     * The verification code is created here and stored together with the user.
      *
      * @param user The user to be registered.
+     * @return The verification code of the new user.
      * @throws SQLException If a database access error occurs.
      * @throws InvalidUserInputData If user input data is invalid.
+     * @throws TooManyRequestsException If the password hashing pool is saturated.
      */
-    public void registerUser(User user) throws SQLException {
+    public String registerUser(User user) throws SQLException {
+        user.setEmail(normalizeEmail(user.getEmail()));
+        validateRegistration(user);
+
+        // Hash password on the bcrypt pool, throws TooManyRequestsException when it is saturated
+        String hashedPassword = PasswordHashingPool.getInstance().hash(user.getPassword());
+
+        // Generate a random verification code
+        String verificationCode = UUID.randomUUID().toString();
+
+        userRepository.saveUserToDatabase(user.getName(), user.getEmail(), hashedPassword, verificationCode);
+        return verificationCode;
+    }
+
+    /**
+     * Validates the name, email and password of a user before registration.
+     *
+     * @param user The user to be validated.
+     * @throws InvalidUserInputData If user input data is invalid.
+     */
+    public void validateRegistration(User user) {
         // Validate email and password
         if (user.getName().length() < 3 || user.getName().length() > 100) {
             throw new InvalidUserInputData("Invalid name");
@@ -67,15 +109,10 @@ public class UserService {
         if (user.getEmail() == null || user.getPassword().length() < 8) {
             throw new InvalidUserInputData("Invalid email or password");
         }
-
-        // Hash password
-        String hashedPassword = BCrypt.hashpw(user.getPassword(), BCrypt.gensalt());
-
-        userRepository.saveUserToDatabase(user.getName(), user.getEmail(), hashedPassword);
     }
 
     /**
-     * Creates and stores a verification code for a user's email.
+     * Creates and stores a new verification code for a user's email, replacing the previous one.
      *
      * @param email The email of the user for whom to create the verification code.
      * @return The generated verification code.
@@ -85,7 +122,7 @@ public class UserService {
         // Generate a random verification code
         String verificationCode = UUID.randomUUID().toString();
 
-        userRepository.storeVerificationCodeInDatabase(verificationCode, email);
+        userRepository.storeVerificationCodeInDatabase(verificationCode, normalizeEmail(email));
 
         return verificationCode;
     }
@@ -99,12 +136,7 @@ public class UserService {
      * @throws SQLException If a database access error occurs.
      */
     public boolean verifyUserEmail(String email, String verificationCode) throws SQLException {
-        boolean isUpdated = userRepository.verify(email, verificationCode);
-        if (isUpdated) {
-            return true;
-        } else {
-            return false;
-        }
+        return userRepository.verify(normalizeEmail(email), verificationCode);
     }
 
     /**
@@ -117,7 +149,7 @@ public class UserService {
      * @throws InvalidLoginException If login data is invalid.
      */
     public String loginUser(String email, String password) throws SQLException {
-        String answer = userRepository.login(email, password);
+        String answer = userRepository.login(normalizeEmail(email), password);
         if (answer != null) {
             return answer;
         } else {
@@ -125,6 +157,160 @@ public class UserService {
         }
     }
 
+    /**
+     * Registers a new user without blocking the calling thread.
+     * The password is hashed on the bcrypt pool while the email is checked for an existing account,
+     * so a taken email fails the registration, and stops the hashing, without waiting for bcrypt.
+     * Every step has its own timeout, see the service.async.*.timeout.millis properties.
+     *
+     * @param user The user to be registered, its email is normalized in place.
+     * @return The verification code of the new user, or a failure with an {@link InvalidUserInputData},
+     * a {@link TooManyRequestsException}, a {@link SQLException} (a taken email being a
+     * {@link SQLIntegrityConstraintViolationException}) or a {@link TimeoutException}.
+     * Cancelling it stops the steps that have not run yet.
+     */
+    public CompletionStage<String> registerUserAsync(User user) {
+        try {
+            user.setEmail(normalizeEmail(user.getEmail()));
+            validateRegistration(user);
+        } catch (InvalidUserInputData e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String email = user.getEmail();
+
+        CompletableFuture<String> hashedPassword = PasswordHashingPool.getInstance().hashAsync(user.getPassword())
+                .orTimeout(HASH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        CompletableFuture<Void> emailAvailable = callBlocking(() -> userRepository.getHashedPasswordForUser(email))
+                .thenAccept(existingPassword -> {
+                    if (existingPassword != null) {
+                        hashedPassword.cancel(true);
+                        throw new CompletionException(new SQLIntegrityConstraintViolationException(
+                                "Duplicate entry '" + email + "' for key 'email'"));
+                    }
+                });
+        String verificationCode = UUID.randomUUID().toString();
+
+        // The availability comes first, so a taken email wins over the cancelled hash
+        CompletableFuture<String> registration = emailAvailable.thenCombine(hashedPassword, (ignored, hash) -> hash)
+                .thenCompose(hash -> callBlocking(() -> {
+                    userRepository.saveUserToDatabase(user.getName(), email, hash, verificationCode);
+                    return verificationCode;
+                }));
+        registration.whenComplete((code, error) -> {
+            if (registration.isCancelled()) {
+                hashedPassword.cancel(true);
+            }
+        });
+        return registration;
+    }
+
+    /**
+     * Creates and stores a new verification code without blocking the calling thread.
+     *
+     * @param email The email of the user for whom to create the verification code.
+     * @return The generated verification code, or a failure with a {@link SQLException} or a {@link TimeoutException}.
+     */
+    public CompletionStage<String> createAndSendVerificationCodeAsync(String email) {
+        String verificationCode = UUID.randomUUID().toString();
+        return callBlocking(() -> {
+            userRepository.storeVerificationCodeInDatabase(verificationCode, normalizeEmail(email));
+            return verificationCode;
+        });
+    }
+
+    /**
+     * Verifies a user's email without blocking the calling thread.
+     *
+     * @param email The email of the user to verify.
+     * @param verificationCode The verification code for validation.
+     * @return true if verification is successful, or a failure with a {@link SQLException}
+     * or a {@link TimeoutException}.
+     */
+    public CompletionStage<Boolean> verifyUserEmailAsync(String email, String verificationCode) {
+        return callBlocking(() -> userRepository.verify(normalizeEmail(email), verificationCode));
+    }
+
+    /**
+     * Authenticates a user's login credentials without blocking the calling thread.
+     * The credentials are read with the store timeout and checked on the bcrypt pool with the hash timeout,
+     * so a slow bcrypt check never holds a blocking I/O thread.
+     *
+     * @param email The email of the user.
+     * @param password The password of the user.
+     * @return A session token, or a failure with an {@link InvalidLoginException}, a {@link TooManyRequestsException},
+     * a {@link SQLException} or a {@link TimeoutException}.
+     */
+    public CompletionStage<String> loginUserAsync(String email, String password) {
+        String normalizedEmail = normalizeEmail(email);
+        return callBlocking(() -> userRepository.getCredentials(normalizedEmail))
+                .thenCompose(credentials -> {
+                    // Checking that the account exists and is verified before spending a bcrypt check on it
+                    if (credentials == null || !credentials.isVerified()) {
+                        throw new CompletionException(new InvalidLoginException("Error with login, invalid data"));
+                    }
+                    return PasswordHashingPool.getInstance().checkAsync(password, credentials.getPasswordHash())
+                            .orTimeout(HASH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                            .thenApply(matches -> {
+                                if (!matches) {
+                                    throw new CompletionException(
+                                            new InvalidLoginException("Error with login, invalid data"));
+                                }
+                                String sessionToken = UUID.randomUUID().toString();
+                                SessionManager.storeSessionToken(normalizedEmail, sessionToken);
+                                PasswordRehasher.getInstance().rehashIfOutdated(userRepository, normalizedEmail,
+                                        password, credentials.getPasswordHash());
+                                return sessionToken;
+                            });
+                });
+    }
+
+    /**
+     * Queues the verification email without blocking the calling thread.
+     *
+     * @param email The email address where the verification email is sent.
+     * @param verificationCode The verification code to be included in the email.
+     * @return Completes once the email is in the outbox, or fails with an {@link IOException}
+     * or a {@link TimeoutException}.
+     */
+    public CompletionStage<Void> sendVerificationEmailAsync(String email, String verificationCode) {
+        return callBlocking(() -> {
+            sendVerificationEmail(email, verificationCode);
+            return null;
+        });
+    }
+
+    /**
+     * Runs a blocking store or outbox call on the blocking I/O executor with the store timeout.
+     * A call timed out or cancelled before it started never runs; one already running is left to finish,
+     * interrupting a JDBC call could break its pooled connection.
+     */
+    private static <T> CompletableFuture<T> callBlocking(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = getBlockingExecutor().submit(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                result.complete(call.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                task.cancel(false);
+            }
+        });
+        return result.orTimeout(STORE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ExecutorService getBlockingExecutor() {
+        if (blockingExecutor == null) {
+            blockingExecutor = ServerExecutors.newBlockingIoExecutor();
+        }
+        return blockingExecutor;
+    }
+
     /**
      * Checks if a session token is valid.
      *
@@ -133,11 +319,7 @@ public class UserService {
      * @return true if the session token is valid, false otherwise.
      */
     public boolean isSessionValid(String email, String sessionToken) {
-        SessionToken storedToken = SessionManager.getSessionToken(email);
-        if  (storedToken != null && storedToken.getToken().equals(sessionToken)) {
-            return !storedToken.isExpired();
-        }
-        return false;
+        return SessionManager.isSessionValid(normalizeEmail(email), sessionToken);
     }
 
     /**
@@ -156,49 +338,45 @@ public class UserService {
 
     /**
      * Sends a verification email to the user.
+     * The email is written to the outbox and delivered in the background by the outbox sender,
+     * so the caller does not wait for the SMTP server.
      *
      * @param email The email address where the verification email is sent.
      * @param verificationCode The verification code to be included in the email.
+     * @throws IOException If the email cannot be stored in the outbox.
      */
-    public void sendVerificationEmail(String email, String verificationCode) {
-        // Set up SMTP server details
-        /**
-         * To test the send mail: fromEmail - is your actual gmail,
-         * password - is your gmail app password, this password can be made
-         * when you make a 2 step verification, then you can make a app password
-         * Gmail -> Profile -> Security ->  2 Steps Verification -> App password
-         */
-        final String fromEmail = "your email"; // TODO: Change the email and password
-        final String password = "your email password";
-
-        Properties properties = new Properties();
-        properties.put("mail.smtp.host", "smtp.gmail.com"); // SMTP Host
-        properties.put("mail.smtp.port", "587"); // TLS Port
-        properties.put("mail.smtp.auth", "true"); // enable authentication
-        properties.put("mail.smtp.starttls.enable", "true"); // enable STARTTLS
-
-        // Create Authenticator object to pass in Session.getInstance argument
-        Authenticator authenticator = new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(fromEmail, password);
-            }
-        };
+    public void sendVerificationEmail(String email, String verificationCode) throws IOException {
+        getEmailOutbox().enqueue(email, verificationCode);
+    }
 
-        Session session = Session.getInstance(properties, authenticator);
+    /**
+     * Injects an EmailOutbox instance for testing purposes.
+     *
+     * @param emailOutbox The EmailOutbox instance to be injected.
+     */
+    public void setEmailOutbox(EmailOutbox emailOutbox) {
+        UserService.emailOutbox = emailOutbox;
+    }
 
-        // Send email
-        MimeMessage message = new MimeMessage(session);
-        try {
-            message.setFrom(new InternetAddress(fromEmail));
-            message.addRecipient(Message.RecipientType.TO, new InternetAddress(email));
-            message.setSubject("Email Verification");
-            message.setText("Your verification code is: " + verificationCode);
-            Transport.send(message);
-        } catch (MessagingException e) {
-            e.printStackTrace();
+    private static synchronized EmailOutbox getEmailOutbox() {
+        // Created lazily, so the spool directory only appears once an email is sent
+        if (emailOutbox == null) {
+            emailOutbox = EmailOutbox.getInstance();
         }
+        return emailOutbox;
+    }
+
+    /**
+     * Normalizes an email for storage and lookups. Emails are stored in lower case,
+     * so the unique index on the email column also catches addresses differing only in case.
+     *
+     * @param email The email as entered by the user.
+     * @return The trimmed, lower case email, or null if the email is null.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
     }
+
     /**
      * Validates an email address using regex.
      *
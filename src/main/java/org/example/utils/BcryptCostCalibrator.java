@@ -0,0 +1,143 @@
+package org.example.utils;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Picks the bcrypt cost factor for this machine: the highest cost whose hash still fits the latency budget.
+ * <p>
+ * Every step of the cost doubles the work, so one hash measured at the minimum cost is enough
+ * to predict all the others. Small nodes stay at the minimum cost and keep logins fast,
+ * big nodes get stronger hashes for the same latency. Setting {@code bcrypt.cost} skips the measurement.
+ */
+public class BcryptCostCalibrator {
+
+    private static final int FIXED_COST = Integer.getInteger("bcrypt.cost", 0);
+    private static final int MIN_COST = Integer.getInteger("bcrypt.min.cost", 10);
+    private static final int MAX_COST = Integer.getInteger("bcrypt.max.cost", 16);
+    private static final long TARGET_MILLIS = Long.getLong("bcrypt.target.millis", 250);
+
+    /**
+     * The best of a few rounds, so the first one paying for class loading and JIT does not count.
+     */
+    private static final int MEASURE_ROUNDS = 3;
+
+    private static BcryptCostCalibrator bcryptCostCalibrator;
+
+    private final int cost;
+    private final int minCost;
+    private final long targetMillis;
+    private final long measuredNanos;
+
+    /**
+     * Singleton pattern to ensure the measurement runs only once, on first use.
+     *
+     * @return The single instance of BcryptCostCalibrator.
+     */
+    public static synchronized BcryptCostCalibrator getInstance() {
+        if (bcryptCostCalibrator == null) {
+            bcryptCostCalibrator = new BcryptCostCalibrator(FIXED_COST, MIN_COST, MAX_COST, TARGET_MILLIS,
+                    BcryptCostCalibrator::measureNanos);
+        }
+        return bcryptCostCalibrator;
+    }
+
+    /**
+     * @param fixedCost The configured cost, or 0 to measure.
+     * @param minCost The lowest cost ever used, even when a single hash is slower than the budget.
+     * @param maxCost The highest cost ever used.
+     * @param targetMillis The latency budget of a single hash.
+     * @param nanosAtCost Measures one hash at the given cost, in nanoseconds.
+     */
+    BcryptCostCalibrator(int fixedCost, int minCost, int maxCost, long targetMillis, IntToLongFunction nanosAtCost) {
+        // jBCrypt only accepts costs from 4 to 30
+        this.minCost = Math.max(4, minCost);
+        this.targetMillis = targetMillis;
+        if (fixedCost > 0) {
+            this.cost = Math.min(30, Math.max(4, fixedCost));
+            this.measuredNanos = 0;
+            return;
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURE_ROUNDS; round++) {
+            best = Math.min(best, nanosAtCost.applyAsLong(this.minCost));
+        }
+        this.measuredNanos = best;
+
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        int chosen = this.minCost;
+        long predictedNanos = best;
+        while (chosen < Math.min(30, maxCost) && predictedNanos * 2 <= budgetNanos) {
+            chosen++;
+            predictedNanos *= 2;
+        }
+        this.cost = chosen;
+    }
+
+    private static long measureNanos(int cost) {
+        String salt = BCrypt.gensalt(cost);
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration-password", salt);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return The cost factor new hashes are made with.
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * Tells whether a stored hash is weaker than the hashes made now. Stronger hashes are kept,
+     * a login never downgrades a password.
+     *
+     * @param hashedPassword The stored bcrypt hash.
+     * @return true if the hash should be replaced, false if it is current or not a bcrypt hash.
+     */
+    public boolean needsRehash(String hashedPassword) {
+        int hashCost = costOf(hashedPassword);
+        return hashCost > 0 && hashCost < cost;
+    }
+
+    /**
+     * Reads the cost factor of a bcrypt hash in the {@code $2a$10$...} format.
+     *
+     * @param hashedPassword The bcrypt hash.
+     * @return The cost factor, or 0 if it is not a bcrypt hash.
+     */
+    static int costOf(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || !hashedPassword.startsWith("$2")) {
+            return 0;
+        }
+        int separator = hashedPassword.indexOf('$', 3);
+        if (separator < 0 || separator + 3 >= hashedPassword.length()
+                || hashedPassword.charAt(separator + 3) != '$') {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(separator + 1, separator + 3));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the outcome of the measurement.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", cost);
+        stats.put("minCost", minCost);
+        stats.put("targetMillis", targetMillis);
+        stats.put("measuredMillisAtMinCost", measuredNanos / 1_000_000.0);
+        stats.put("predictedMillis", measuredNanos == 0 ? 0 : (measuredNanos << (cost - minCost)) / 1_000_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter of strings.
+ * It answers "definitely not added" or "probably added": there are no false negatives, and false positives
+ * happen at about the rate the filter was sized for, as long as no more than the expected number of strings are added.
+ * The bits live in an {@link AtomicLongArray}, so adding and querying need no lock.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * Sizes the filter for the expected number of strings and the wanted false positive rate,
+     * using the optimal number of bits m = -n ln(p) / ln(2)^2 and hash functions k = m / n ln(2).
+     *
+     * @param expectedInsertions The number of strings the filter is sized for.
+     * @param falsePositiveRate The wanted false positive rate, between 0 and 1.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1");
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(words);
+        this.bitSize = (long) words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+    }
+
+    /**
+     * Adds a string.
+     *
+     * @param value The string.
+     */
+    public void put(String value) {
+        long hash1 = Hashing.hash64(value);
+        long hash2 = Hashing.mix64(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            setBit(Math.floorMod(hash1 + i * hash2, bitSize));
+        }
+        insertions.increment();
+    }
+
+    /**
+     * Tells whether a string may have been added.
+     *
+     * @param value The string.
+     * @return false if the string was definitely never added, true if it probably was.
+     */
+    public boolean mightContain(String value) {
+        long hash1 = Hashing.hash64(value);
+        long hash2 = Hashing.mix64(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word;
+        do {
+            word = words.get(index);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(index, word, word | mask));
+    }
+
+    /**
+     * @return The number of bits in the filter.
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * @return The number of hash functions, bits set per string.
+     */
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * @return The memory taken by the bits, in bytes.
+     */
+    public long getMemoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * @return The false positive rate expected for the number of strings added so far.
+     */
+    public double getExpectedFalsePositiveRate() {
+        double fill = 1 - Math.exp(-(double) hashFunctions * insertions.sum() / bitSize);
+        return Math.pow(fill, hashFunctions);
+    }
+
+    /**
+     * Returns a snapshot of the filter statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bits", bitSize);
+        stats.put("hashFunctions", hashFunctions);
+        stats.put("memoryBytes", getMemoryBytes());
+        stats.put("insertions", insertions.sum());
+        stats.put("expectedFalsePositiveRate", getExpectedFalsePositiveRate());
+        return stats;
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.utils;
+
+/**
+ * A single byte range of an HTTP Range request ("bytes=0-499", "bytes=500-" or "bytes=-500").
+ * Only single ranges are supported, a request for several ranges is answered with the whole file,
+ * which the HTTP specification allows.
+ */
+public class ByteRange {
+
+    /**
+     * Marker for a syntactically valid range that lies outside of the file, answered with 416.
+     */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses a Range header for a file of the given size.
+     *
+     * @param header The value of the Range header, may be null.
+     * @param size The size of the file in bytes.
+     * @return The range, {@link #UNSATISFIABLE} if it lies outside of the file,
+     * or null if the header is absent, malformed or asks for several ranges and must be ignored.
+     */
+    public static ByteRange parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, size - suffixLength), size - 1);
+            }
+            long start = Long.parseLong(first);
+            if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+                return null;
+            }
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            return new ByteRange(start, Math.min(end, size - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return The number of bytes in the range.
+     */
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * Formats the Content-Range header of a 206 response.
+     *
+     * @param size The size of the whole file.
+     * @return The header value, for example "bytes 0-499/1234".
+     */
+    public String toContentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+}
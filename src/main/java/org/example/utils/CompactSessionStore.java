@@ -0,0 +1,353 @@
+package org.example.utils;
+
+import org.example.model.SessionToken;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link SessionStore} for millions of sessions, holding them in primitive arrays instead of an object per session.
+ * <p>
+ * A session is four longs: a 64-bit hash of the email, the 128-bit UUID token as two longs and the expiry
+ * in epoch milliseconds. They sit in open-addressing hash tables split into segments and kept 30 to 60 % full,
+ * 55 to 110 bytes per session against several hundred for a map of strings, {@link SessionToken}
+ * and {@code LocalDateTime} objects.
+ * Checking a session allocates nothing: it reads the arrays under an optimistic {@link StampedLock} stamp
+ * and compares the expiry with the clock. A background sweep clears the expired slots once per second.
+ * <p>
+ * Tokens must be UUIDs in the canonical form, as issued at login. Two emails sharing a 64-bit hash would share
+ * a slot, which only means the later login replaces the earlier session, the token still has to match.
+ * There is no cap on the number of sessions.
+ */
+public class CompactSessionStore implements SessionStore {
+
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+    private static final long SWEEP_MILLIS = 1_000;
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder expired = new LongAdder();
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * The arrays of one segment, replaced as a whole when the segment grows so a reader always sees
+     * arrays of the same length.
+     */
+    private static final class Table {
+        final long[] keys;
+        final long[] tokenHigh;
+        final long[] tokenLow;
+        final long[] expiresAt;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            tokenHigh = new long[capacity];
+            tokenLow = new long[capacity];
+            expiresAt = new long[capacity];
+        }
+    }
+
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        volatile int size;
+    }
+
+    /**
+     * @param ttlMillis How long a session stays valid after it is stored.
+     */
+    public CompactSessionStore(long ttlMillis) {
+        this(ttlMillis, System::currentTimeMillis);
+    }
+
+    CompactSessionStore(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("session-sweep-"));
+            sweeper.scheduleAtFixedRate(this::sweep, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stores the session of a user, replacing the previous one.
+     *
+     * @param email The email of the user.
+     * @param sessionToken The session token, a UUID in canonical form.
+     * @throws IllegalArgumentException if the token is not a canonical UUID.
+     */
+    @Override
+    public void put(String email, String sessionToken) {
+        if (!isCanonicalUuid(sessionToken)) {
+            throw new IllegalArgumentException("Session tokens must be UUIDs");
+        }
+        long key = keyOf(email);
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            Table table = segment.table;
+            int index = find(table, key);
+            if (index < 0) {
+                // Keep the load under 60 %, so probes stay short and there is always an empty slot
+                if ((segment.size + 1) * 5 > table.keys.length * 3) {
+                    table = grow(segment);
+                }
+                index = -find(table, key) - 1;
+                table.keys[index] = key;
+                segment.size++;
+            }
+            table.tokenHigh[index] = high(sessionToken);
+            table.tokenLow[index] = low(sessionToken);
+            table.expiresAt[index] = clock.getAsLong() + ttlMillis;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public SessionToken get(String email) {
+        long key = keyOf(email);
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.tryOptimisticRead();
+        long[] session = read(segment.table, key);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                session = read(segment.table, key);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        if (session == null || session[2] <= clock.getAsLong()) {
+            return null;
+        }
+        LocalDateTime expiryTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(session[2]), ZoneId.systemDefault());
+        return new SessionToken(new UUID(session[0], session[1]).toString(), expiryTime);
+    }
+
+    @Override
+    public boolean isValid(String email, String sessionToken) {
+        if (!isCanonicalUuid(sessionToken)) {
+            return false;
+        }
+        long key = keyOf(email);
+        long tokenHigh = high(sessionToken);
+        long tokenLow = low(sessionToken);
+        long now = clock.getAsLong();
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.tryOptimisticRead();
+        boolean valid = matches(segment.table, key, tokenHigh, tokenLow, now);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                valid = matches(segment.table, key, tokenHigh, tokenLow, now);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return valid;
+    }
+
+    private static boolean matches(Table table, long key, long tokenHigh, long tokenLow, long now) {
+        int index = find(table, key);
+        return index >= 0 && table.tokenHigh[index] == tokenHigh && table.tokenLow[index] == tokenLow
+                && table.expiresAt[index] > now;
+    }
+
+    private static long[] read(Table table, long key) {
+        int index = find(table, key);
+        return index < 0 ? null : new long[]{table.tokenHigh[index], table.tokenLow[index], table.expiresAt[index]};
+    }
+
+    /**
+     * Linear probing from the home slot of the key.
+     *
+     * @return The index of the key, or {@code -index - 1} of the empty slot where it would go.
+     */
+    private static int find(Table table, long key) {
+        long[] keys = table.keys;
+        int mask = keys.length - 1;
+        int index = (int) key & mask;
+        // Bounded, an optimistic reader may see the table while a writer changes it
+        for (int probes = 0; probes < keys.length; probes++) {
+            long slot = keys[index];
+            if (slot == key) {
+                return index;
+            }
+            if (slot == 0) {
+                return -index - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1 - index;
+    }
+
+    private static Table grow(Segment segment) {
+        Table old = segment.table;
+        Table grown = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != 0) {
+                int index = -find(grown, old.keys[i]) - 1;
+                copy(old, i, grown, index);
+            }
+        }
+        segment.table = grown;
+        return grown;
+    }
+
+    private static void copy(Table from, int fromIndex, Table to, int toIndex) {
+        to.keys[toIndex] = from.keys[fromIndex];
+        to.tokenHigh[toIndex] = from.tokenHigh[fromIndex];
+        to.tokenLow[toIndex] = from.tokenLow[fromIndex];
+        to.expiresAt[toIndex] = from.expiresAt[fromIndex];
+    }
+
+    /**
+     * Clears the expired slots of every segment, holding one segment's lock at a time.
+     */
+    void sweep() {
+        long now = clock.getAsLong();
+        for (Segment segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                Table table = segment.table;
+                int index = 0;
+                while (index < table.keys.length) {
+                    if (table.keys[index] != 0 && table.expiresAt[index] <= now) {
+                        delete(table, index);
+                        segment.size--;
+                        expired.increment();
+                        // Another session may have moved into this slot, so it is checked again
+                    } else {
+                        index++;
+                    }
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Backward shift deletion: the sessions after the hole that would no longer be found move into it,
+     * so the table needs no tombstones.
+     */
+    private static void delete(Table table, int index) {
+        int mask = table.keys.length - 1;
+        int hole = index;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            long key = table.keys[next];
+            if (key == 0) {
+                break;
+            }
+            int home = (int) key & mask;
+            boolean reachable = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!reachable) {
+                copy(table, next, table, hole);
+                hole = next;
+            }
+        }
+        table.keys[hole] = 0;
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) (key >>> 58)];
+    }
+
+    /**
+     * The hash of the email, 0 marks an empty slot.
+     */
+    private static long keyOf(String email) {
+        long hash = Hashing.hash64(email);
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Checks the 8-4-4-4-12 hex digit form of {@link UUID#toString()}, without parsing it into an object.
+     */
+    static boolean isCanonicalUuid(String token) {
+        if (token == null || token.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = token.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long high(String uuid) {
+        return hex(uuid, 0, 8) << 32 | hex(uuid, 9, 13) << 16 | hex(uuid, 14, 18);
+    }
+
+    private static long low(String uuid) {
+        return hex(uuid, 19, 23) << 48 | hex(uuid, 24, 36);
+    }
+
+    private static long hex(String uuid, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value << 4 | Character.digit(uuid.charAt(i), 16);
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        long slots = 0;
+        for (Segment segment : segments) {
+            slots += segment.table.keys.length;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("store", "compact");
+        stats.put("live", size());
+        stats.put("slots", slots);
+        stats.put("bytes", slots * 4 * Long.BYTES);
+        stats.put("expired", expired.sum());
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+}
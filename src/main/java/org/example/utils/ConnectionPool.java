@@ -0,0 +1,412 @@
+package org.example.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of open JDBC connections, so a request does not pay a TCP handshake and authentication with the database.
+ * Callers get a proxy whose {@code close()} gives the connection back to the pool instead of closing it.
+ * <p>
+ * A connection that sat idle for a while is validated before it is handed out, connections idle for longer than
+ * the idle timeout are closed down to the minimum size, and every connection is retired after its maximum lifetime.
+ * Connections kept by a caller for longer than the leak threshold are reported, with the stack trace of the borrower
+ * if borrower tracing is on. Tracing captures a stack trace on every borrow, so it is meant for hunting a leak.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long leakThresholdMillis;
+    private final boolean traceBorrowers;
+
+    // Most recently used first, so the warm connections are reused and the others can be evicted
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder closedConnections = new LongAdder();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder failedValidations = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder totalBorrowWaitNanos = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    /**
+     * A physical connection together with its usage, as kept in the pool.
+     */
+    private static class PooledConnection {
+        private final Connection connection;
+        private final long createdAt;
+        private long lastUsedAt;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowedBy;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    /**
+     * Creates a pool reporting leaks without the stack trace of the borrower.
+     */
+    public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize, long borrowTimeoutMillis,
+                          long validateAfterIdleMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                          long leakThresholdMillis, long housekeepingMillis) {
+        this(factory, minSize, maxSize, borrowTimeoutMillis, validateAfterIdleMillis, idleTimeoutMillis,
+                maxLifetimeMillis, leakThresholdMillis, housekeepingMillis, false);
+    }
+
+    /**
+     * @param factory Opens the physical connections.
+     * @param minSize The number of connections kept open even when idle.
+     * @param maxSize The maximum number of open connections.
+     * @param borrowTimeoutMillis How long a caller waits for a connection when all of them are in use.
+     * @param validateAfterIdleMillis A connection idle for longer than this is validated before it is handed out.
+     * @param idleTimeoutMillis A connection idle for longer than this is closed, unless the pool is at its minimum.
+     * @param maxLifetimeMillis A connection older than this is closed when it is next returned or found idle.
+     * @param leakThresholdMillis A connection borrowed for longer than this is reported as a leak, 0 disables it.
+     * @param housekeepingMillis How often idle eviction, lifetime and leak checks run.
+     * @param traceBorrowers Whether to record the stack trace of every borrow, to show it in a leak report.
+     */
+    public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize, long borrowTimeoutMillis,
+                          long validateAfterIdleMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                          long leakThresholdMillis, long housekeepingMillis, boolean traceBorrowers) {
+        this.factory = factory;
+        this.traceBorrowers = traceBorrowers;
+        this.minSize = Math.min(minSize, maxSize);
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("db-pool-"));
+        // The first run opens the minimum number of connections in the background
+        housekeeper.scheduleWithFixedDelay(this::runHousekeeping, 0, housekeepingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes a healthy connection from the pool, opening a new one if none is idle.
+     * Blocks up to the borrow timeout while all connections are in use.
+     *
+     * @return A connection, closing it gives it back to the pool.
+     * @throws SQLException if no connection became available in time or a new one cannot be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+        long startedAt = System.nanoTime();
+        acquirePermit();
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            totalBorrowWaitNanos.add(System.nanoTime() - startedAt);
+            borrowed.increment();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowedBy = traceBorrowers && leakThresholdMillis > 0 ? new Throwable("Connection borrowed here")
+                    : null;
+            pooled.leakReported = false;
+            inUse.add(pooled);
+            return newProxy(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new SQLTransientConnectionException("No database connection available within "
+                        + borrowTimeoutMillis + " ms, all " + maxSize + " are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (now - pooled.createdAt >= maxLifetimeMillis) {
+            return false;
+        }
+        if (now - pooled.lastUsedAt < validateAfterIdleMillis) {
+            return true;
+        }
+        try {
+            if (pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            // Treated as invalid below
+        }
+        failedValidations.increment();
+        return false;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = factory.create();
+        totalConnections.incrementAndGet();
+        created.increment();
+        return new PooledConnection(connection);
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        closedConnections.increment();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // The connection is dropped anyway
+        }
+    }
+
+    /**
+     * Gives a connection back, called when the caller closes its proxy.
+     */
+    private void release(PooledConnection pooled) {
+        inUse.remove(pooled);
+        try {
+            pooled.lastUsedAt = System.currentTimeMillis();
+            if (!pooled.broken && !closed && resetState(pooled)
+                    && pooled.lastUsedAt - pooled.createdAt < maxLifetimeMillis) {
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Rolls back what the caller left uncommitted and restores auto-commit, so the next caller gets a clean connection.
+     */
+    private boolean resetState(PooledConnection pooled) {
+        try {
+            if (pooled.connection.isClosed()) {
+                return false;
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes idle connections past the idle timeout or their lifetime, reports leaked connections
+     * and opens connections up to the minimum size.
+     */
+    void runHousekeeping() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean expired = now - pooled.createdAt >= maxLifetimeMillis;
+            boolean idleTooLong = now - pooled.lastUsedAt >= idleTimeoutMillis && totalConnections.get() > minSize;
+            if ((expired || idleTooLong) && idle.removeFirstOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : inUse) {
+                if (!pooled.leakReported && now - pooled.borrowedAt >= leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    leaksDetected.increment();
+                    System.err.println("Possible database connection leak, borrowed "
+                            + (now - pooled.borrowedAt) + " ms ago and not closed:");
+                    if (pooled.borrowedBy != null) {
+                        pooled.borrowedBy.printStackTrace();
+                    } else {
+                        System.err.println("Start with -Ddb.pool.leak.trace=true to see where it was borrowed");
+                    }
+                }
+            }
+        }
+
+        while (totalConnections.get() < minSize && permits.tryAcquire()) {
+            try {
+                idle.offerLast(open());
+            } catch (SQLException e) {
+                // The database is unreachable, the next run tries again
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private Connection newProxy(PooledConnection pooled) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new LeaseHandler(pooled));
+    }
+
+    /**
+     * Forwards calls to the physical connection until the caller closes it, then gives the connection back.
+     */
+    private class LeaseHandler implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.connection;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQL state class 08 means the connection itself failed, it must not go back to the pool
+                if (cause instanceof SQLException && isConnectionFailure((SQLException) cause)) {
+                    pooled.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        String sqlState = e.getSQLState();
+        return sqlState != null && sqlState.startsWith("08");
+    }
+
+    /**
+     * @return The number of open connections, idle and in use.
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return The number of idle connections.
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Returns a snapshot of the pool statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        long borrowCount = borrowed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("minSize", minSize);
+        stats.put("maxSize", maxSize);
+        stats.put("total", getTotalConnections());
+        stats.put("idle", getIdleConnections());
+        stats.put("inUse", inUse.size());
+        stats.put("waiting", permits.getQueueLength());
+        stats.put("created", created.sum());
+        stats.put("closed", closedConnections.sum());
+        stats.put("borrowed", borrowCount);
+        stats.put("borrowTimeouts", borrowTimeouts.sum());
+        stats.put("failedValidations", failedValidations.sum());
+        stats.put("leaksDetected", leaksDetected.sum());
+        stats.put("averageBorrowWaitMillis",
+                borrowCount == 0 ? 0 : totalBorrowWaitNanos.sum() / (borrowCount * 1_000_000.0));
+        return stats;
+    }
+
+    /**
+     * Closes the idle connections and stops the housekeeping, connections still in use are closed when returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+}
@@ -3,39 +3,156 @@ package org.example.utils;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Provides database connection functionality.
- * This utility class manages connections to the database and allows for the use of a custom connection,
+ * This utility class hands out connections from a {@link ConnectionPool} and allows for the use of a custom connection,
  * which can be particularly useful in testing scenarios.
+ * The pool is configured with system properties: db.url, db.user, db.password, db.pool.min, db.pool.max,
+ * db.pool.timeout.millis, db.pool.validate.millis, db.pool.idle.millis, db.pool.lifetime.millis,
+ * db.pool.leak.millis and db.pool.leak.trace (records where every connection is borrowed, off by default).
+ * <p>
+ * Reads can be spread over read replicas listed in db.replica.urls (comma separated, same user and password),
+ * see {@link ReplicaRouter}. A replica lagging more than db.replica.max.lag.millis behind the primary,
+ * as measured every db.replica.check.millis (which must be below the maximum lag), leaves the rotation.
  */
 public class DatabaseConnection {
 
     private static Connection connection = null;
+    private static volatile ReplicaRouter replicaRouter;
 
-    private static final String DATABASE_URL = "jdbc:mysql://localhost:3306/user_registration";
-    private static final String DATABASE_USER = "root";
-    private static final String DATABASE_PASSWORD = "1234";
+    // rewriteBatchedStatements lets the driver send a JDBC batch insert as one multi-row INSERT
+    private static final String DATABASE_URL = System.getProperty("db.url",
+            "jdbc:mysql://localhost:3306/user_registration?rewriteBatchedStatements=true");
+    private static final String DATABASE_USER = System.getProperty("db.user", "root");
+    private static final String DATABASE_PASSWORD = System.getProperty("db.password", "1234");
+
+    private static final int POOL_MIN_SIZE = Integer.getInteger("db.pool.min", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.max", 10);
+    private static final long POOL_TIMEOUT_MILLIS = Long.getLong("db.pool.timeout.millis", 5_000);
+    private static final long POOL_VALIDATE_MILLIS = Long.getLong("db.pool.validate.millis", 500);
+    private static final long POOL_IDLE_MILLIS = Long.getLong("db.pool.idle.millis", 10 * 60_000);
+    // Below MySQL's default wait_timeout of 8 hours, so the server never drops a pooled connection first
+    private static final long POOL_LIFETIME_MILLIS = Long.getLong("db.pool.lifetime.millis", 30 * 60_000);
+    private static final long POOL_LEAK_MILLIS = Long.getLong("db.pool.leak.millis", 60_000);
+    private static final boolean POOL_LEAK_TRACE = Boolean.getBoolean("db.pool.leak.trace");
+    private static final long POOL_HOUSEKEEPING_MILLIS = 30_000;
+
+    private static final String REPLICA_URLS = System.getProperty("db.replica.urls", "");
+    private static final long REPLICA_MAX_LAG_MILLIS = Long.getLong("db.replica.max.lag.millis", 1_000);
+    private static final long REPLICA_CHECK_MILLIS = Long.getLong("db.replica.check.millis", 250);
 
     /**
      * Returns a database connection.
      * If a custom connection has been set using {@link #setConnection(Connection)}, it returns the custom connection.
-     * Otherwise, it creates and returns a new MySQL connection.
+     * Otherwise, it borrows a connection from the pool, closing it gives it back.
      *
      * @return A {@link Connection} object representing the database connection.
-     * @throws SQLException if a database access error occurs.
+     * @throws SQLException if a database access error occurs or no pooled connection became available in time.
      */
     public static Connection getConnection() throws SQLException {
         if (connection != null) {
             return connection; // Use the custom connection if set
         } else {
-            // Create a new MySQL connection only if the custom connection hasn't been set
-            return DriverManager.getConnection(DATABASE_URL, DATABASE_USER, DATABASE_PASSWORD);
+            return getPool().getConnection();
+        }
+    }
+
+    /**
+     * Returns a database connection for a read about one user.
+     * It comes from a read replica when replicas are configured, unless the user was written so recently
+     * that the replicas may not have the write yet, see {@link #recordWrite(String)}.
+     * A custom connection set with {@link #setConnection(Connection)} is used for reads too.
+     *
+     * @param email The email of the user the read is about.
+     * @return A {@link Connection} object representing the database connection, closing it gives it back.
+     * @throws SQLException if a database access error occurs or no pooled connection became available in time.
+     */
+    public static Connection getReadConnection(String email) throws SQLException {
+        if (connection != null) {
+            return connection;
+        }
+        ReplicaRouter router = getReplicaRouter();
+        return router != null ? router.getReadConnection(email) : getPool().getConnection();
+    }
+
+    /**
+     * Records a write about a user, so that user's own reads see it, see {@link ReplicaRouter#recordWrite(String)}.
+     *
+     * @param email The email of the user that was written.
+     */
+    public static void recordWrite(String email) {
+        ReplicaRouter router = getReplicaRouter();
+        if (router != null) {
+            router.recordWrite(email);
+        }
+    }
+
+    /**
+     * Returns the replica router, creating it and its pools on first use.
+     * Every read asks for it, so only the creation takes a lock.
+     *
+     * @return The router, or null if no replicas are configured.
+     */
+    public static ReplicaRouter getReplicaRouter() {
+        if (REPLICA_URLS.isBlank()) {
+            return null;
+        }
+        ReplicaRouter router = replicaRouter;
+        if (router == null) {
+            synchronized (DatabaseConnection.class) {
+                router = replicaRouter;
+                if (router == null) {
+                    Map<String, ConnectionPool> replicas = new LinkedHashMap<>();
+                    for (String url : REPLICA_URLS.split(",")) {
+                        String replicaUrl = url.trim();
+                        replicas.put(replicaUrl, createPool(replicaUrl));
+                    }
+                    router = new ReplicaRouter(getPool(), replicas, REPLICA_MAX_LAG_MILLIS, REPLICA_CHECK_MILLIS);
+                    router.start();
+                    replicaRouter = router;
+                }
+            }
         }
+        return router;
+    }
+
+    /**
+     * Holds the pool of the primary, created when the class is first used, so no caller takes a lock for it.
+     */
+    private static final class PoolHolder {
+        private static final ConnectionPool POOL = createPool(DATABASE_URL);
+    }
+
+    /**
+     * Returns the connection pool, creating it on first use.
+     *
+     * @return The connection pool.
+     */
+    public static ConnectionPool getPool() {
+        return PoolHolder.POOL;
+    }
+
+    private static ConnectionPool createPool(String url) {
+        return createPool(url, DATABASE_USER, DATABASE_PASSWORD);
+    }
+
+    /**
+     * Creates a pool for another database with the same pool settings, for example for a shard.
+     *
+     * @param url The JDBC URL of the database.
+     * @param user The database user.
+     * @param password The password of the user.
+     * @return The new pool, the caller closes it.
+     */
+    public static ConnectionPool createPool(String url, String user, String password) {
+        return new ConnectionPool(
+                () -> DriverManager.getConnection(url, user, password),
+                POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_TIMEOUT_MILLIS, POOL_VALIDATE_MILLIS,
+                POOL_IDLE_MILLIS, POOL_LIFETIME_MILLIS, POOL_LEAK_MILLIS, POOL_HOUSEKEEPING_MILLIS, POOL_LEAK_TRACE);
     }
-//    public static Connection getConnection() throws SQLException {
-//        return DriverManager.getConnection(DATABASE_URL, DATABASE_USER, DATABASE_PASSWORD);
-//    }
 
     /**
      * Sets a custom database connection.
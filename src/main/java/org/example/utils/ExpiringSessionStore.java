@@ -0,0 +1,293 @@
+package org.example.utils;
+
+import org.example.model.SessionToken;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Session tokens by email that are removed once they expire, so memory follows the number of live sessions
+ * instead of the number of logins since startup.
+ * <p>
+ * Expiry uses a hashed timing wheel: every session is queued in the slot of the tick it expires in,
+ * and a background thread empties one slot per tick. Scheduling and expiring a session are O(1)
+ * and nothing runs on the request path. Sessions expiring more than one turn of the wheel ahead
+ * are queued again when their slot comes up until their turn arrives.
+ * Sessions replaced by a new login, evicted or removed on read are only marked dead in their slot;
+ * once the dead outnumber the live sessions, the background thread purges them from the whole wheel.
+ * <p>
+ * An optional cap bounds the number of sessions. Above it the least recently used of a few sampled
+ * sessions is evicted, an approximate LRU that needs no shared list to update on every read.
+ */
+public class ExpiringSessionStore implements SessionStore {
+
+    /**
+     * Sessions compared per eviction, a handful gets close to exact LRU.
+     */
+    private static final int EVICTION_SAMPLES = 5;
+
+    /**
+     * Dead entries tolerated in the wheel regardless of the number of live sessions.
+     */
+    private static final int MIN_DEAD_TO_PURGE = 1024;
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry>[] wheel;
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final Object evictionLock = new Object();
+    private Iterator<Entry> evictionHand;
+    private long lastTick;
+    private ScheduledExecutorService ticker;
+
+    private static final class Entry {
+        final String email;
+        final SessionToken token;
+        final long expiresAtMillis;
+        volatile long lastAccessMillis;
+        volatile boolean dead;
+
+        Entry(String email, SessionToken token, long expiresAtMillis, long now) {
+            this.email = email;
+            this.token = token;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccessMillis = now;
+        }
+    }
+
+    /**
+     * @param ttlMillis How long a session stays valid after it is stored.
+     * @param maxEntries The maximum number of sessions, or 0 for no cap.
+     */
+    public ExpiringSessionStore(long ttlMillis, int maxEntries) {
+        this(ttlMillis, maxEntries, 1_000, 512, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ExpiringSessionStore(long ttlMillis, int maxEntries, long tickMillis, int wheelSize, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        this.wheel = new ConcurrentLinkedQueue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = clock.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Starts the background thread expiring the sessions once per tick.
+     */
+    @Override
+    public synchronized void start() {
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("session-expiry-"));
+            ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stores the session of a user, replacing the previous one.
+     *
+     * @param email The email of the user.
+     * @param sessionToken The session token.
+     */
+    @Override
+    public void put(String email, String sessionToken) {
+        long now = clock.getAsLong();
+        long expiresAt = now + ttlMillis;
+        LocalDateTime expiryTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault());
+        Entry entry = new Entry(email, new SessionToken(sessionToken, expiryTime), expiresAt, now);
+        Entry previous = sessions.put(email, entry);
+        schedule(entry);
+        if (previous != null) {
+            bury(previous);
+        } else if (maxEntries > 0 && sessions.size() > maxEntries) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Retrieves the session of a user, an expired session is removed and never returned.
+     *
+     * @param email The email of the user.
+     * @return The session token, or null if the user has no live session.
+     */
+    @Override
+    public SessionToken get(String email) {
+        Entry entry = sessions.get(email);
+        if (entry == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (entry.expiresAtMillis <= now) {
+            // Expired between two ticks, removed now so it is counted once
+            if (sessions.remove(email, entry)) {
+                expired.increment();
+                bury(entry);
+            }
+            return null;
+        }
+        entry.lastAccessMillis = now;
+        return entry.token;
+    }
+
+    @Override
+    public boolean isValid(String email, String sessionToken) {
+        SessionToken storedToken = get(email);
+        return storedToken != null && storedToken.getToken().equals(sessionToken);
+    }
+
+    private void schedule(Entry entry) {
+        wheel[(int) ((entry.expiresAtMillis / tickMillis) % wheel.length)].add(entry);
+        scheduled.increment();
+    }
+
+    /**
+     * Marks an entry no longer in the table, so its slot drops it without a lookup.
+     */
+    private void bury(Entry entry) {
+        entry.dead = true;
+        dead.increment();
+    }
+
+    /**
+     * Empties the slots of the ticks passed since the last call, called by the background thread.
+     */
+    void tick() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMillis;
+        // After a long pause one turn of the wheel covers every slot
+        long firstTick = Math.max(lastTick + 1, currentTick - wheel.length + 1);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            expireSlot(wheel[(int) (tick % wheel.length)], now);
+        }
+        lastTick = Math.max(lastTick, currentTick);
+        if (dead.sum() > Math.max(MIN_DEAD_TO_PURGE, sessions.size())) {
+            purgeDead();
+        }
+    }
+
+    /**
+     * Drops the dead entries from every slot, so replaced sessions do not pile up until their slot comes round.
+     */
+    private void purgeDead() {
+        for (ConcurrentLinkedQueue<Entry> slot : wheel) {
+            slot.removeIf(entry -> {
+                if (!entry.dead) {
+                    return false;
+                }
+                scheduled.decrement();
+                dead.decrement();
+                return true;
+            });
+        }
+    }
+
+    private void expireSlot(ConcurrentLinkedQueue<Entry> slot, long now) {
+        List<Entry> later = new ArrayList<>();
+        Entry entry;
+        while ((entry = slot.poll()) != null) {
+            scheduled.decrement();
+            if (entry.dead) {
+                dead.decrement();
+                continue; // Replaced by a newer login or already removed
+            }
+            if (entry.expiresAtMillis <= now) {
+                if (sessions.remove(entry.email, entry)) {
+                    expired.increment();
+                }
+            } else {
+                later.add(entry); // Expires in a later turn of the wheel
+            }
+        }
+        later.forEach(this::schedule);
+    }
+
+    /**
+     * Evicts sessions until the cap holds, each time the least recently used of a few sampled ones.
+     * The samples are taken by a hand going round the table, so every session gets compared in turn.
+     */
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            while (sessions.size() > maxEntries) {
+                Entry victim = null;
+                int samples = Math.min(EVICTION_SAMPLES, sessions.size());
+                for (int i = 0; i < samples; i++) {
+                    if (evictionHand == null || !evictionHand.hasNext()) {
+                        evictionHand = sessions.values().iterator();
+                        if (!evictionHand.hasNext()) {
+                            return;
+                        }
+                    }
+                    Entry candidate = evictionHand.next();
+                    if (victim == null || candidate.lastAccessMillis < victim.lastAccessMillis) {
+                        victim = candidate;
+                    }
+                }
+                if (victim != null && sessions.remove(victim.email, victim)) {
+                    evicted.increment();
+                    bury(victim);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of sessions held, including expired ones not yet reached by the wheel.
+     */
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns a snapshot of the session statistics.
+     *
+     * @return The statistics by name.
+     */
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("store", "expiring");
+        stats.put("live", sessions.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("scheduled", scheduled.sum());
+        stats.put("dead", dead.sum());
+        stats.put("expired", expired.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+
+    /**
+     * Stops the background thread, the sessions stay readable.
+     */
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+}
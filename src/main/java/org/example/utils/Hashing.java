@@ -0,0 +1,47 @@
+package org.example.utils;
+
+/**
+ * The 64-bit string hash shared by the Bloom filter, the shard ring, the log store index and the compact
+ * session store: FNV-1a over the characters, cheap and allocation free, followed by the MurmurHash3 finalizer,
+ * which spreads every input bit over the whole result so the low and the high bits are equally usable.
+ * <p>
+ * The log store persists these hashes in its index, changing the function means bumping the index version.
+ */
+public final class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private Hashing() {
+    }
+
+    /**
+     * Hashes the UTF-16 characters of a string.
+     *
+     * @param value The string to hash.
+     * @return The 64-bit hash.
+     */
+    public static long hash64(CharSequence value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, a bijection on 64-bit values, so distinct inputs stay distinct.
+     *
+     * @param hash The value to mix.
+     * @return The mixed value.
+     */
+    public static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared JSON codec for the HTTP handlers.
+ * One {@link Gson} instance and its type adapters are shared by all requests (both are thread-safe),
+ * request bodies are bound straight from the input stream and responses are written straight to the output stream,
+ * without building the whole document as a String first.
+ */
+public class JsonCodec {
+
+    private static final Gson GSON = new Gson();
+    private static final Map<Class<?>, TypeAdapter<?>> ADAPTERS = new ConcurrentHashMap<>();
+
+    private JsonCodec() {
+    }
+
+    /**
+     * Binds a JSON document read from a stream to an object.
+     *
+     * @param in The stream holding the UTF-8 encoded JSON document, it is not closed.
+     * @param type The class to bind to.
+     * @param <T> The type to bind to.
+     * @return The object, or null if the stream holds no document or the JSON null literal.
+     * @throws JsonParseException if the document is malformed or does not match the type.
+     */
+    public static <T> T read(InputStream in, Class<T> type) {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            try {
+                if (reader.peek() == JsonToken.END_DOCUMENT) {
+                    return null;
+                }
+            } catch (EOFException e) {
+                // An empty body, the strict reader reports it as an early end of input
+                return null;
+            }
+            return adapterFor(type).read(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    /**
+     * Sends an object as a JSON response. The headers are sent with chunked encoding,
+     * so the document is serialized directly into the response body.
+     *
+     * @param exchange The exchange to respond to.
+     * @param statusCode The HTTP status code.
+     * @param value The object to serialize.
+     * @param <T> The type of the object.
+     * @throws IOException if the response cannot be sent.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void write(HttpExchange exchange, int statusCode, T value) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, 0);
+        try (OutputStream os = exchange.getResponseBody();
+             JsonWriter writer = new JsonWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
+            adapterFor((Class<T>) value.getClass()).write(writer, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TypeAdapter<T> adapterFor(Class<T> type) {
+        return (TypeAdapter<T>) ADAPTERS.computeIfAbsent(type, GSON::getAdapter);
+    }
+}
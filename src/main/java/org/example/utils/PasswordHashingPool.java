@@ -0,0 +1,251 @@
+package org.example.utils;
+
+import org.example.exception.TooManyRequestsException;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the deliberately expensive bcrypt work (hashing and verification) on a dedicated pool
+ * sized to the number of cores, so a burst of logins cannot starve the request threads.
+ * The pool has a bounded wait queue: when it is full the work is rejected immediately
+ * with a {@link TooManyRequestsException} instead of piling up.
+ */
+public class PasswordHashingPool {
+
+    private static final int POOL_SIZE = Integer.getInteger("bcrypt.pool.size",
+            Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = Integer.getInteger("bcrypt.queue.capacity", POOL_SIZE * 16);
+
+    private static PasswordHashingPool passwordHashingPool;
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Singleton pattern to ensure only one instance of PasswordHashingPool exists.
+     *
+     * @return The single instance of PasswordHashingPool.
+     */
+    public static synchronized PasswordHashingPool getInstance() {
+        if (passwordHashingPool == null) {
+            passwordHashingPool = new PasswordHashingPool(POOL_SIZE, QUEUE_CAPACITY);
+        }
+        return passwordHashingPool;
+    }
+
+    PasswordHashingPool(int poolSize, int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ServerExecutors.namedThreadFactory("bcrypt-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Hashes a password with a freshly generated salt.
+     *
+     * @param password The plain text password.
+     * @return The bcrypt hash.
+     * @throws TooManyRequestsException if the wait queue is full.
+     */
+    public String hash(String password) {
+        return run(() -> hashOnCallingThread(password));
+    }
+
+    /**
+     * Hashes a password on the calling thread, for batch jobs that bring their own workers
+     * and must not compete with interactive requests for the pool.
+     * The cost factor is the one {@link BcryptCostCalibrator} picked for this machine.
+     *
+     * @param password The plain text password.
+     * @return The bcrypt hash.
+     */
+    public static String hashOnCallingThread(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(BcryptCostCalibrator.getInstance().getCost()));
+    }
+
+    /**
+     * Checks a plain text password against a bcrypt hash.
+     *
+     * @param password The plain text password.
+     * @param hashedPassword The stored bcrypt hash.
+     * @return true if the password matches, false otherwise.
+     * @throws TooManyRequestsException if the wait queue is full.
+     */
+    public boolean check(String password, String hashedPassword) {
+        return run(() -> BCrypt.checkpw(password, hashedPassword));
+    }
+
+    /**
+     * Hashes a password with a freshly generated salt without waiting for it.
+     *
+     * @param password The plain text password.
+     * @return The future bcrypt hash, failed with a {@link TooManyRequestsException} if the wait queue is full.
+     * Cancelling it, or letting it time out, stops the hashing.
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> hashOnCallingThread(password));
+    }
+
+    /**
+     * Checks a plain text password against a bcrypt hash without waiting for it.
+     *
+     * @param password The plain text password.
+     * @param hashedPassword The stored bcrypt hash.
+     * @return The future result, failed with a {@link TooManyRequestsException} if the wait queue is full.
+     */
+    public CompletableFuture<Boolean> checkAsync(String password, String hashedPassword) {
+        return submit(() -> BCrypt.checkpw(password, hashedPassword));
+    }
+
+    /**
+     * Submits the task to the pool without waiting for it. When the returned future completes exceptionally
+     * before the task, for example cancelled or timed out, the task is cancelled too: a queued task never runs
+     * and a running one is interrupted.
+     */
+    <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long submittedAt = System.nanoTime();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                recordWait(startedAt - submittedAt);
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    totalRunNanos.add(System.nanoTime() - startedAt);
+                    completedTasks.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.increment();
+            result.completeExceptionally(new TooManyRequestsException("Too many password checks in progress",
+                    estimateRetryAfterSeconds()));
+            return result;
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Submits the task to the pool and waits for its result, recording how long it waited in the queue.
+     */
+    <T> T run(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                recordWait(startedAt - submittedAt);
+                try {
+                    return task.call();
+                } finally {
+                    totalRunNanos.add(System.nanoTime() - startedAt);
+                    completedTasks.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.increment();
+            throw new TooManyRequestsException("Too many password checks in progress", estimateRetryAfterSeconds());
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Estimates how long a rejected client should wait: the time the pool needs to drain its current queue.
+     */
+    long estimateRetryAfterSeconds() {
+        long completed = completedTasks.sum();
+        double averageRunNanos = completed == 0 ? TimeUnit.MILLISECONDS.toNanos(100)
+                : (double) totalRunNanos.sum() / completed;
+        double drainNanos = averageRunNanos * executor.getQueue().size() / executor.getMaximumPoolSize();
+        return Math.max(1, (long) Math.ceil(drainNanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * @return The number of tasks waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The average time tasks spent in the queue, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        long completed = completedTasks.sum();
+        return completed == 0 ? 0 : totalWaitNanos.sum() / (completed * 1_000_000.0);
+    }
+
+    /**
+     * @return The number of tasks rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedTasks.sum();
+    }
+
+    /**
+     * Returns a snapshot of the pool statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", executor.getMaximumPoolSize());
+        stats.put("cost", BcryptCostCalibrator.getInstance().stats());
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("queueCapacity", getQueueDepth() + executor.getQueue().remainingCapacity());
+        stats.put("completed", completedTasks.sum());
+        stats.put("rejected", getRejectedCount());
+        stats.put("averageWaitMillis", getAverageWaitMillis());
+        stats.put("maxWaitMillis", maxWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * Stops the worker threads, used in tests.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
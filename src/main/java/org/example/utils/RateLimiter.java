@@ -0,0 +1,174 @@
+package org.example.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per key, for example per client address or per email, checked in well under a microsecond
+ * so a rejected attempt never reaches the JSON binding, the database or bcrypt.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm form of a token bucket), updated with one compare-and-set and no locks.
+ * A bucket that is full again carries no information, so it is evicted by a sweep that runs inline
+ * every sweep interval, or when the table reaches its maximum size and the last sweep is older than a second,
+ * so a flood of new keys does not scan the table on every request. If the table is still full,
+ * new keys share a fixed set of overflow buckets chosen by the hash of the key: memory stays bounded,
+ * a flood of new keys is still limited, and it only locks out the few new clients hashed to the same buckets.
+ */
+public class RateLimiter {
+
+    private static final long SWEEP_INTERVAL_NANOS =
+            TimeUnit.SECONDS.toNanos(Long.getLong("ratelimit.sweep.seconds", 60));
+    private static final long MIN_SWEEP_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("ratelimit.min.sweep.millis", 1_000));
+
+    /**
+     * 64 overflow buckets, picked by the top bits of the hash of the key.
+     */
+    private static final int OVERFLOW_BITS = 6;
+
+    private final int burst;
+    private final long intervalNanos;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong[] overflow = new AtomicLong[1 << OVERFLOW_BITS];
+    private final AtomicLong lastSweep;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    /**
+     * Creates a limiter configured by {@code <prefix>.burst}, {@code <prefix>.per.minute}
+     * and {@code <prefix>.max.keys}.
+     *
+     * @param prefix The prefix of the system properties, for example {@code ratelimit.login.ip}.
+     * @param defaultBurst The number of attempts allowed at once.
+     * @param defaultPerMinute The number of attempts the bucket gets back every minute.
+     * @return The rate limiter.
+     */
+    public static RateLimiter fromProperties(String prefix, int defaultBurst, int defaultPerMinute) {
+        return new RateLimiter(Integer.getInteger(prefix + ".burst", defaultBurst),
+                Integer.getInteger(prefix + ".per.minute", defaultPerMinute),
+                Integer.getInteger(prefix + ".max.keys", 100_000));
+    }
+
+    /**
+     * @param burst The number of attempts allowed at once.
+     * @param perMinute The number of attempts the bucket gets back every minute.
+     * @param maxKeys The maximum number of keys tracked separately.
+     */
+    public RateLimiter(int burst, int perMinute, int maxKeys) {
+        this(burst, perMinute, maxKeys, System::nanoTime);
+    }
+
+    RateLimiter(int burst, int perMinute, int maxKeys, LongSupplier clock) {
+        if (burst < 1 || perMinute < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("The burst, rate and maximum keys must be positive");
+        }
+        this.burst = burst;
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        for (int i = 0; i < overflow.length; i++) {
+            overflow[i] = new AtomicLong(now);
+        }
+        this.lastSweep = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token from the bucket of a key.
+     *
+     * @param key The key to limit, for example the client address.
+     * @return 0 if the attempt is allowed, otherwise the milliseconds until the next attempt will be.
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        if (now - lastSweep.get() >= SWEEP_INTERVAL_NANOS) {
+            sweep(now);
+        }
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(key, now);
+        }
+        long limit = burst * intervalNanos;
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            if (next - now > limit) {
+                rejected.increment();
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next - limit - now));
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong newBucket(String key, long now) {
+        if (buckets.size() >= maxKeys) {
+            if (now - lastSweep.get() >= MIN_SWEEP_INTERVAL_NANOS) {
+                sweep(now);
+            }
+            if (buckets.size() >= maxKeys) {
+                overflowed.increment();
+                return overflow[overflowIndex(key)];
+            }
+        }
+        return buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+    }
+
+    /**
+     * The overflow bucket of a key, always the same one so a key cannot hop between buckets.
+     */
+    static int overflowIndex(String key) {
+        return (int) (Hashing.hash64(key) >>> (Long.SIZE - OVERFLOW_BITS));
+    }
+
+    /**
+     * Evicts the buckets that are full again, one thread at a time while the others carry on.
+     * A thread still holding an evicted bucket may take one token from it that is then forgotten,
+     * which is the price of not locking.
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lastSweep.set(now);
+            int before = buckets.size();
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+            evicted.add(Math.max(0, before - buckets.size()));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the limiter statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("burst", burst);
+        stats.put("perMinute", TimeUnit.MINUTES.toNanos(1) / intervalNanos);
+        stats.put("keys", buckets.size());
+        stats.put("maxKeys", maxKeys);
+        stats.put("allowed", allowed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("overflowed", overflowed.sum());
+        return stats;
+    }
+}
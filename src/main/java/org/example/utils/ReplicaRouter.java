@@ -0,0 +1,251 @@
+package org.example.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Routes reads to read replicas of the primary database, round robin over the replicas in rotation.
+ * <p>
+ * The lag of every replica is measured with a heartbeat: every check first reads from each replica the last beat
+ * it applied, then writes the current time into the replication_heartbeat table on the primary.
+ * A replica holding the latest beat written is caught up; otherwise it has been missing data since the first beat
+ * written after the one it holds, and the age of that beat is its lag. Measuring against the beat it still misses,
+ * rather than the one it holds, keeps a healthy replica that trails by one beat at zero lag instead of one check
+ * interval. A replica lagging more than the maximum lag, or failing to answer,
+ * leaves the rotation until a later check finds it healthy again; with no replica in rotation reads go to the primary.
+ * <p>
+ * Reads of an email written recently, for example right after verification flipped its status, go to the primary
+ * for as long as a replica in rotation may still miss the write (the maximum lag plus one check interval),
+ * so a user always reads their own writes.
+ */
+public class ReplicaRouter implements AutoCloseable {
+
+    /**
+     * A replica and its health as of the last check.
+     */
+    private static class Replica {
+        private final String name;
+        private final ConnectionPool pool;
+        // Out of rotation until the first check measured the lag
+        private volatile boolean healthy;
+        private volatile long lagMillis = -1;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        private Replica(String name, ConnectionPool pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final long checkMillis;
+    private final long readYourWritesMillis;
+    private final LongSupplier clock;
+    private final AtomicInteger next = new AtomicInteger();
+    // Email -> time until which its reads go to the primary
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder readYourWritesReads = new LongAdder();
+    // The beats this router wrote, oldest first, only touched by the checks
+    private final Deque<Long> writtenBeats = new ArrayDeque<>();
+    private ScheduledExecutorService checker;
+
+    /**
+     * @param primary The pool of the primary database, the writes go there.
+     * @param replicas The pools of the replicas by name, for example by URL.
+     * @param maxLagMillis A replica lagging more than this leaves the rotation.
+     * @param checkMillis How often the lag of the replicas is measured, the lag is only known to this precision.
+     * @throws IllegalArgumentException if the maximum lag is not above the check interval.
+     */
+    public ReplicaRouter(ConnectionPool primary, Map<String, ConnectionPool> replicas, long maxLagMillis,
+                         long checkMillis) {
+        this(primary, replicas, maxLagMillis, checkMillis, System::currentTimeMillis);
+    }
+
+    ReplicaRouter(ConnectionPool primary, Map<String, ConnectionPool> replicas, long maxLagMillis, long checkMillis,
+                  LongSupplier clock) {
+        if (maxLagMillis <= checkMillis) {
+            throw new IllegalArgumentException("The maximum replica lag (" + maxLagMillis
+                    + " ms) must be above the check interval (" + checkMillis + " ms)");
+        }
+        this.primary = primary;
+        replicas.forEach((name, pool) -> this.replicas.add(new Replica(name, pool)));
+        this.maxLagMillis = maxLagMillis;
+        this.checkMillis = checkMillis;
+        this.readYourWritesMillis = maxLagMillis + checkMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts checking the replicas in the background, the first check runs right away.
+     */
+    public synchronized void start() {
+        if (checker == null) {
+            checker = Executors.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("db-replicas-"));
+            checker.scheduleWithFixedDelay(this::checkReplicas, 0, checkMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns a connection for a read about one email, from a replica in rotation unless the email was written
+     * recently or no replica is available.
+     *
+     * @param email The email the read is about, or null if it is not about one user.
+     * @return A connection, closing it gives it back to its pool.
+     * @throws SQLException If no connection can be obtained from the primary either.
+     */
+    public Connection getReadConnection(String email) throws SQLException {
+        if (email != null && wasWrittenRecently(email)) {
+            readYourWritesReads.increment();
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.pool.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                // Out of rotation until the next check finds it healthy
+                replica.healthy = false;
+                replica.failures.increment();
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    private boolean wasWrittenRecently(String email) {
+        Long until = recentWrites.get(email);
+        if (until == null) {
+            return false;
+        }
+        if (until > clock.getAsLong()) {
+            return true;
+        }
+        recentWrites.remove(email, until);
+        return false;
+    }
+
+    /**
+     * Records a write about an email, so its reads go to the primary until the replicas have it.
+     *
+     * @param email The email that was written.
+     */
+    public void recordWrite(String email) {
+        recentWrites.put(email, clock.getAsLong() + readYourWritesMillis);
+    }
+
+    /**
+     * Measures the lag of every replica against the heartbeats written so far, then writes the next heartbeat.
+     */
+    synchronized void checkReplicas() {
+        long now = clock.getAsLong();
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "SELECT beat_millis FROM replication_heartbeat WHERE id = 1");
+                 ResultSet resultSet = statement.executeQuery()) {
+                replica.lagMillis = resultSet.next() ? lagSince(resultSet.getLong(1), now) : -1;
+                replica.healthy = replica.lagMillis >= 0 && replica.lagMillis <= maxLagMillis;
+            } catch (SQLException e) {
+                replica.healthy = false;
+                replica.lagMillis = -1;
+                replica.failures.increment();
+            }
+        }
+        try (Connection connection = primary.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "UPDATE replication_heartbeat SET beat_millis = ? WHERE id = 1")) {
+            statement.setLong(1, now);
+            statement.executeUpdate();
+            writtenBeats.addLast(now);
+        } catch (SQLException e) {
+            System.err.println("Replication heartbeat not written: " + e.getMessage());
+        }
+        // Beats older than this only tell a replica is over the maximum lag, which the fallback tells as well
+        while (!writtenBeats.isEmpty() && now - writtenBeats.peekFirst() > maxLagMillis + checkMillis) {
+            writtenBeats.removeFirst();
+        }
+        recentWrites.values().removeIf(until -> until <= now);
+    }
+
+    /**
+     * The lag of a replica holding a beat: the age of the first beat written after it, which it is still missing.
+     * A replica holding the latest beat, or a newer one written by another server, is caught up.
+     * Before this router wrote any beat, the age of the beat held is the best bound available.
+     */
+    private long lagSince(long appliedBeat, long now) {
+        if (writtenBeats.isEmpty()) {
+            return Math.max(0, now - appliedBeat);
+        }
+        for (long beat : writtenBeats) {
+            if (beat > appliedBeat) {
+                return Math.max(0, now - beat);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a snapshot of the routing statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxLagMillis", maxLagMillis);
+        stats.put("primaryReads", primaryReads.sum());
+        stats.put("readYourWritesReads", readYourWritesReads.sum());
+        stats.put("recentWrites", recentWrites.size());
+        List<Map<String, Object>> replicaStats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", replica.name);
+            entry.put("healthy", replica.healthy);
+            entry.put("lagMillis", replica.lagMillis);
+            entry.put("reads", replica.reads.sum());
+            entry.put("failures", replica.failures.sum());
+            entry.put("pool", replica.pool.stats());
+            replicaStats.add(entry);
+        }
+        stats.put("replicas", replicaStats);
+        return stats;
+    }
+
+    /**
+     * Stops the checks and closes the replica pools, the primary pool is left open.
+     */
+    @Override
+    public synchronized void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+            checker = null;
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.exception.PayloadTooLargeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads request bodies into reused byte buffers with a hard size limit.
+ * Every buffer is exactly as large as the maximum body, so one in-flight request never holds more than that,
+ * and at most {@code poolSize} idle buffers are kept for reuse. A body that is announced with a larger
+ * Content-Length is refused before anything is read, a chunked body is refused as soon as it passes the limit.
+ */
+public class RequestBodyReader {
+
+    private static final int MAX_BODY_BYTES = Integer.getInteger("http.max.body.bytes", 16 * 1024);
+    private static final int BUFFER_POOL_SIZE = Integer.getInteger("http.body.buffer.pool", 64);
+
+    private static RequestBodyReader requestBodyReader;
+
+    private final int maxBodyBytes;
+    private final BlockingQueue<byte[]> idleBuffers;
+    private final LongAdder allocatedBuffers = new LongAdder();
+    private final LongAdder readBodies = new LongAdder();
+    private final LongAdder rejectedBodies = new LongAdder();
+
+    /**
+     * Singleton pattern to ensure only one instance of RequestBodyReader exists.
+     *
+     * @return The single instance of RequestBodyReader.
+     */
+    public static synchronized RequestBodyReader getInstance() {
+        if (requestBodyReader == null) {
+            requestBodyReader = new RequestBodyReader(MAX_BODY_BYTES, BUFFER_POOL_SIZE);
+        }
+        return requestBodyReader;
+    }
+
+    RequestBodyReader(int maxBodyBytes, int poolSize) {
+        this.maxBodyBytes = maxBodyBytes;
+        this.idleBuffers = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * Reads the whole request body into a pooled buffer. The returned body must be closed to give the buffer back.
+     *
+     * @param exchange The exchange whose body is read.
+     * @return The body.
+     * @throws PayloadTooLargeException if the body is larger than the limit.
+     * @throws IOException if the body cannot be read.
+     */
+    public Body read(HttpExchange exchange) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxBodyBytes) {
+                    throw tooLarge();
+                }
+            } catch (NumberFormatException e) {
+                // Let the server's own framing decide, the limit below still applies
+            }
+        }
+        return read(exchange.getRequestBody());
+    }
+
+    /**
+     * Reads a stream into a pooled buffer, stopping with an exception as soon as it passes the limit.
+     */
+    Body read(InputStream in) throws IOException {
+        byte[] buffer = borrow();
+        int length = 0;
+        try {
+            int n;
+            while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += n;
+            }
+            // The buffer is full, the body is only acceptable if the stream ends right here
+            if (length == buffer.length && in.read() != -1) {
+                throw tooLarge();
+            }
+        } catch (IOException | RuntimeException e) {
+            release(buffer);
+            throw e;
+        }
+        readBodies.increment();
+        return new Body(buffer, length);
+    }
+
+    /**
+     * Reads the request body and binds it as JSON, giving the buffer back right after.
+     *
+     * @param exchange The exchange whose body is read.
+     * @param type The class to bind to.
+     * @param <T> The type to bind to.
+     * @return The object, or null if the body is empty.
+     * @throws PayloadTooLargeException if the body is larger than the limit.
+     * @throws com.google.gson.JsonParseException if the body is not valid JSON for the type.
+     * @throws IOException if the body cannot be read.
+     */
+    public <T> T readJson(HttpExchange exchange, Class<T> type) throws IOException {
+        try (Body body = read(exchange)) {
+            return JsonCodec.read(body.asStream(), type);
+        }
+    }
+
+    private PayloadTooLargeException tooLarge() {
+        rejectedBodies.increment();
+        return new PayloadTooLargeException("Request body is larger than " + maxBodyBytes + " bytes", maxBodyBytes);
+    }
+
+    private byte[] borrow() {
+        byte[] buffer = idleBuffers.poll();
+        if (buffer == null) {
+            allocatedBuffers.increment();
+            buffer = new byte[maxBodyBytes];
+        }
+        return buffer;
+    }
+
+    private void release(byte[] buffer) {
+        // Buffers beyond the pool size are left to the garbage collector
+        idleBuffers.offer(buffer);
+    }
+
+    /**
+     * @return The largest accepted body in bytes.
+     */
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * Returns a snapshot of the reader statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxBodyBytes", maxBodyBytes);
+        stats.put("idleBuffers", idleBuffers.size());
+        stats.put("allocatedBuffers", allocatedBuffers.sum());
+        stats.put("bodiesRead", readBodies.sum());
+        stats.put("bodiesRejected", rejectedBodies.sum());
+        return stats;
+    }
+
+    /**
+     * A request body held in a pooled buffer. Closing it gives the buffer back, after which it must not be used.
+     */
+    public class Body implements AutoCloseable {
+
+        private byte[] buffer;
+        private final int length;
+
+        private Body(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+        /**
+         * @return A stream over the body bytes, backed by the pooled buffer.
+         */
+        public InputStream asStream() {
+            if (buffer == null) {
+                throw new IllegalStateException("Body already released");
+            }
+            return new ByteArrayInputStream(buffer, 0, length);
+        }
+
+        /**
+         * @return The body length in bytes.
+         */
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void close() {
+            if (buffer != null) {
+                release(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
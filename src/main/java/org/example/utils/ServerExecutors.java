@@ -0,0 +1,156 @@
+package org.example.utils;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors on which the HTTP server runs its handlers.
+ * Three execution models are supported: a virtual thread per request, a bounded pool of platform threads,
+ * or inline execution on the server's dispatcher thread (the JDK default when no executor is set).
+ */
+public class ServerExecutors {
+
+    private static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int POOL_SIZE = Integer.getInteger("server.pool.size", DEFAULT_POOL_SIZE);
+    private static final int POOL_QUEUE_CAPACITY = Integer.getInteger("server.pool.queue", 1000);
+    private static final int BLOCKING_IO_POOL_SIZE = Integer.getInteger("blocking.io.pool.size", DEFAULT_POOL_SIZE);
+
+    /**
+     * The supported execution models.
+     */
+    public enum Mode {
+        VIRTUAL,
+        POOL,
+        INLINE
+    }
+
+    private ServerExecutors() {
+    }
+
+    /**
+     * Reads the execution model from the "server.executor" system property.
+     *
+     * @return The configured mode, {@link Mode#VIRTUAL} if nothing is configured.
+     * @throws IllegalArgumentException if the property holds an unknown mode.
+     */
+    public static Mode configuredMode() {
+        String mode = System.getProperty("server.executor", "virtual");
+        return Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the execution model actually used for a configured one,
+     * {@link Mode#VIRTUAL} falls back to {@link Mode#POOL} on runtimes without virtual threads.
+     *
+     * @param mode The configured execution model.
+     * @return The execution model in effect.
+     */
+    public static Mode effectiveMode(Mode mode) {
+        return mode == Mode.VIRTUAL && virtualThreadFactory() == null ? Mode.POOL : mode;
+    }
+
+    /**
+     * Creates an executor for the given mode.
+     *
+     * @param mode The execution model.
+     * @return The executor, or null for {@link Mode#INLINE} so the server keeps its dispatcher thread.
+     */
+    public static ExecutorService create(Mode mode) {
+        switch (mode) {
+            case VIRTUAL:
+                return newVirtualThreadExecutor();
+            case POOL:
+                return newBoundedPool(POOL_SIZE, POOL_QUEUE_CAPACITY);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Creates a fixed pool of platform threads with a bounded queue.
+     * When the queue is full the task runs on the submitting (dispatcher) thread,
+     * which slows down accepting new connections instead of dropping them.
+     *
+     * @param poolSize The number of worker threads.
+     * @param queueCapacity The number of requests that may wait for a worker.
+     * @return The pool.
+     */
+    static ExecutorService newBoundedPool(int poolSize, int queueCapacity) {
+        return newBoundedPool(poolSize, queueCapacity, "http-worker-");
+    }
+
+    private static ExecutorService newBoundedPool(int poolSize, int queueCapacity, String prefix) {
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreadFactory(prefix),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread per task. Virtual threads need Java 21,
+     * the project targets Java 17, so the factory method is looked up at runtime.
+     * On older runtimes the bounded pool of {@link Mode#POOL} is used instead.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        return newVirtualThreadExecutor("http-worker-", POOL_SIZE, POOL_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates an executor for the blocking calls (JDBC, spool files) made on behalf of asynchronous requests,
+     * so the request threads never wait for them: a virtual thread per call where available,
+     * otherwise a bounded pool of blocking.io.pool.size platform threads.
+     *
+     * @return The executor.
+     */
+    public static ExecutorService newBlockingIoExecutor() {
+        return newVirtualThreadExecutor("blocking-io-", BLOCKING_IO_POOL_SIZE, POOL_QUEUE_CAPACITY);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor(String fallbackPrefix, int poolSize, int queueCapacity) {
+        Method factory = virtualThreadFactory();
+        if (factory != null) {
+            try {
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Falls back to the pool below
+            }
+        }
+        System.out.println("Virtual threads are not available on this runtime, using a pool of " + poolSize
+                + " " + fallbackPrefix + "threads");
+        return newBoundedPool(poolSize, queueCapacity, fallbackPrefix);
+    }
+
+    /**
+     * @return The factory method of the virtual thread executor, or null if the runtime has none.
+     */
+    private static Method virtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a thread factory producing daemon threads named with the given prefix and a counter.
+     *
+     * @param prefix The thread name prefix.
+     * @return The thread factory.
+     */
+    public static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
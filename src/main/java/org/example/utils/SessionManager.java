@@ -2,18 +2,30 @@ package org.example.utils;
 
 import org.example.model.SessionToken;
 
-import java.time.LocalDateTime;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages session tokens for users.
  * This class provides functionalities to store and retrieve session tokens associated with user email addresses.
- * It uses a {@link ConcurrentHashMap} to ensure thread-safe operations.
+ * The tokens are kept in an {@link ExpiringSessionStore}, which removes them once they expire
+ * and optionally caps their number with {@code session.max.entries},
+ * or with {@code -Dsession.store=compact} in a {@link CompactSessionStore} built for millions of sessions.
  */
 public class SessionManager {
-    // Using concurrentHashMap, so we can use more threads and the map to function properly
-    private static ConcurrentHashMap<String, SessionToken> sessionTokens = new ConcurrentHashMap<>();
     private static final int TOKEN_TTL_MINUTES = 30; // TTL(Time to live) will be 30 minutes
+    private static final int MAX_SESSIONS = Integer.getInteger("session.max.entries", 0);
+
+    // Safe to use from many threads, expired tokens are removed in the background
+    private static final SessionStore sessionTokens = createStore();
+
+    private static SessionStore createStore() {
+        long ttlMillis = TimeUnit.MINUTES.toMillis(TOKEN_TTL_MINUTES);
+        SessionStore store = "compact".equals(System.getProperty("session.store"))
+                ? new CompactSessionStore(ttlMillis) : new ExpiringSessionStore(ttlMillis, MAX_SESSIONS);
+        store.start();
+        return store;
+    }
 
     /**
      * Stores a session token for a user identified by an email.
@@ -23,13 +35,19 @@ public class SessionManager {
      * @param sessionToken The session token to be stored.
      */
     public static void storeSessionToken(String email, String sessionToken) {
-        LocalDateTime expiryTime = LocalDateTime.now().plusMinutes(TOKEN_TTL_MINUTES);
-        sessionTokens.put(email, new SessionToken(sessionToken, expiryTime));
+        sessionTokens.put(email, sessionToken);
+    }
+
+    /**
+     * @return How long a session token stays valid, in minutes.
+     */
+    public static int getTokenTtlMinutes() {
+        return TOKEN_TTL_MINUTES;
     }
 
     /**
      * Retrieves the session token for a user identified by an email.
-     * If no token is associated with the email, this method returns null.
+     * If no token is associated with the email, or it has expired, this method returns null.
      *
      * @param email The email address of the user whose session token is to be retrieved.
      * @return The {@link SessionToken} associated with the user, or null if no token is found.
@@ -37,4 +55,24 @@ public class SessionManager {
     public static SessionToken getSessionToken(String email) {
         return sessionTokens.get(email);
     }
+
+    /**
+     * Checks that a token is the live session of a user, without building a {@link SessionToken}.
+     *
+     * @param email The email address of the user.
+     * @param sessionToken The session token sent by the client.
+     * @return true if the session is valid, false otherwise.
+     */
+    public static boolean isSessionValid(String email, String sessionToken) {
+        return sessionToken != null && sessionTokens.isValid(email, sessionToken);
+    }
+
+    /**
+     * Returns a snapshot of the session statistics.
+     *
+     * @return The statistics by name.
+     */
+    public static Map<String, Object> stats() {
+        return sessionTokens.stats();
+    }
 }
@@ -0,0 +1,59 @@
+package org.example.utils;
+
+import org.example.model.SessionToken;
+
+import java.util.Map;
+
+/**
+ * Storage of the session tokens by email, chosen with {@code session.store}, see {@link SessionManager}.
+ * Expired sessions are never returned and are removed in the background.
+ */
+public interface SessionStore {
+
+    /**
+     * Starts the background removal of the expired sessions.
+     */
+    void start();
+
+    /**
+     * Stores the session of a user, replacing the previous one.
+     *
+     * @param email The email of the user.
+     * @param sessionToken The session token.
+     */
+    void put(String email, String sessionToken);
+
+    /**
+     * Retrieves the session of a user.
+     *
+     * @param email The email of the user.
+     * @return The session token, or null if the user has no live session.
+     */
+    SessionToken get(String email);
+
+    /**
+     * Checks a session token without building a {@link SessionToken}, for the per-request authentication.
+     *
+     * @param email The email of the user.
+     * @param sessionToken The session token sent by the client.
+     * @return true if it is the live session of the user, false otherwise.
+     */
+    boolean isValid(String email, String sessionToken);
+
+    /**
+     * @return The number of sessions held, including expired ones not removed yet.
+     */
+    int size();
+
+    /**
+     * Returns a snapshot of the session statistics.
+     *
+     * @return The statistics by name.
+     */
+    Map<String, Object> stats();
+
+    /**
+     * Stops the background removal, the sessions stay readable.
+     */
+    void close();
+}
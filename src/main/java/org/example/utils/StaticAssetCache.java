@@ -0,0 +1,406 @@
+package org.example.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory cache of the static files served by the application.
+ * All files under the root directory are loaded once, together with a gzip variant for the compressible ones,
+ * their ETag and their Last-Modified date, so serving a page never touches the filesystem.
+ * Files larger than "static.cache.max.file.bytes" are not held in memory, only their metadata is cached
+ * and they are streamed from disk when requested.
+ * A background watcher reloads an entry when its file changes on disk and drops it when the file is deleted.
+ */
+public class StaticAssetCache implements AutoCloseable {
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=utf-8"),
+            Map.entry("css", "text/css; charset=utf-8"),
+            Map.entry("js", "application/javascript; charset=utf-8"),
+            Map.entry("json", "application/json; charset=utf-8"),
+            Map.entry("txt", "text/plain; charset=utf-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff2", "font/woff2"));
+
+    private static final long MAX_CACHED_FILE_BYTES = Long.getLong("static.cache.max.file.bytes", 256 * 1024);
+
+    private final Path root;
+    private final long maxCachedFileBytes;
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    private final Map<String, LargeFile> largeFiles = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final LongAdder reloads = new LongAdder();
+    private WatchService watchService;
+
+    /**
+     * A cached file: its content, the gzip variant if it is worth having, and its validators.
+     */
+    public static class Asset {
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final String contentType;
+        private final String etag;
+        private final long lastModifiedMillis;
+        private final String lastModifiedHttpDate;
+
+        Asset(byte[] content, byte[] gzipContent, String contentType, String etag, long lastModifiedMillis) {
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.lastModifiedHttpDate = HTTP_DATE.format(Instant.ofEpochMilli(lastModifiedMillis));
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * @return The gzip compressed content, or null if the file is not compressible.
+         */
+        public byte[] getGzipContent() {
+            return gzipContent;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return The ETag of the gzip variant, which must differ from the one of the identity encoding.
+         */
+        public String getGzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+
+        public long getLastModifiedMillis() {
+            return lastModifiedMillis;
+        }
+
+        public String getLastModifiedHttpDate() {
+            return lastModifiedHttpDate;
+        }
+    }
+
+    /**
+     * A file too large to be held in memory: where it is and its validators.
+     */
+    public static class LargeFile {
+        private final Path path;
+        private final long size;
+        private final String etag;
+        private final long lastModifiedMillis;
+        private final String lastModifiedHttpDate;
+
+        LargeFile(Path path, long size, long lastModifiedMillis) {
+            this.path = path;
+            this.size = size;
+            this.etag = String.format("\"%x-%x\"", lastModifiedMillis, size);
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.lastModifiedHttpDate = HTTP_DATE.format(Instant.ofEpochMilli(lastModifiedMillis));
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getContentType() {
+            return contentTypeOf(path);
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getLastModifiedMillis() {
+            return lastModifiedMillis;
+        }
+
+        public String getLastModifiedHttpDate() {
+            return lastModifiedHttpDate;
+        }
+    }
+
+    /**
+     * Loads every file under the root directory, using the configured size limit for in-memory files.
+     *
+     * @param root The directory holding the static files.
+     */
+    public StaticAssetCache(Path root) {
+        this(root, MAX_CACHED_FILE_BYTES);
+    }
+
+    /**
+     * Loads every file under the root directory.
+     *
+     * @param root The directory holding the static files.
+     * @param maxCachedFileBytes Files larger than this are streamed from disk instead of held in memory.
+     */
+    public StaticAssetCache(Path root, long maxCachedFileBytes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxCachedFileBytes = maxCachedFileBytes;
+        try (Stream<Path> files = Files.walk(this.root)) {
+            files.filter(Files::isRegularFile).forEach(this::load);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the static files from " + root, e);
+        }
+    }
+
+    /**
+     * Returns the cached file for a request path such as "/css/style.css".
+     *
+     * @param requestPath The path of the request URI.
+     * @return The cached file, or null if there is none.
+     */
+    public Asset get(String requestPath) {
+        return assets.get(requestPath);
+    }
+
+    /**
+     * Returns the large file for a request path. The file itself is not read.
+     *
+     * @param requestPath The path of the request URI.
+     * @return The metadata of the large file, or null if there is none.
+     */
+    public LargeFile getLargeFile(String requestPath) {
+        return largeFiles.get(requestPath);
+    }
+
+    /**
+     * @return The number of cached files.
+     */
+    public int size() {
+        return assets.size();
+    }
+
+    /**
+     * Starts a daemon thread watching the root directory and its subdirectories for changes.
+     *
+     * @throws IOException if the watch service cannot be created.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        WatchService service = root.getFileSystem().newWatchService();
+        watchService = service;
+        try (Stream<Path> directories = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                watch(service, directory);
+            }
+        }
+        // The thread keeps its own reference, close() clears the field while it runs
+        Thread watcher = new Thread(() -> watchLoop(service), "static-asset-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(WatchService service, Path directory) throws IOException {
+        WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirectories.put(key, directory);
+    }
+
+    private void watchLoop(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path directory = watchedDirectories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        reloadAll();
+                        continue;
+                    }
+                    Path changed = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        invalidate(changed);
+                    } else if (Files.isDirectory(changed)) {
+                        registerNewDirectory(service, changed);
+                    } else {
+                        load(changed);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed, the thread ends
+        }
+    }
+
+    private void registerNewDirectory(WatchService service, Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    watch(service, path);
+                } else {
+                    load(path);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reloads every file, then drops the entries of the files that are gone.
+     * The entries are replaced one by one, so the files keep being served during the reload.
+     */
+    void reloadAll() {
+        Set<String> present = new HashSet<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                present.add(keyFor(file));
+                load(file);
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            return; // Keep what is cached rather than drop files that were not reached
+        }
+        assets.keySet().retainAll(present);
+        largeFiles.keySet().retainAll(present);
+    }
+
+    /**
+     * Removes a file, or every file of a deleted directory, from the cache.
+     */
+    private void invalidate(Path path) {
+        String key = keyFor(path);
+        assets.keySet().removeIf(cached -> cached.equals(key) || cached.startsWith(key + "/"));
+        largeFiles.keySet().removeIf(cached -> cached.equals(key) || cached.startsWith(key + "/"));
+    }
+
+    /**
+     * Reads a file into the cache, replacing the previous entry.
+     */
+    void load(Path file) {
+        try {
+            String key = keyFor(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            long size = Files.size(file);
+            if (size > maxCachedFileBytes) {
+                assets.remove(key);
+                largeFiles.put(key, new LargeFile(file.toAbsolutePath().normalize(), size, lastModified));
+                reloads.increment();
+                return;
+            }
+            byte[] content = Files.readAllBytes(file);
+            String contentType = contentTypeOf(file);
+            byte[] gzipContent = isCompressible(contentType) ? gzip(content) : null;
+            if (gzipContent != null && gzipContent.length >= content.length) {
+                gzipContent = null; // Not worth it
+            }
+            largeFiles.remove(key);
+            assets.put(key, new Asset(content, gzipContent, contentType, etagOf(content), lastModified));
+            reloads.increment();
+        } catch (NoSuchFileException e) {
+            invalidate(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private String keyFor(Path file) {
+        Path relative = root.relativize(file.toAbsolutePath().normalize());
+        return "/" + relative.toString().replace('\\', '/');
+    }
+
+    /**
+     * Returns the content type for a file, based on its extension.
+     *
+     * @param file The file.
+     * @return The content type, "application/octet-stream" for unknown extensions.
+     */
+    public static String contentTypeOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json") || contentType.equals("image/svg+xml");
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(content);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String etagOf(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return String.format("\"%08x-%x\"", crc.getValue(), content.length);
+    }
+
+    /**
+     * Returns a snapshot of the cache statistics.
+     *
+     * @return The statistics by name.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long bytes = 0;
+        for (Asset asset : assets.values()) {
+            bytes += asset.content.length + (asset.gzipContent == null ? 0 : asset.gzipContent.length);
+        }
+        stats.put("files", assets.size());
+        stats.put("bytes", bytes);
+        stats.put("largeFiles", largeFiles.size());
+        stats.put("loads", reloads.sum());
+        return stats;
+    }
+
+    /**
+     * Stops watching the root directory.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+}
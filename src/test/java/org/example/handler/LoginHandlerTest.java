@@ -0,0 +1,83 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.repository.CredentialCache;
+import org.example.repository.UserStore;
+import org.example.service.UserService;
+import org.example.utils.RateLimiter;
+import org.example.utils.SessionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoginHandlerTest {
+
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+    private final Headers responseHeaders = new Headers();
+    private LoginHandler loginHandler;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        UserStore userStore = mock(UserStore.class);
+        when(userStore.getCredentials("mima@example.com"))
+                .thenReturn(new CredentialCache.Credentials(BCrypt.hashpw("password123", BCrypt.gensalt(4)), true));
+        UserService.getInstance().setUserRepository(userStore);
+        loginHandler = new LoginHandler(new RateLimiter(5, 10, 100));
+    }
+
+    private HttpExchange post(String json) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestMethod()).thenReturn("POST");
+        when(exchange.getRequestHeaders()).thenReturn(new Headers());
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        when(exchange.getResponseHeaders()).thenReturn(responseHeaders);
+        when(exchange.getResponseBody()).thenReturn(responseBody);
+        return exchange;
+    }
+
+    @Test
+    public void testSuccessfulLoginShouldSetSessionCookies() throws IOException {
+        // GIVEN
+        HttpExchange exchange = post("{\"email\":\" Mima@Example.com\",\"password\":\"password123\"}");
+
+        // WHEN
+        loginHandler.handle(exchange);
+
+        // THEN the cookies carry the session of the normalized email
+        verify(exchange, timeout(10_000)).sendResponseHeaders(eq(200), anyLong());
+        List<String> cookies = responseHeaders.get("Set-Cookie");
+        assertEquals(2, cookies.size());
+        String attributes = "; Path=/; Max-Age=" + SessionManager.getTokenTtlMinutes() * 60
+                + "; HttpOnly; SameSite=Strict";
+        assertTrue(cookies.get(0).startsWith("SESSION="));
+        assertTrue(cookies.get(0).endsWith(attributes), cookies.get(0));
+        assertEquals("SESSION_USER=mima%40example.com" + attributes, cookies.get(1));
+        String sessionToken = cookies.get(0).substring("SESSION=".length(), cookies.get(0).indexOf(';'));
+        assertTrue(SessionManager.isSessionValid("mima@example.com", sessionToken));
+    }
+
+    @Test
+    public void testFailedLoginShouldNotSetCookies() throws IOException {
+        // GIVEN
+        HttpExchange exchange = post("{\"email\":\"mima@example.com\",\"password\":\"wrongPassword\"}");
+
+        // WHEN
+        loginHandler.handle(exchange);
+
+        // THEN
+        verify(exchange, timeout(10_000)).sendResponseHeaders(eq(401), anyLong());
+        assertNull(responseHeaders.get("Set-Cookie"));
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.utils.SessionManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The /me context as Main sets it up: the {@link SessionAuthFilter} in front of the {@link MeHandler}.
+ */
+class MeHandlerTest {
+
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+
+    private HttpExchange getWithCookies(String... cookieHeaders) {
+        Headers requestHeaders = new Headers();
+        for (String cookieHeader : cookieHeaders) {
+            requestHeaders.add("Cookie", cookieHeader);
+        }
+        Map<String, Object> attributes = new HashMap<>();
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(responseBody);
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(exchange).setAttribute(anyString(), any());
+        when(exchange.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.getArgument(0)));
+        return exchange;
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        new Filter.Chain(List.of(new SessionAuthFilter()), new MeHandler()).doFilter(exchange);
+    }
+
+    private static String sessionCookies(String email, String sessionToken) {
+        return "SESSION=" + sessionToken + "; SESSION_USER=" + URLEncoder.encode(email, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRequestWithoutCookiesShouldBeUnauthorized() throws IOException {
+        // GIVEN
+        HttpExchange exchange = getWithCookies();
+
+        // WHEN
+        handle(exchange);
+
+        // THEN
+        verify(exchange).sendResponseHeaders(eq(401), anyLong());
+        assertEquals("Not logged in", responseBody.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRequestWithOnlyOneCookieShouldBeUnauthorized() throws IOException {
+        // GIVEN
+        String sessionToken = UUID.randomUUID().toString();
+        SessionManager.storeSessionToken("mima@example.com", sessionToken);
+        HttpExchange exchange = getWithCookies("SESSION=" + sessionToken);
+
+        // WHEN
+        handle(exchange);
+
+        // THEN
+        verify(exchange).sendResponseHeaders(eq(401), anyLong());
+    }
+
+    @Test
+    public void testRequestWithWrongTokenShouldBeUnauthorized() throws IOException {
+        // GIVEN
+        SessionManager.storeSessionToken("mima@example.com", UUID.randomUUID().toString());
+        HttpExchange exchange = getWithCookies(sessionCookies("mima@example.com", UUID.randomUUID().toString()));
+
+        // WHEN
+        handle(exchange);
+
+        // THEN
+        verify(exchange).sendResponseHeaders(eq(401), anyLong());
+        assertNull(exchange.getAttribute(SessionAuthFilter.EMAIL_ATTRIBUTE));
+    }
+
+    @Test
+    public void testRequestWithStoredSessionShouldReturnTheUser() throws IOException {
+        // GIVEN
+        String sessionToken = UUID.randomUUID().toString();
+        SessionManager.storeSessionToken("galin@example.com", sessionToken);
+        HttpExchange exchange = getWithCookies(sessionCookies("galin@example.com", sessionToken));
+
+        // WHEN
+        handle(exchange);
+
+        // THEN
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        String body = responseBody.toString(StandardCharsets.UTF_8);
+        assertTrue(body.contains("\"userEmail\":\"galin@example.com\""), body);
+        assertTrue(body.contains("\"sessionExpiresAt\""), body);
+        assertEquals("galin@example.com", exchange.getAttribute(SessionAuthFilter.EMAIL_ATTRIBUTE));
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.utils.SessionManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SessionCookiesTest {
+
+    private static HttpExchange exchangeWithCookies(String... cookieHeaders) {
+        Headers requestHeaders = new Headers();
+        for (String cookieHeader : cookieHeaders) {
+            requestHeaders.add("Cookie", cookieHeader);
+        }
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        return exchange;
+    }
+
+    @Test
+    public void testReadShouldReturnNullWithoutCookies() {
+        // GIVEN
+        HttpExchange exchange = exchangeWithCookies();
+
+        // WHEN, THEN
+        assertNull(SessionCookies.read(exchange, SessionCookies.TOKEN_COOKIE));
+    }
+
+    @Test
+    public void testReadShouldFindCookieAmongOthers() {
+        // GIVEN
+        HttpExchange exchange = exchangeWithCookies("theme=dark; SESSION=abc-123 ;lang=bg", "other=1");
+
+        // WHEN, THEN
+        assertEquals("abc-123", SessionCookies.read(exchange, SessionCookies.TOKEN_COOKIE));
+        assertNull(SessionCookies.read(exchange, SessionCookies.EMAIL_COOKIE));
+    }
+
+    @Test
+    public void testReadShouldDecodeUrlEncodedValue() {
+        // GIVEN
+        HttpExchange exchange = exchangeWithCookies("SESSION_USER=mima%40example.com");
+
+        // WHEN, THEN
+        assertEquals("mima@example.com", SessionCookies.read(exchange, SessionCookies.EMAIL_COOKIE));
+    }
+
+    @Test
+    public void testReadShouldIgnoreMalformedCookies() {
+        // GIVEN a pair without a value separator, one with an empty name and a broken percent escape
+        HttpExchange exchange = exchangeWithCookies("SESSION; =x; SESSION_USER=mima%zz");
+
+        // WHEN, THEN
+        assertNull(SessionCookies.read(exchange, SessionCookies.TOKEN_COOKIE));
+        assertNull(SessionCookies.read(exchange, SessionCookies.EMAIL_COOKIE));
+    }
+
+    @Test
+    public void testIssueShouldSetHttpOnlyStrictCookiesExpiringWithTheSession() {
+        // GIVEN
+        HttpExchange exchange = exchangeWithCookies();
+
+        // WHEN
+        SessionCookies.issue(exchange, "mima@example.com", "abc-123");
+
+        // THEN
+        List<String> cookies = exchange.getResponseHeaders().get("Set-Cookie");
+        String attributes = "; Path=/; Max-Age=" + SessionManager.getTokenTtlMinutes() * 60
+                + "; HttpOnly; SameSite=Strict";
+        assertEquals(List.of("SESSION=abc-123" + attributes, "SESSION_USER=mima%40example.com" + attributes),
+                cookies);
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.handler;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StaticFileHandlerTest {
+
+    @TempDir
+    Path root;
+
+    private StaticFileHandler handler;
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+    private final Headers responseHeaders = new Headers();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(root.resolve("register.html"), "<html><body><p>Register</p></body></html>");
+        Files.write(root.resolve("empty.txt"), new byte[0]);
+        handler = new StaticFileHandler(root.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        handler.getAssetCache().close();
+    }
+
+    private HttpExchange request(String method, String path) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestMethod()).thenReturn(method);
+        when(exchange.getRequestURI()).thenReturn(URI.create(path));
+        when(exchange.getRequestHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseHeaders()).thenReturn(responseHeaders);
+        when(exchange.getResponseBody()).thenReturn(responseBody);
+        return exchange;
+    }
+
+    @Test
+    public void testGetShouldSendTheFileWithItsLength() throws IOException {
+        // GIVEN
+        HttpExchange exchange = request("GET", "/register.html");
+
+        // WHEN
+        handler.handle(exchange);
+
+        // THEN
+        verify(exchange).sendResponseHeaders(200, Files.size(root.resolve("register.html")));
+        assertEquals(Files.readString(root.resolve("register.html")), responseBody.toString());
+    }
+
+    @Test
+    public void testEmptyFileShouldBeSentWithoutBody() throws IOException {
+        // GIVEN
+        HttpExchange exchange = request("GET", "/empty.txt");
+
+        // WHEN
+        handler.handle(exchange);
+
+        // THEN -1, as 0 would start a chunked body
+        verify(exchange).sendResponseHeaders(200, -1);
+        verify(exchange).close();
+        assertEquals(0, responseBody.size());
+    }
+
+    @Test
+    public void testHeadShouldAnnounceTheLengthWithoutBody() throws IOException {
+        // GIVEN
+        HttpExchange exchange = request("HEAD", "/register.html");
+
+        // WHEN
+        handler.handle(exchange);
+
+        // THEN
+        verify(exchange).sendResponseHeaders(200, -1);
+        assertEquals(String.valueOf(Files.size(root.resolve("register.html"))),
+                responseHeaders.getFirst("Content-Length"));
+        assertEquals(0, responseBody.size());
+    }
+}
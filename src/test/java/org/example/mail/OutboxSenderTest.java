@@ -0,0 +1,170 @@
+package org.example.mail;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxSenderTest {
+
+    @TempDir
+    Path outboxDirectory;
+
+    private FakeSmtpServer smtpServer;
+    private EmailOutbox outbox;
+    private OutboxSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        outbox = new EmailOutbox(outboxDirectory);
+        sender = new OutboxSender(outbox, new VerificationMailSender(smtpServer.settings()), 3, 0, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        sender.stop();
+        smtpServer.close();
+    }
+
+    @Test
+    public void testDrainShouldDeliverQueuedMessagesAndEmptyTheOutbox() throws Exception {
+        // GIVEN
+        outbox.enqueue("user@example.com", "code-123");
+
+        // WHEN
+        int delivered = sender.drain();
+
+        // THEN
+        assertEquals(1, delivered);
+        assertEquals(0, outbox.pendingCount());
+        assertEquals(1, smtpServer.getReceivedMessages().size());
+        assertTrue(smtpServer.getReceivedMessages().get(0).contains("Your verification code is: code-123"));
+    }
+
+    @Test
+    public void testUnreadableMessageShouldBeQuarantinedWithoutBlockingTheOthers() throws Exception {
+        // GIVEN an empty file sorted before a valid message, as a power loss could leave it
+        Files.createFile(outboxDirectory.resolve("0000000000000-broken.properties"));
+        outbox.enqueue("user@example.com", "code-123");
+
+        // WHEN
+        int delivered = sender.drain();
+
+        // THEN
+        assertEquals(1, delivered);
+        assertEquals(0, outbox.pendingCount());
+        assertEquals(List.of(outboxDirectory.resolve("corrupt").resolve("0000000000000-broken.properties")),
+                outbox.corruptFiles());
+    }
+
+    @Test
+    public void testQueuedMessagesShouldSurviveARestart() throws Exception {
+        // GIVEN
+        outbox.enqueue("user@example.com", "code-123");
+
+        // WHEN
+        EmailOutbox reopened = new EmailOutbox(outboxDirectory);
+        OutboxSender restarted = new OutboxSender(reopened, new VerificationMailSender(smtpServer.settings()), 3, 0, 1);
+
+        // THEN
+        assertEquals(1, reopened.pendingCount());
+        assertEquals(1, restarted.drain());
+        assertEquals(0, reopened.pendingCount());
+    }
+
+    @Test
+    public void testTemporaryFailureShouldBeRetried() throws Exception {
+        // GIVEN
+        outbox.enqueue("user@example.com", "code-123");
+        smtpServer.failNextMessages(1);
+
+        // WHEN
+        int firstRound = sender.drain();
+        int secondRound = sender.drain();
+
+        // THEN
+        assertEquals(0, firstRound);
+        assertEquals(1, secondRound);
+        assertEquals(1, smtpServer.getReceivedMessages().size());
+        assertEquals(1L, sender.stats().get("retried"));
+    }
+
+    @Test
+    public void testRejectedRecipientShouldGoToDeadLetterStore() throws Exception {
+        // GIVEN
+        smtpServer.rejectRecipient("unknown@example.com");
+        outbox.enqueue("unknown@example.com", "code-123");
+
+        // WHEN
+        sender.drain();
+
+        // THEN
+        assertEquals(0, outbox.pendingCount());
+        List<OutboxMessage> deadLetters = outbox.deadLetters();
+        assertEquals(1, deadLetters.size());
+        assertEquals("unknown@example.com", deadLetters.get(0).getRecipient());
+        assertEquals(1, deadLetters.get(0).getAttempts());
+        assertNotNull(deadLetters.get(0).getLastError());
+    }
+
+    @Test
+    public void testMessageShouldGoToDeadLetterStoreAfterMaxAttempts() throws Exception {
+        // GIVEN
+        outbox.enqueue("user@example.com", "code-123");
+        smtpServer.failNextMessages(3);
+
+        // WHEN
+        for (int i = 0; i < 3; i++) {
+            sender.drain();
+        }
+
+        // THEN
+        assertEquals(0, outbox.pendingCount());
+        assertEquals(1, outbox.deadLetters().size());
+        assertEquals(3, outbox.deadLetters().get(0).getAttempts());
+    }
+
+    @Test
+    public void testRestartedSenderShouldDeliverInParallelAgain() throws Exception {
+        // GIVEN a sender with delivery threads, stopped once
+        OutboxSender parallelSender =
+                new OutboxSender(outbox, new VerificationMailSender(smtpServer.settings()), 3, 0, 3);
+        parallelSender.start();
+        parallelSender.stop();
+
+        // WHEN
+        parallelSender.start();
+        try {
+            outbox.enqueue("user@example.com", "code-123");
+            outbox.enqueue("other@example.com", "code-456");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (outbox.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            parallelSender.stop();
+        }
+
+        // THEN
+        assertEquals(0, outbox.pendingCount());
+        assertEquals(2, smtpServer.getReceivedMessages().size());
+    }
+
+    @Test
+    public void testBackoffShouldDoubleWithEveryAttempt() {
+        // GIVEN
+        OutboxSender backoffSender = new OutboxSender(outbox, null, 5, 1000, 1);
+
+        // WHEN, THEN
+        assertEquals(1000, backoffSender.backoffMillis(1));
+        assertEquals(2000, backoffSender.backoffMillis(2));
+        assertEquals(8000, backoffSender.backoffMillis(4));
+    }
+}
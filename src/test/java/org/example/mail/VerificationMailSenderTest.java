@@ -0,0 +1,68 @@
+package org.example.mail;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.SendFailedException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationMailSenderTest {
+
+    private FakeSmtpServer smtpServer;
+    private VerificationMailSender mailSender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        mailSender = new VerificationMailSender(smtpServer.settings());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mailSender.close();
+        smtpServer.close();
+    }
+
+    @Test
+    public void testSendShouldReuseOneConnectionForManyMessages() throws Exception {
+        // GIVEN
+        int messages = 20;
+
+        // WHEN
+        for (int i = 0; i < messages; i++) {
+            mailSender.send("user" + i + "@example.com", "code-" + i);
+        }
+
+        // THEN
+        assertEquals(messages, smtpServer.getReceivedMessages().size());
+        assertEquals(1, smtpServer.getConnectionCount());
+        assertEquals(1L, mailSender.stats().get("connectionsOpened"));
+    }
+
+    @Test
+    public void testSendShouldReconnectWhenThePooledConnectionWasDropped() throws Exception {
+        // GIVEN
+        mailSender.send("user@example.com", "code-1");
+        smtpServer.dropConnections();
+
+        // WHEN
+        mailSender.send("user@example.com", "code-2");
+
+        // THEN
+        assertEquals(2, smtpServer.getReceivedMessages().size());
+        assertEquals(2, smtpServer.getConnectionCount());
+    }
+
+    @Test
+    public void testSendShouldNotRetryRejectedRecipient() throws Exception {
+        // GIVEN
+        smtpServer.rejectRecipient("unknown@example.com");
+
+        // WHEN, THEN
+        assertThrows(SendFailedException.class, () -> mailSender.send("unknown@example.com", "code-1"));
+        assertTrue(smtpServer.getReceivedMessages().isEmpty());
+        assertEquals(1, smtpServer.getConnectionCount());
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private static final CredentialCache.Credentials VERIFIED = new CredentialCache.Credentials("hash", true);
+
+    @Test
+    public void testGetShouldHitAfterPut() {
+        // GIVEN
+        CredentialCache cache = new CredentialCache(10, 60_000, now::get);
+        assertNull(cache.get("mima@example.com"));
+        cache.put("mima@example.com", VERIFIED, cache.startLoad());
+
+        // WHEN
+        CredentialCache.Credentials credentials = cache.get("mima@example.com");
+
+        // THEN
+        assertEquals("hash", credentials.getPasswordHash());
+        assertTrue(credentials.isVerified());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    public void testGetShouldMissAfterTtl() {
+        // GIVEN
+        CredentialCache cache = new CredentialCache(10, 1_000, now::get);
+        cache.put("mima@example.com", VERIFIED, cache.startLoad());
+
+        // WHEN
+        now.addAndGet(1_000);
+
+        // THEN
+        assertNull(cache.get("mima@example.com"));
+    }
+
+    @Test
+    public void testPutShouldNotCacheUnverifiedAccounts() {
+        // GIVEN
+        CredentialCache cache = new CredentialCache(10, 60_000, now::get);
+
+        // WHEN
+        cache.put("mima@example.com", new CredentialCache.Credentials("hash", false), cache.startLoad());
+
+        // THEN
+        assertNull(cache.get("mima@example.com"));
+    }
+
+    @Test
+    public void testPutShouldIgnoreRowLoadedBeforeInvalidation() {
+        // GIVEN a read that started before the row was written
+        CredentialCache cache = new CredentialCache(10, 60_000, now::get);
+        long loadStamp = cache.startLoad();
+        cache.invalidate("mima@example.com");
+
+        // WHEN
+        cache.put("mima@example.com", VERIFIED, loadStamp);
+
+        // THEN
+        assertNull(cache.get("mima@example.com"));
+    }
+
+    @Test
+    public void testInvalidateShouldDropRow() {
+        // GIVEN
+        CredentialCache cache = new CredentialCache(10, 60_000, now::get);
+        cache.put("mima@example.com", VERIFIED, cache.startLoad());
+
+        // WHEN
+        cache.invalidate("mima@example.com");
+
+        // THEN
+        assertNull(cache.get("mima@example.com"));
+    }
+
+    @Test
+    public void testFrequentAccountsShouldSurviveScanOfOneOffLookups() {
+        // GIVEN two accounts that log in often
+        CredentialCache cache = new CredentialCache(2, 60_000, now::get);
+        for (int i = 0; i < 5; i++) {
+            cache.get("a@example.com");
+            cache.get("b@example.com");
+        }
+        cache.put("a@example.com", VERIFIED, cache.startLoad());
+        cache.put("b@example.com", VERIFIED, cache.startLoad());
+
+        // WHEN many accounts log in once
+        for (int i = 0; i < 100; i++) {
+            String email = "once" + i + "@example.com";
+            cache.get(email);
+            cache.put(email, VERIFIED, cache.startLoad());
+        }
+
+        // THEN
+        assertNotNull(cache.get("a@example.com"));
+        assertNotNull(cache.get("b@example.com"));
+        assertEquals(100L, cache.stats().get("rejectedAdmissions"));
+    }
+
+    @Test
+    public void testFrequentNewcomerShouldReplaceRarelyUsedRow() {
+        // GIVEN a full cache with a row used once
+        CredentialCache cache = new CredentialCache(1, 60_000, now::get);
+        cache.get("old@example.com");
+        cache.put("old@example.com", VERIFIED, cache.startLoad());
+
+        // WHEN a new account becomes popular
+        for (int i = 0; i < 5; i++) {
+            cache.get("new@example.com");
+        }
+        cache.put("new@example.com", VERIFIED, cache.startLoad());
+
+        // THEN
+        assertNotNull(cache.get("new@example.com"));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    public void testSketchShouldNotShareCountersBetweenHashCodeCollisions() {
+        // GIVEN two emails with the same String.hashCode()
+        CredentialCache.FrequencySketch sketch = new CredentialCache.FrequencySketch(1_000);
+        String hot = "Aa@example.com";
+        String forged = "BB@example.com";
+        assertEquals(hot.hashCode(), forged.hashCode());
+
+        // WHEN
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(hot);
+        }
+
+        // THEN
+        assertEquals(10, sketch.frequency(hot));
+        assertEquals(0, sketch.frequency(forged));
+    }
+}
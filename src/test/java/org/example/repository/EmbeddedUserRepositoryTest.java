@@ -0,0 +1,40 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedUserRepositoryTest extends UserStoreConformanceTest {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    protected UserStore createStore() {
+        return new EmbeddedUserRepository(directory.resolve("users").toString());
+    }
+
+    @Override
+    protected void destroyStore() {
+        ((EmbeddedUserRepository) store).close();
+    }
+
+    @Test
+    public void testUsersShouldSurviveRestart() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        destroyStore();
+
+        // WHEN
+        store = createStore();
+        store.open();
+
+        // THEN
+        assertEquals("hash", store.getHashedPasswordForUser("mima@example.com"));
+        assertEquals("embedded", store.stats().get("backend"));
+    }
+}
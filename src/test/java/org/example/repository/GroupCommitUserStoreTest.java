@@ -0,0 +1,144 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GroupCommitUserStoreTest extends UserStoreConformanceTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedUserRepository embedded;
+
+    @Override
+    protected UserStore createStore() {
+        embedded = new EmbeddedUserRepository(directory.resolve("users").toString());
+        return new GroupCommitUserStore(embedded, 100, 20);
+    }
+
+    @Override
+    protected void destroyStore() {
+        ((GroupCommitUserStore) store).close();
+        embedded.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentRegistrationsShouldShareCommits() throws Exception {
+        // GIVEN
+        int registrations = 50;
+        ExecutorService callers = Executors.newFixedThreadPool(registrations);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < registrations; i++) {
+            // Two callers race for every email, exactly one of them must win
+            String email = "user" + (i / 2) + "@example.com";
+            results.add(callers.submit(() -> {
+                start.await();
+                store.saveUserToDatabase("User", email, "hash", "code");
+                return null;
+            }));
+        }
+
+        // WHEN
+        start.countDown();
+        int saved = 0;
+        int duplicates = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+                saved++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(SQLIntegrityConstraintViolationException.class, e.getCause());
+                duplicates++;
+            }
+        }
+        callers.shutdown();
+
+        // THEN
+        assertEquals(registrations / 2, saved);
+        assertEquals(registrations / 2, duplicates);
+        Map<String, Object> groupCommit = (Map<String, Object>) store.stats().get("groupCommit");
+        assertEquals((long) registrations, groupCommit.get("rows"));
+        assertTrue((long) groupCommit.get("commits") < registrations / 2,
+                "Expected fewer commits than registrations, got " + groupCommit.get("commits"));
+    }
+
+    @Test
+    public void testQueuedWritesShouldKeepTheirOrder() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "first");
+
+        // WHEN
+        store.storeVerificationCodeInDatabase("second", "mima@example.com");
+
+        // THEN
+        assertFalse(store.verify("mima@example.com", "first"));
+        assertTrue(store.verify("mima@example.com", "second"));
+    }
+
+    @Test
+    public void testSlowCommitShouldTimeOutTheCaller() throws Exception {
+        // GIVEN a store whose commit hangs
+        UserStore hanging = mock(UserStore.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(hanging.insertUsers(anyList(), anyList())).thenAnswer(invocation -> {
+            release.await();
+            return Collections.singletonList(null);
+        });
+        GroupCommitUserStore groupCommit = new GroupCommitUserStore(hanging, 100, 1, 200);
+
+        // WHEN / THEN
+        assertThrows(SQLTimeoutException.class,
+                () -> groupCommit.saveUserToDatabase("Mima", "mima@example.com", "hash", "code"));
+        release.countDown();
+        groupCommit.close();
+    }
+
+    @Test
+    public void testDeadWriterShouldFailPendingWrites() throws Exception {
+        // GIVEN a store whose commit kills the writer thread
+        UserStore failing = mock(UserStore.class);
+        when(failing.insertUsers(anyList(), anyList())).thenThrow(new StackOverflowError());
+        GroupCommitUserStore groupCommit = new GroupCommitUserStore(failing, 100, 1, 60_000);
+
+        // WHEN
+        SQLException exception = assertThrows(SQLException.class,
+                () -> groupCommit.saveUserToDatabase("Mima", "mima@example.com", "hash", "code"));
+
+        // THEN the caller is released at once, and so are the later ones
+        assertFalse(exception instanceof SQLTimeoutException);
+        assertThrows(SQLException.class,
+                () -> groupCommit.saveUserToDatabase("Galin", "galin@example.com", "hash", "code"));
+        groupCommit.close();
+    }
+
+    @Test
+    public void testClosedStoreShouldRejectWrites() {
+        // GIVEN
+        ((GroupCommitUserStore) store).close();
+
+        // WHEN / THEN
+        assertThrows(SQLException.class,
+                () -> store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code"));
+    }
+}
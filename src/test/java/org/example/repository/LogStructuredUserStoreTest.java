@@ -0,0 +1,175 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStructuredUserStoreTest extends UserStoreConformanceTest {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    protected UserStore createStore() {
+        return new LogStructuredUserStore(directory);
+    }
+
+    @Override
+    protected void destroyStore() {
+        ((LogStructuredUserStore) store).close();
+    }
+
+    @Test
+    public void testRestartShouldOnlyMapTheIndex() throws SQLException {
+        // GIVEN
+        for (int i = 0; i < 2_000; i++) {
+            store.saveUserToDatabase("User " + i, "user" + i + "@example.com", "hash" + i, "code" + i);
+        }
+        destroyStore();
+
+        // WHEN
+        store = createStore();
+
+        // THEN
+        assertEquals(0L, store.stats().get("recoveredRecords"));
+        assertEquals(2_000, store.stats().get("users"));
+        assertEquals("hash1234", store.getHashedPasswordForUser("user1234@example.com"));
+        assertEquals("log", store.stats().get("backend"));
+    }
+
+    @Test
+    public void testCrashShouldReplayTailAndCutTornRecord() throws SQLException, IOException {
+        // GIVEN a store that was never closed, with half a record at the end of the log
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        store.saveUserToDatabase("Galin", "galin@example.com", "hash2", "code2");
+        Path log = directory.resolve("users-1.log");
+        long validBytes = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        // WHEN
+        LogStructuredUserStore recovered = new LogStructuredUserStore(directory);
+
+        // THEN
+        assertEquals(2L, recovered.stats().get("recoveredRecords"));
+        assertEquals(7L, recovered.stats().get("truncatedBytes"));
+        assertEquals(validBytes, Files.size(log));
+        assertEquals("hash2", recovered.getHashedPasswordForUser("galin@example.com"));
+        recovered.close();
+    }
+
+    @Test
+    public void testCompactionShouldDropSupersededRecords() throws SQLException, IOException {
+        // GIVEN
+        LogStructuredUserStore logStore = (LogStructuredUserStore) store;
+        logStore.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        for (int i = 0; i < 10; i++) {
+            logStore.updatePassword("mima@example.com", "hash" + i);
+        }
+        long logBytes = (long) logStore.stats().get("logBytes");
+
+        // WHEN
+        logStore.compactNow();
+
+        // THEN
+        assertTrue((long) logStore.stats().get("logBytes") < logBytes / 5);
+        assertEquals(1L, logStore.stats().get("compactions"));
+        assertEquals("hash9", logStore.getHashedPasswordForUser("mima@example.com"));
+        assertFalse(Files.exists(directory.resolve("users-1.log")));
+        assertEquals("2", Files.readString(directory.resolve("CURRENT")).trim());
+    }
+
+    @Test
+    public void testCompactionShouldRunInBackgroundWhenMostOfTheLogIsDead() throws SQLException, InterruptedException {
+        // GIVEN
+        destroyStore();
+        store = new LogStructuredUserStore(directory, false, 1024);
+
+        // WHEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        for (int i = 0; i < 100; i++) {
+            store.updatePassword("mima@example.com", "hash" + i);
+        }
+
+        // THEN
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (((long) store.stats().get("logBytes") >= 1024 || (long) store.stats().get("compactions") == 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue((long) store.stats().get("compactions") > 0);
+        assertTrue((long) store.stats().get("logBytes") < 1024);
+        assertEquals(0L, store.stats().get("compactionFailures"));
+        assertEquals("hash99", store.getHashedPasswordForUser("mima@example.com"));
+    }
+
+    @Test
+    public void testCompactionShouldKeepWritesMadeWhileItRuns() throws Exception {
+        // GIVEN
+        LogStructuredUserStore logStore = (LogStructuredUserStore) store;
+        for (int i = 0; i < 500; i++) {
+            logStore.saveUserToDatabase("User " + i, "user" + i + "@example.com", "hash", "code" + i);
+        }
+
+        // WHEN users are updated and added while the log is compacted
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 500; i++) {
+                    logStore.updatePassword("user" + i + "@example.com", "new" + i);
+                    logStore.saveUserToDatabase("Late " + i, "late" + i + "@example.com", "late" + i, "code");
+                }
+            } catch (SQLException e) {
+                throw new AssertionError(e);
+            }
+        });
+        writer.start();
+        for (int i = 0; i < 5; i++) {
+            logStore.compactNow();
+        }
+        writer.join();
+
+        // THEN
+        for (int i = 0; i < 500; i++) {
+            assertEquals("new" + i, logStore.getHashedPasswordForUser("user" + i + "@example.com"));
+            assertEquals("late" + i, logStore.getHashedPasswordForUser("late" + i + "@example.com"));
+        }
+        assertEquals(1_000, logStore.stats().get("users"));
+        assertEquals(5L, logStore.stats().get("compactions"));
+
+        // AND a restart finds the same users
+        destroyStore();
+        store = createStore();
+        assertEquals(1_000, store.stats().get("users"));
+        assertEquals("new499", store.getHashedPasswordForUser("user499@example.com"));
+    }
+
+    @Test
+    public void testAppendsShouldNotRemapTheLogEveryTime() throws SQLException {
+        // GIVEN a freshly opened store, with the whole log mapped
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        destroyStore();
+        store = createStore();
+        long mapped = (long) store.stats().get("mappedBytes");
+
+        // WHEN
+        for (int i = 0; i < 100; i++) {
+            store.saveUserToDatabase("User " + i, "user" + i + "@example.com", "hash" + i, "code" + i);
+        }
+
+        // THEN the new records are read from the tail buffer
+        assertEquals(mapped, store.stats().get("mappedBytes"));
+        assertTrue((long) store.stats().get("logBytes") > mapped);
+        assertEquals("hash42", store.getHashedPasswordForUser("user42@example.com"));
+        assertTrue(store.verify("user42@example.com", "code42"));
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    private Connection connection;
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:migrationtest", "sa", "");
+        schemaMigrator = SchemaMigrator.getInstance();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        // The in-memory database disappears with its last connection
+        connection.close();
+    }
+
+    @Test
+    public void testMigrateShouldCreateSchemaOnEmptyDatabase() throws SQLException {
+        // WHEN
+        int version = schemaMigrator.migrate(connection);
+
+        // THEN
+        assertEquals(5, version);
+        assertEquals(5, schemaMigrator.currentVersion(connection));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users (name, email, password) VALUES ('Mima', 'mima@example.com', 'x')");
+            assertThrows(SQLException.class, () ->
+                    statement.execute("INSERT INTO users (name, email, password) VALUES ('Mima', 'mima@example.com', 'y')"));
+        }
+    }
+
+    @Test
+    public void testMigrateShouldBeIdempotent() throws SQLException {
+        // GIVEN
+        schemaMigrator.migrate(connection);
+
+        // WHEN
+        int version = schemaMigrator.migrate(connection);
+
+        // THEN
+        assertEquals(5, version);
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM schema_version")) {
+            resultSet.next();
+            assertEquals(5, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    public void testMigrateShouldUpgradeExistingTableAndNormalizeEmails() throws SQLException {
+        // GIVEN a table created by hand, as before migrations existed
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (name VARCHAR(255), email VARCHAR(255), password VARCHAR(255), " +
+                    "verification_status BOOLEAN, verification_code VARCHAR(255))");
+            statement.execute("INSERT INTO users VALUES ('Galin', ' Galin@Example.COM', 'x', TRUE, NULL)");
+        }
+
+        // WHEN
+        schemaMigrator.migrate(connection);
+
+        // THEN
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT email FROM users")) {
+            assertTrue(resultSet.next());
+            assertEquals("galin@example.com", resultSet.getString(1));
+        }
+    }
+
+    @Test
+    public void testMigrateShouldStopAtFailingMigration() throws SQLException {
+        // GIVEN two accounts that only differ in case, so the unique index cannot be created
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (name VARCHAR(255), email VARCHAR(255), password VARCHAR(255), " +
+                    "verification_status BOOLEAN, verification_code VARCHAR(255))");
+            statement.execute("INSERT INTO users VALUES ('Galin', 'galin@example.com', 'x', TRUE, NULL)");
+            statement.execute("INSERT INTO users VALUES ('Galin', 'GALIN@example.com', 'y', TRUE, NULL)");
+        }
+
+        // WHEN
+        SQLException e = assertThrows(SQLException.class, () -> schemaMigrator.migrate(connection));
+
+        // THEN
+        assertTrue(e.getMessage().startsWith("Schema migration V3"));
+        assertEquals(2, schemaMigrator.currentVersion(connection));
+    }
+
+    @Test
+    public void testFindTableScansShouldPassWithIndexesAndFlagWithout() throws SQLException {
+        // GIVEN a table without indexes
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (name VARCHAR(255), email VARCHAR(255), password VARCHAR(255), " +
+                    "verification_status BOOLEAN, verification_code VARCHAR(255))");
+        }
+
+        // WHEN
+        List<String> scansBefore = schemaMigrator.findTableScans(connection);
+        schemaMigrator.migrate(connection);
+        List<String> scansAfter = schemaMigrator.findTableScans(connection);
+
+        // THEN
+        assertEquals(SchemaMigrator.HOT_QUERIES, scansBefore);
+        assertTrue(scansAfter.isEmpty(), "Hot queries should use an index: " + scansAfter);
+    }
+}
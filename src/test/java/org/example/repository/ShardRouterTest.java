@@ -0,0 +1,82 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterTest {
+
+    private static ShardRouter router(String... shards) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String shard : shards) {
+            weights.put(shard, 1);
+        }
+        return new ShardRouter(weights);
+    }
+
+    @Test
+    public void testEmailsShouldSpreadEvenlyOverShards() {
+        // GIVEN
+        ShardRouter router = router("a", "b", "c", "d");
+        Map<String, Integer> counts = new HashMap<>();
+
+        // WHEN
+        int emails = 100_000;
+        for (int i = 0; i < emails; i++) {
+            counts.merge(router.shardFor("user" + i + "@example.com"), 1, Integer::sum);
+        }
+
+        // THEN every shard gets its quarter within 15 percent
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(Math.abs(count - emails / 4) < emails / 4 * 0.15, "Unbalanced shard with " + count);
+        }
+    }
+
+    @Test
+    public void testAddingShardShouldOnlyMoveItsShare() {
+        // GIVEN
+        ShardRouter before = router("a", "b", "c");
+        ShardRouter after = router("a", "b", "c", "d");
+
+        // WHEN
+        int emails = 100_000;
+        int moved = 0;
+        for (int i = 0; i < emails; i++) {
+            String email = "user" + i + "@example.com";
+            String owner = after.shardFor(email);
+            if (!owner.equals(before.shardFor(email))) {
+                // An email only ever moves to the new shard
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+
+        // THEN about a quarter of the emails moved
+        assertTrue(moved > emails * 0.20 && moved < emails * 0.30, "Moved " + moved);
+    }
+
+    @Test
+    public void testWeightShouldScaleTheShare() {
+        // GIVEN
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("small", 1);
+        weights.put("large", 3);
+        ShardRouter router = new ShardRouter(weights);
+
+        // WHEN
+        int large = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (router.shardFor("user" + i + "@example.com").equals("large")) {
+                large++;
+            }
+        }
+
+        // THEN
+        assertTrue(large > 70_000 && large < 80_000, "Large shard got " + large);
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the conformance tests against three embedded shards, and moves rows between them while serving requests.
+ */
+class ShardedUserStoreTest extends UserStoreConformanceTest {
+
+    @TempDir
+    Path directory;
+
+    private final Map<String, EmbeddedUserRepository> shards = new LinkedHashMap<>();
+
+    private static ShardRouter router(String... names) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String name : names) {
+            weights.put(name, 1);
+        }
+        return new ShardRouter(weights);
+    }
+
+    @Override
+    protected UserStore createStore() {
+        for (String name : new String[]{"a", "b", "c"}) {
+            shards.computeIfAbsent(name, key -> new EmbeddedUserRepository(directory.resolve(key).toString()));
+        }
+        return new ShardedUserStore(shards, router("a", "b", "c"), null);
+    }
+
+    @Override
+    protected void destroyStore() {
+        ((ShardedUserStore) store).close();
+    }
+
+    @Test
+    public void testUsersShouldBeSpreadOverShards() throws SQLException {
+        // WHEN
+        for (int i = 0; i < 90; i++) {
+            store.saveUserToDatabase("User " + i, "user" + i + "@example.com", "hash" + i, "code" + i);
+        }
+
+        // THEN every user is on the shard the router picks, and only there
+        ShardRouter router = ((ShardedUserStore) store).getRouter();
+        for (int i = 0; i < 90; i++) {
+            String email = "user" + i + "@example.com";
+            for (Map.Entry<String, EmbeddedUserRepository> shard : shards.entrySet()) {
+                assertEquals(shard.getKey().equals(router.shardFor(email)), shard.getValue().findUser(email) != null);
+            }
+        }
+        for (EmbeddedUserRepository shard : shards.values()) {
+            assertFalse(shard.scanUsers("", 100).isEmpty());
+        }
+    }
+
+    @Test
+    public void testReshardingShouldMoveRowsWhileServingThem() throws SQLException {
+        // GIVEN users on two shards, half of them verified
+        ShardedUserStore twoShards = new ShardedUserStore(shards, router("a", "b"), null);
+        String hash = BCrypt.hashpw("password123", BCrypt.gensalt(4));
+        for (int i = 0; i < 200; i++) {
+            twoShards.saveUserToDatabase("User " + i, "user" + i + "@example.com", hash, "code" + i);
+            if (i % 2 == 0) {
+                assertTrue(twoShards.verify("user" + i + "@example.com", "code" + i));
+            }
+        }
+        ShardedUserStore resharding = new ShardedUserStore(shards, router("a", "b", "c"), router("a", "b"));
+
+        // WHEN the rows are still on their old shards
+        // THEN they are served from there, and a new user goes to its new shard
+        assertNotNull(resharding.login("user0@example.com", "password123"));
+        assertTrue(resharding.verify("user1@example.com", "code1"));
+        assertThrows(SQLException.class, () -> resharding.saveUserToDatabase("Dup", "user3@example.com", hash, "x"));
+        resharding.saveUserToDatabase("New", "new@example.com", hash, "code");
+        assertNotNull(shards.get(resharding.getRouter().shardFor("new@example.com")).findUser("new@example.com"));
+
+        // WHEN
+        long moved = resharding.reshard();
+
+        // THEN about a third of the rows moved to the new shard, with their state
+        assertTrue(moved > 40 && moved < 100, "Moved " + moved);
+        assertFalse(resharding.isResharding());
+        for (int i = 0; i < 200; i++) {
+            String email = "user" + i + "@example.com";
+            String owner = resharding.getRouter().shardFor(email);
+            for (Map.Entry<String, EmbeddedUserRepository> shard : shards.entrySet()) {
+                assertEquals(shard.getKey().equals(owner), shard.getValue().findUser(email) != null);
+            }
+            assertEquals(i % 2 == 0 || i == 1, resharding.login(email, "password123") != null);
+        }
+        assertEquals(0, resharding.reshard());
+    }
+
+    @Test
+    public void testShouldBeCreatedFromConfig() throws Exception {
+        // GIVEN
+        Path config = directory.resolve("shards.properties");
+        Files.writeString(config, "shards=x, y\n"
+                + "shard.x.url=jdbc:h2:mem:shard-x;DB_CLOSE_DELAY=-1\nshard.x.user=sa\nshard.x.password=\n"
+                + "shard.y.url=jdbc:h2:mem:shard-y;DB_CLOSE_DELAY=-1\nshard.y.user=sa\nshard.y.password=\n"
+                + "shard.y.weight=2\n");
+
+        // WHEN
+        ShardedUserStore configured = ShardedUserStore.fromConfig(config, null);
+        configured.open();
+
+        // THEN
+        assertEquals(Map.of("x", 1, "y", 2), configured.getRouter().getWeights());
+        configured.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        assertEquals("hash", configured.getHashedPasswordForUser("mima@example.com"));
+        configured.close();
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.repository;
+
+import org.example.utils.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Runs the conformance tests against the MySQL backend, with H2 in MySQL compatibility mode standing in
+ * for the MySQL server, through the same kind of connection pool.
+ */
+class UserRepositoryConformanceTest extends UserStoreConformanceTest {
+
+    private static final String URL = "jdbc:h2:mem:conformance;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool connectionPool;
+
+    @Override
+    protected UserStore createStore() {
+        connectionPool = new ConnectionPool(() -> DriverManager.getConnection(URL, "sa", ""),
+                1, 4, 1_000, 500, 60_000, 60_000, 0, 60_000);
+        return new UserRepository() {
+            @Override
+            protected Connection getConnection() throws SQLException {
+                return connectionPool.getConnection();
+            }
+
+            @Override
+            protected Connection getReadConnection(String email) throws SQLException {
+                return connectionPool.getConnection();
+            }
+
+            @Override
+            protected void recordWrite(String email) {
+            }
+        };
+    }
+
+    @Override
+    protected void destroyStore() throws SQLException {
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connectionPool.close();
+    }
+}
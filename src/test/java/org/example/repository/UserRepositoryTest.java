@@ -10,6 +10,8 @@ import java.io.StringReader;
 import java.sql.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 class UserRepositoryTest {
 
@@ -53,9 +55,10 @@ class UserRepositoryTest {
         String name = "Mima";
         String email = "mima@example.com";
         String password = "hashedPassword123";
+        String verificationCode = "code123";
 
         // Act
-        userRepository.saveUserToDatabase(name, email, password);
+        userRepository.saveUserToDatabase(name, email, password, verificationCode);
 
         // Assert
         connection = DriverManager.getConnection("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1", "sa", "");
@@ -68,6 +71,57 @@ class UserRepositoryTest {
             assertEquals(email, resultSet.getString("email"), "Email should match");
             assertEquals(password, resultSet.getString("password"), "Password should match");
             assertFalse(resultSet.getBoolean("verification_status"), "Verification status should be false");
+            assertEquals(verificationCode, resultSet.getString("verification_code"), "Code should match");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testVerifyShouldMatchCodeOnlyOnce() throws Exception {
+        // Arrange
+        userRepository.saveUserToDatabase("Mira", "mira@example.com", "hashedPassword123", "code456");
+        DatabaseConnection.setConnection(DriverManager.getConnection("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1", "sa", ""));
+        boolean wrongCode = userRepository.verify("mira@example.com", "wrong");
+        DatabaseConnection.setConnection(DriverManager.getConnection("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1", "sa", ""));
+
+        // Act
+        boolean rightCode = userRepository.verify("mira@example.com", "code456");
+        DatabaseConnection.setConnection(DriverManager.getConnection("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1", "sa", ""));
+        boolean reusedCode = userRepository.verify("mira@example.com", "code456");
+
+        // Assert
+        assertFalse(wrongCode, "A wrong code should not verify");
+        assertTrue(rightCode, "The stored code should verify");
+        assertFalse(reusedCode, "A used code should not verify again");
+        connection = DriverManager.getConnection("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1", "sa", "");
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT verification_status, verification_code FROM users WHERE email = ?")) {
+            statement.setString(1, "mira@example.com");
+            ResultSet resultSet = statement.executeQuery();
+
+            assertTrue(resultSet.next(), "User should be found in the database");
+            assertTrue(resultSet.getBoolean("verification_status"), "Verification status should be true");
+            assertNull(resultSet.getString("verification_code"), "Code should be cleared");
+        }
+    }
+
+    @Test
+    public void testLoginShouldSkipDatabaseForUnknownEmailOnceFilterIsLoaded() throws Exception {
+        // Arrange
+        userRepository.saveUserToDatabase("Nia", "nia@example.com", "hashedPassword123", "code789");
+        DatabaseConnection.setConnection(DriverManager.getConnection("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1", "sa", ""));
+        userRepository.loadEmailFilter();
+        Connection unused = mock(Connection.class);
+        DatabaseConnection.setConnection(unused);
+
+        // Act
+        String token = userRepository.login("nobody@example.com", "password");
+        boolean verified = userRepository.verify("nobody@example.com", "code");
+
+        // Assert
+        assertNull(token, "Unknown email should not log in");
+        assertFalse(verified, "Unknown email should not verify");
+        verifyNoInteractions(unused);
+        assertEquals(true, userRepository.emailFilterStats().get("ready"));
+        DatabaseConnection.setConnection(connection);
+    }
+}
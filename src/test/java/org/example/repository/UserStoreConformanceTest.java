@@ -0,0 +1,201 @@
+package org.example.repository;
+
+import org.example.model.User;
+import org.example.utils.BcryptCostCalibrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The behaviour every {@link UserStore} backend must have, run once per backend by the subclasses,
+ * together with a small lookup benchmark so the latency of the backends can be compared.
+ */
+abstract class UserStoreConformanceTest {
+
+    protected UserStore store;
+
+    protected abstract UserStore createStore() throws Exception;
+
+    protected abstract void destroyStore() throws Exception;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = createStore();
+        store.open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        destroyStore();
+    }
+
+    @Test
+    public void testSavedUserShouldBeFoundByEmail() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+
+        // WHEN, THEN
+        assertEquals("hash", store.getHashedPasswordForUser("mima@example.com"));
+        assertNull(store.getHashedPasswordForUser("nobody@example.com"));
+    }
+
+    @Test
+    public void testSaveShouldRejectTakenEmail() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+
+        // WHEN, THEN
+        assertThrows(SQLException.class, () -> store.saveUserToDatabase("Other", "mima@example.com", "x", "y"));
+    }
+
+    @Test
+    public void testVerifyShouldAcceptStoredCodeOnce() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+
+        // WHEN, THEN
+        assertFalse(store.verify("mima@example.com", "wrong"));
+        assertTrue(store.verify("mima@example.com", "code"));
+        assertFalse(store.verify("mima@example.com", "code"));
+    }
+
+    @Test
+    public void testStoreVerificationCodeShouldReplaceCode() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "old");
+
+        // WHEN
+        store.storeVerificationCodeInDatabase("new", "mima@example.com");
+
+        // THEN
+        assertFalse(store.verify("mima@example.com", "old"));
+        assertTrue(store.verify("mima@example.com", "new"));
+    }
+
+    @Test
+    public void testLoginShouldRequireVerificationAndPassword() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", BCrypt.hashpw("password123", BCrypt.gensalt(4)), "code");
+
+        // WHEN, THEN
+        assertNull(store.login("mima@example.com", "password123"), "Unverified accounts cannot log in");
+        store.verify("mima@example.com", "code");
+        assertNull(store.login("mima@example.com", "wrongPassword"));
+        assertNotNull(store.login("mima@example.com", "password123"));
+    }
+
+    @Test
+    public void testCredentialsShouldFollowVerification() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        assertFalse(store.getCredentials("mima@example.com").isVerified());
+
+        // WHEN
+        store.verify("mima@example.com", "code");
+
+        // THEN
+        CredentialCache.Credentials credentials = store.getCredentials("mima@example.com");
+        assertEquals("hash", credentials.getPasswordHash());
+        assertTrue(credentials.isVerified());
+        assertNull(store.getCredentials("nobody@example.com"));
+    }
+
+    @Test
+    public void testUpdatePasswordShouldTakeEffectForLogin() throws SQLException {
+        // GIVEN a verified user whose credentials are cached by a login
+        store.saveUserToDatabase("Mima", "mima@example.com", BCrypt.hashpw("password123", BCrypt.gensalt(4)), "code");
+        store.verify("mima@example.com", "code");
+        assertNotNull(store.login("mima@example.com", "password123"));
+
+        // WHEN
+        assertTrue(store.updatePassword("mima@example.com", BCrypt.hashpw("newPassword1", BCrypt.gensalt(4))));
+
+        // THEN
+        assertNull(store.login("mima@example.com", "password123"));
+        assertNotNull(store.login("mima@example.com", "newPassword1"));
+        assertFalse(store.updatePassword("nobody@example.com", "hash"));
+    }
+
+    @Test
+    public void testReplacePasswordShouldRequireCurrentHash() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+
+        // WHEN, THEN
+        assertFalse(store.replacePassword("mima@example.com", "otherHash", "newHash"));
+        assertEquals("hash", store.getHashedPasswordForUser("mima@example.com"));
+        assertTrue(store.replacePassword("mima@example.com", "hash", "newHash"));
+        assertEquals("newHash", store.getHashedPasswordForUser("mima@example.com"));
+        assertFalse(store.replacePassword("nobody@example.com", "hash", "newHash"));
+    }
+
+    @Test
+    public void testLoginShouldRehashOutdatedCost() throws Exception {
+        // GIVEN a verified user hashed with a cost far below the calibrated one
+        String email = "rehash-" + System.nanoTime() + "@example.com";
+        String weakHash = BCrypt.hashpw("password123", BCrypt.gensalt(4));
+        store.saveUserToDatabase("Mima", email, weakHash, "code");
+        store.verify(email, "code");
+
+        // WHEN
+        assertNotNull(store.login(email, "password123"));
+
+        // THEN the hash is replaced in the background
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (weakHash.equals(store.getHashedPasswordForUser(email)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        String upgraded = store.getHashedPasswordForUser(email);
+        assertTrue(upgraded.startsWith(String.format("$2a$%02d$", BcryptCostCalibrator.getInstance().getCost())));
+        assertTrue(BCrypt.checkpw("password123", upgraded));
+        assertNotNull(store.login(email, "password123"));
+    }
+
+    @Test
+    public void testSaveUsersShouldReportRejectedRows() throws SQLException {
+        // GIVEN
+        store.saveUserToDatabase("Mima", "mima@example.com", "hash", "code");
+        List<User> users = Arrays.asList(new User("Galin", "galin@example.com", "hash"),
+                new User("Mima", "mima@example.com", "hash"));
+
+        // WHEN
+        List<String> errors = store.saveUsersToDatabase(users, Arrays.asList("c1", "c2"));
+
+        // THEN
+        assertNull(errors.get(0));
+        assertNotNull(errors.get(1));
+        assertEquals("hash", store.getHashedPasswordForUser("galin@example.com"));
+    }
+
+    @Test
+    public void testLookupLatencyBenchmark() throws SQLException {
+        // GIVEN
+        List<User> users = new ArrayList<>();
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            users.add(new User("User " + i, "user" + i + "@example.com", "hash" + i));
+            codes.add("code" + i);
+        }
+        store.saveUsersToDatabase(users, codes);
+
+        // WHEN
+        int lookups = 5_000;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            assertEquals("hash" + (i % 500), store.getHashedPasswordForUser("user" + (i % 500) + "@example.com"));
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        // THEN
+        System.out.printf("%s: %d email lookups, %.1f us on average%n",
+                getClass().getSimpleName(), lookups, elapsedNanos / 1_000.0 / lookups);
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.service;
+
+import org.example.exception.BulkImportFailedException;
+import org.example.mail.EmailOutbox;
+import org.example.model.dto.BulkImportResultDTO;
+import org.example.repository.UserRepository;
+import org.example.repository.UserStore;
+import org.example.utils.DatabaseConnection;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BulkImportServiceTest {
+
+    private Connection connection;
+    private EmailOutbox emailOutbox;
+    private BulkImportService bulkImportService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:bulkimport;DB_CLOSE_DELAY=-1", "sa", "");
+        RunScript.execute(connection, new StringReader(
+                "CREATE TABLE IF NOT EXISTS users (" +
+                        "name VARCHAR(255), " +
+                        "email VARCHAR(255) UNIQUE, " +
+                        "password VARCHAR(255), " +
+                        "verification_status BOOLEAN, " +
+                        "verification_code VARCHAR(255)" +
+                        ");"));
+        // The repository closes every connection it gets, keep the shared one open between batches
+        Connection sharedConnection = spy(connection);
+        doNothing().when(sharedConnection).close();
+        DatabaseConnection.setConnection(sharedConnection);
+
+        emailOutbox = mock(EmailOutbox.class);
+        UserService userService = UserService.getInstance();
+        userService.setEmailOutbox(emailOutbox);
+        bulkImportService = new BulkImportService(userService, new UserRepository(), 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE users");
+        }
+        connection.close();
+        DatabaseConnection.setConnection(null);
+        UserService.getInstance().setEmailOutbox(null);
+    }
+
+    @Test
+    public void testImportUsersShouldSaveNdjsonRowsInBatches() throws Exception {
+        // GIVEN
+        String ndjson = "{\"name\":\"Galin\",\"email\":\"galin@example.com\",\"password\":\"password1\"}\n" +
+                "{\"name\":\"Mima\",\"email\":\"mima@example.com\",\"password\":\"password2\"}\n" +
+                "\n" +
+                "{\"name\":\"Ivan\",\"email\":\"ivan@example.com\",\"password\":\"password3\"}\n";
+
+        // WHEN
+        BulkImportResultDTO result = bulkImportService.importUsers(stream(ndjson), BulkImportService.Format.NDJSON);
+
+        // THEN
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertTrue(BCrypt.checkpw("password2", storedPassword("mima@example.com")));
+        assertNotNull(storedVerificationCode("ivan@example.com"));
+        verify(emailOutbox).enqueue(eq("galin@example.com"), anyString());
+        verify(emailOutbox, times(3)).enqueue(anyString(), anyString());
+    }
+
+    @Test
+    public void testImportUsersShouldReportInvalidAndDuplicateRows() throws Exception {
+        // GIVEN a header, a valid row, an invalid email, a short password, a duplicate and a quoted name
+        String csv = "name,email,password\n" +
+                "Galin,galin@example.com,password1\n" +
+                "Mima,not-an-email,password2\n" +
+                "Ivan,ivan@example.com,short\n" +
+                "Galin Again,galin@example.com,password3\n" +
+                "\"Petrov, Galin\",petrov@example.com,password4\n";
+
+        // WHEN
+        BulkImportResultDTO result = bulkImportService.importUsers(stream(csv), BulkImportService.Format.CSV);
+
+        // THEN
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getFailed());
+        List<BulkImportResultDTO.RowError> errors = result.getErrors();
+        assertEquals(3, errors.get(0).getRow());
+        assertEquals("Invalid email", errors.get(0).getMessage());
+        assertEquals(4, errors.get(1).getRow());
+        assertEquals(5, errors.get(2).getRow());
+        assertEquals("galin@example.com", errors.get(2).getEmail());
+        assertNotNull(storedPassword("petrov@example.com"));
+        assertEquals(1, countUsers("galin@example.com"));
+    }
+
+    @Test
+    public void testImportUsersShouldReportMalformedJsonAndContinue() throws Exception {
+        // GIVEN
+        String ndjson = "{\"name\":\"Galin\",\"email\":\n" +
+                "{\"name\":\"Mima\",\"email\":\"mima@example.com\",\"password\":\"password2\"}\n";
+
+        // WHEN
+        BulkImportResultDTO result = bulkImportService.importUsers(stream(ndjson), BulkImportService.Format.NDJSON);
+
+        // THEN
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(1, result.getErrors().get(0).getRow());
+    }
+
+    @Test
+    public void testFailedBatchShouldStopTheImportAndKeepTheResultOfTheBatchesBefore() throws Exception {
+        // GIVEN a store that loses the database on the second batch
+        UserStore failingStore = mock(UserStore.class);
+        when(failingStore.saveUsersToDatabase(anyList(), anyList()))
+                .thenReturn(Arrays.asList(null, null))
+                .thenThrow(new SQLException("Connection lost"));
+        BulkImportService importService = new BulkImportService(UserService.getInstance(), failingStore, 2, 2);
+        String csv = "Galin,galin@example.com,password1\n" +
+                "Mima,mima@example.com,password2\n" +
+                "Ivan,ivan@example.com,password3\n" +
+                "Petrov,petrov@example.com,password4\n";
+
+        // WHEN
+        BulkImportFailedException failure = assertThrows(BulkImportFailedException.class,
+                () -> importService.importUsers(stream(csv), BulkImportService.Format.CSV));
+
+        // THEN
+        BulkImportResultDTO result = failure.getPartialResult();
+        assertEquals(2, result.getImported());
+        assertEquals(3L, result.getFailedBatchFromRow());
+        assertEquals(4L, result.getFailedBatchToRow());
+        assertEquals("Connection lost", result.getFailedBatchError());
+        verify(emailOutbox, times(2)).enqueue(anyString(), anyString());
+    }
+
+    @Test
+    public void testFormatShouldIgnoreTheCaseOfTheContentType() {
+        // WHEN, THEN
+        assertEquals(BulkImportService.Format.CSV, BulkImportService.Format.fromContentType("Text/CSV"));
+        assertEquals(BulkImportService.Format.NDJSON, BulkImportService.Format.fromContentType(null));
+    }
+
+    @Test
+    public void testSplitCsvLineShouldHandleQuotes() {
+        // WHEN
+        List<String> fields = BulkImportService.splitCsvLine("\"Petrov, \"\"Gal\"\"\", a@b.com ,pass");
+
+        // THEN
+        assertEquals(List.of("Petrov, \"Gal\"", "a@b.com", "pass"), fields);
+    }
+
+    private InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String storedPassword(String email) throws SQLException {
+        return queryString("SELECT password FROM users WHERE email = ?", email);
+    }
+
+    private String storedVerificationCode(String email) throws SQLException {
+        return queryString("SELECT verification_code FROM users WHERE email = ?", email);
+    }
+
+    private int countUsers(String email) throws SQLException {
+        return Integer.parseInt(queryString("SELECT COUNT(*) FROM users WHERE email = ?", email));
+    }
+
+    private String queryString(String sql, String email) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, email);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+}
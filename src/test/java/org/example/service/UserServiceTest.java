@@ -4,6 +4,7 @@ import org.example.exception.InvalidLoginException;
 import org.example.exception.InvalidUserInputData;
 import org.example.model.SessionToken;
 import org.example.model.User;
+import org.example.repository.CredentialCache;
 import org.example.repository.UserRepository;
 import org.example.utils.DatabaseConnection;
 import org.example.utils.SessionManager;
@@ -15,12 +16,18 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mindrot.jbcrypt.BCrypt.checkpw;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class UserServiceTest {
@@ -153,12 +160,15 @@ class UserServiceTest {
         User validUser = new User("Galin Petrov", "test@example.com", "password123");
 
         // Act
-        userService.registerUser(validUser);
+        String verificationCode = userService.registerUser(validUser);
+
+        // Assert
+        assertNotNull(verificationCode);
 
         // Verify
        verify(userRepository, times(1))
-               .saveUserToDatabase(anyString(),
-                       anyString(), anyString());
+               .saveUserToDatabase(eq("Galin Petrov"),
+                       eq("test@example.com"), anyString(), eq(verificationCode));
     }
 
     @Test
@@ -275,4 +285,118 @@ class UserServiceTest {
         // Verify
         verify(userRepository, times(1)).storeVerificationCodeInDatabase(verificationCode, email);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLoginUserShouldLookUpNormalizedEmail() throws SQLException {
+        // Arrange
+        when(userRepository.login("example@gmail.com", "password123")).thenReturn("token123");
+
+        // Act
+        String token = userService.loginUser(" Example@Gmail.COM", "password123");
+
+        // Assert
+        assertEquals("token123", token);
+    }
+
+    @Test
+    public void testRegisterUserAsyncShouldSaveHashedPassword() throws Exception {
+        // GIVEN
+        User user = new User("Galin", "Galin@Example.com", "Password123!");
+        when(userRepository.getHashedPasswordForUser("galin@example.com")).thenReturn(null);
+
+        // WHEN
+        String verificationCode = userService.registerUserAsync(user).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertNotNull(verificationCode);
+        verify(userRepository).saveUserToDatabase(eq("Galin"), eq("galin@example.com"),
+                argThat(hash -> checkpw("Password123!", hash)), eq(verificationCode));
+    }
+
+    @Test
+    public void testRegisterUserAsyncShouldFailForTakenEmail() throws SQLException {
+        // GIVEN
+        User user = new User("Galin", "galin@example.com", "Password123!");
+        when(userRepository.getHashedPasswordForUser("galin@example.com")).thenReturn("$2a$10$existing");
+
+        // WHEN
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> userService.registerUserAsync(user).toCompletableFuture().get(10, TimeUnit.SECONDS));
+
+        // THEN
+        assertInstanceOf(SQLIntegrityConstraintViolationException.class, exception.getCause());
+        verify(userRepository, never()).saveUserToDatabase(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testRegisterUserAsyncShouldFailFastForInvalidInput() {
+        // GIVEN
+        User user = new User("Galin", "galin@", "Password123!");
+
+        // WHEN
+        CompletableFuture<String> registration = userService.registerUserAsync(user).toCompletableFuture();
+
+        // THEN
+        assertTrue(registration.isCompletedExceptionally());
+        ExecutionException exception = assertThrows(ExecutionException.class, registration::get);
+        assertInstanceOf(InvalidUserInputData.class, exception.getCause());
+    }
+
+    @Test
+    public void testLoginUserAsyncShouldFailForInvalidCredentials() throws SQLException {
+        // GIVEN
+        when(userRepository.getCredentials("example@gmail.com"))
+                .thenReturn(new CredentialCache.Credentials(BCrypt.hashpw("password123", BCrypt.gensalt(4)), true));
+
+        // WHEN
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> userService.loginUserAsync("example@gmail.com", "wrongPassword")
+                        .toCompletableFuture().get(10, TimeUnit.SECONDS));
+
+        // THEN
+        assertInstanceOf(InvalidLoginException.class, exception.getCause());
+    }
+
+    @Test
+    public void testLoginUserAsyncShouldFailForUnverifiedAccount() throws SQLException {
+        // GIVEN
+        when(userRepository.getCredentials("example@gmail.com"))
+                .thenReturn(new CredentialCache.Credentials(BCrypt.hashpw("password123", BCrypt.gensalt(4)), false));
+
+        // WHEN
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> userService.loginUserAsync("example@gmail.com", "password123")
+                        .toCompletableFuture().get(10, TimeUnit.SECONDS));
+
+        // THEN
+        assertInstanceOf(InvalidLoginException.class, exception.getCause());
+    }
+
+    @Test
+    public void testLoginUserAsyncShouldStoreSessionForNormalizedEmail() throws Exception {
+        // GIVEN
+        when(userRepository.getCredentials("example@gmail.com"))
+                .thenReturn(new CredentialCache.Credentials(BCrypt.hashpw("password123", BCrypt.gensalt(4)), true));
+
+        // WHEN
+        String token = userService.loginUserAsync(" Example@Gmail.COM", "password123")
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertTrue(userService.isSessionValid("example@gmail.com", token));
+        verify(userRepository, never()).login(anyString(), anyString());
+    }
+
+    @Test
+    public void testVerifyUserEmailAsyncShouldVerifyNormalizedEmail() throws Exception {
+        // GIVEN
+        when(userRepository.verify("example@gmail.com", "code123")).thenReturn(true);
+
+        // WHEN
+        boolean verified = userService.verifyUserEmailAsync("Example@Gmail.com", "code123")
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertTrue(verified);
+    }
+}
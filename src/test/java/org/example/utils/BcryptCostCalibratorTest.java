@@ -0,0 +1,70 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BcryptCostCalibratorTest {
+
+    private static long millisAtCost10(long millis, int cost) {
+        return TimeUnit.MILLISECONDS.toNanos(millis) << (cost - 10);
+    }
+
+    @Test
+    public void testShouldPickHighestCostWithinBudget() {
+        // GIVEN a machine hashing at cost 10 in 20 ms, so cost 13 takes 160 ms and cost 14 takes 320 ms
+        BcryptCostCalibrator calibrator = new BcryptCostCalibrator(0, 10, 16, 250,
+                cost -> millisAtCost10(20, cost));
+
+        // WHEN, THEN
+        assertEquals(13, calibrator.getCost());
+        assertEquals(160.0, calibrator.stats().get("predictedMillis"));
+    }
+
+    @Test
+    public void testSlowMachineShouldStayAtMinimumCost() {
+        // GIVEN
+        BcryptCostCalibrator calibrator = new BcryptCostCalibrator(0, 10, 16, 250,
+                cost -> millisAtCost10(400, cost));
+
+        // WHEN, THEN
+        assertEquals(10, calibrator.getCost());
+    }
+
+    @Test
+    public void testFastMachineShouldStopAtMaximumCost() {
+        // GIVEN
+        BcryptCostCalibrator calibrator = new BcryptCostCalibrator(0, 10, 12, 250,
+                cost -> millisAtCost10(1, cost));
+
+        // WHEN, THEN
+        assertEquals(12, calibrator.getCost());
+    }
+
+    @Test
+    public void testFixedCostShouldSkipMeasurement() {
+        // GIVEN
+        BcryptCostCalibrator calibrator = new BcryptCostCalibrator(11, 10, 16, 250, cost -> {
+            throw new AssertionError("Measured although the cost is fixed");
+        });
+
+        // WHEN, THEN
+        assertEquals(11, calibrator.getCost());
+    }
+
+    @Test
+    public void testNeedsRehashShouldOnlyUpgradeBcryptHashes() {
+        // GIVEN
+        BcryptCostCalibrator calibrator = new BcryptCostCalibrator(12, 10, 16, 250, cost -> 0);
+
+        // WHEN, THEN
+        assertTrue(calibrator.needsRehash("$2a$10$abcdefghijklmnopqrstuu"));
+        assertFalse(calibrator.needsRehash("$2a$12$abcdefghijklmnopqrstuu"));
+        assertFalse(calibrator.needsRehash("$2b$14$abcdefghijklmnopqrstuu"), "Stronger hashes are kept");
+        assertFalse(calibrator.needsRehash("hash"));
+        assertFalse(calibrator.needsRehash(null));
+        assertEquals(10, BcryptCostCalibrator.costOf("$2a$10$abcdefghijklmnopqrstuu"));
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    public void testMightContainShouldNeverMissAddedValues() {
+        // GIVEN
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        // WHEN
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        // THEN
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateShouldStayNearConfiguredRate() {
+        // GIVEN
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        // WHEN
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("stranger" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+
+        // THEN
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+        assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    public void testFilterShouldBeSizedFromFalsePositiveRate() {
+        // GIVEN, WHEN
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // THEN about 9.6 bits and 7 hash functions per value
+        assertEquals(7, filter.getHashFunctions());
+        assertTrue(filter.getBitSize() >= 9_585_059);
+        assertEquals(filter.getBitSize() / 8, filter.getMemoryBytes());
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.5));
+    }
+}
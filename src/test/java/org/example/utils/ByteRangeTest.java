@@ -0,0 +1,59 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    @Test
+    public void testParseShouldReadClosedRange() {
+        // WHEN
+        ByteRange range = ByteRange.parse("bytes=0-499", 1000);
+
+        // THEN
+        assertEquals(0, range.getStart());
+        assertEquals(499, range.getEnd());
+        assertEquals(500, range.getLength());
+        assertEquals("bytes 0-499/1000", range.toContentRange(1000));
+    }
+
+    @Test
+    public void testParseShouldReadOpenAndSuffixRanges() {
+        // WHEN
+        ByteRange open = ByteRange.parse("bytes=900-", 1000);
+        ByteRange suffix = ByteRange.parse("bytes=-100", 1000);
+
+        // THEN
+        assertEquals(900, open.getStart());
+        assertEquals(999, open.getEnd());
+        assertEquals(900, suffix.getStart());
+        assertEquals(100, suffix.getLength());
+    }
+
+    @Test
+    public void testParseShouldClampEndToTheFileSize() {
+        // WHEN
+        ByteRange range = ByteRange.parse("bytes=500-5000", 1000);
+
+        // THEN
+        assertEquals(999, range.getEnd());
+    }
+
+    @Test
+    public void testParseShouldReportRangeOutsideOfTheFile() {
+        // WHEN, THEN
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", 1000));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+    }
+
+    @Test
+    public void testParseShouldIgnoreMalformedOrMultipleRanges() {
+        // WHEN, THEN
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-1", 1000));
+        assertNull(ByteRange.parse("bytes=abc-", 1000));
+        assertNull(ByteRange.parse("bytes=500-100", 1000));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+    }
+}
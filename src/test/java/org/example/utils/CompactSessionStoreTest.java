@@ -0,0 +1,99 @@
+package org.example.utils;
+
+import org.example.model.SessionToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactSessionStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+    private final CompactSessionStore store = new CompactSessionStore(10_000, clock::get);
+
+    @Test
+    public void testStoredSessionShouldBeValid() {
+        // GIVEN
+        String token = UUID.randomUUID().toString();
+
+        // WHEN
+        store.put("mima@example.com", token);
+
+        // THEN
+        assertTrue(store.isValid("mima@example.com", token));
+        assertFalse(store.isValid("mima@example.com", UUID.randomUUID().toString()));
+        assertFalse(store.isValid("galin@example.com", token));
+        assertFalse(store.isValid("mima@example.com", "not-a-token"));
+        SessionToken session = store.get("mima@example.com");
+        assertEquals(token, session.getToken());
+        assertFalse(session.isExpired());
+    }
+
+    @Test
+    public void testNonUuidTokensShouldBeRejected() {
+        // WHEN, THEN
+        assertThrows(IllegalArgumentException.class, () -> store.put("mima@example.com", "token123"));
+        assertFalse(CompactSessionStore.isCanonicalUuid("0123456789abcdef0123456789abcdef0123"));
+        assertTrue(CompactSessionStore.isCanonicalUuid("01234567-89ab-CDEF-0123-456789abcdef"));
+    }
+
+    @Test
+    public void testNewLoginShouldReplaceSession() {
+        // GIVEN
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        store.put("mima@example.com", first);
+
+        // WHEN
+        store.put("mima@example.com", second);
+
+        // THEN
+        assertFalse(store.isValid("mima@example.com", first));
+        assertTrue(store.isValid("mima@example.com", second));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testExpiredSessionsShouldBeInvalidAndSweptAway() {
+        // GIVEN
+        String token = UUID.randomUUID().toString();
+        store.put("mima@example.com", token);
+
+        // WHEN
+        clock.addAndGet(10_000);
+
+        // THEN
+        assertFalse(store.isValid("mima@example.com", token));
+        assertNull(store.get("mima@example.com"));
+        store.sweep();
+        assertEquals(0, store.size());
+        assertEquals(1L, store.stats().get("expired"));
+    }
+
+    @Test
+    public void testSweepShouldKeepLiveSessionsFindableWhileTablesGrow() {
+        // GIVEN 20000 sessions, every other one stored 5 seconds earlier
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            if (i == 10_000) {
+                clock.addAndGet(5_000);
+            }
+            tokens.add(UUID.randomUUID().toString());
+            store.put("user" + i + "@example.com", tokens.get(i));
+        }
+
+        // WHEN the first half expires
+        clock.addAndGet(5_000);
+        store.sweep();
+
+        // THEN
+        assertEquals(10_000, store.size());
+        for (int i = 0; i < 20_000; i++) {
+            assertEquals(i >= 10_000, store.isValid("user" + i + "@example.com", tokens.get(i)), "Session " + i);
+        }
+    }
+}
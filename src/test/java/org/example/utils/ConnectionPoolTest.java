@@ -0,0 +1,152 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    private ConnectionPool newPool(int minSize, int maxSize, long validateAfterIdleMillis, long maxLifetimeMillis,
+                                   long leakThresholdMillis) {
+        // Housekeeping is run by hand in the tests
+        return new ConnectionPool(() -> {
+            opened.incrementAndGet();
+            return DriverManager.getConnection(URL, "sa", "");
+        }, minSize, maxSize, 100, validateAfterIdleMillis, 60_000, maxLifetimeMillis, leakThresholdMillis,
+                3_600_000);
+    }
+
+    @Test
+    public void testClosedConnectionShouldBeReused() throws SQLException {
+        // GIVEN
+        pool = newPool(0, 2, 60_000, 60_000, 0);
+
+        // WHEN
+        for (int i = 0; i < 5; i++) {
+            try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+        }
+
+        // THEN
+        assertEquals(1, opened.get());
+        assertEquals(1, pool.getIdleConnections());
+        assertEquals(5L, pool.stats().get("borrowed"));
+    }
+
+    @Test
+    public void testGetConnectionShouldTimeOutWhenPoolIsExhausted() throws SQLException {
+        // GIVEN
+        pool = newPool(0, 1, 60_000, 60_000, 0);
+        Connection first = pool.getConnection();
+
+        // WHEN, THEN
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(1L, pool.stats().get("borrowTimeouts"));
+        first.close();
+        pool.getConnection().close();
+    }
+
+    @Test
+    public void testClosedProxyShouldRejectFurtherUse() throws SQLException {
+        // GIVEN
+        pool = newPool(0, 1, 60_000, 60_000, 0);
+        Connection connection = pool.getConnection();
+
+        // WHEN
+        connection.close();
+        connection.close();
+
+        // THEN
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, connection::createStatement);
+        assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    public void testUncommittedWorkShouldBeRolledBackOnReturn() throws SQLException {
+        // GIVEN
+        pool = newPool(0, 1, 60_000, 60_000, 0);
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS pool_rollback (id INT)");
+            statement.execute("DELETE FROM pool_rollback");
+        }
+
+        // WHEN
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute("INSERT INTO pool_rollback VALUES (1)");
+        }
+
+        // THEN
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            assertTrue(connection.getAutoCommit());
+            var resultSet = statement.executeQuery("SELECT COUNT(*) FROM pool_rollback");
+            resultSet.next();
+            assertEquals(0, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    public void testBrokenIdleConnectionShouldBeReplacedOnBorrow() throws SQLException {
+        // GIVEN a connection that is validated on every borrow and was closed behind the pool's back
+        pool = newPool(0, 1, 0, 60_000, 0);
+        Connection connection = pool.getConnection();
+        connection.unwrap(Connection.class).close();
+        connection.close();
+
+        // WHEN
+        try (Connection replacement = pool.getConnection()) {
+            // THEN
+            assertFalse(replacement.isClosed());
+        }
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    public void testConnectionShouldBeRetiredAfterMaxLifetime() throws Exception {
+        // GIVEN
+        pool = newPool(0, 1, 60_000, 1, 0);
+        pool.getConnection().close();
+        Thread.sleep(5);
+
+        // WHEN
+        pool.getConnection().close();
+
+        // THEN
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    public void testHousekeepingShouldFillMinimumAndReportLeaks() throws Exception {
+        // GIVEN
+        pool = newPool(2, 3, 60_000, 60_000, 1);
+        Connection leaked = pool.getConnection();
+        Thread.sleep(5);
+
+        // WHEN
+        pool.runHousekeeping();
+
+        // THEN
+        assertEquals(1L, pool.stats().get("leaksDetected"));
+        assertTrue(pool.getTotalConnections() >= 2);
+        leaked.close();
+    }
+}
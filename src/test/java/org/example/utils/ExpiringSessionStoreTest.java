@@ -0,0 +1,130 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringSessionStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @Test
+    public void testSessionShouldBeReadableUntilItExpires() {
+        // GIVEN
+        ExpiringSessionStore store = new ExpiringSessionStore(10_000, 0, 1_000, 8, clock::get);
+        store.put("mima@example.com", "token1");
+
+        // WHEN
+        clock.addAndGet(9_999);
+
+        // THEN
+        assertEquals("token1", store.get("mima@example.com").getToken());
+        clock.addAndGet(1);
+        assertNull(store.get("mima@example.com"));
+        assertEquals(0, store.size());
+        assertEquals(1L, store.stats().get("expired"));
+    }
+
+    @Test
+    public void testWheelShouldRemoveExpiredSessionsWithoutReads() {
+        // GIVEN a TTL longer than one turn of the wheel, so the session goes round twice
+        ExpiringSessionStore store = new ExpiringSessionStore(20_000, 0, 1_000, 8, clock::get);
+        store.put("mima@example.com", "token1");
+        store.put("galin@example.com", "token2");
+
+        // WHEN
+        for (int second = 0; second < 19; second++) {
+            clock.addAndGet(1_000);
+            store.tick();
+        }
+
+        // THEN
+        assertEquals(2, store.size(), "Not expired yet");
+        clock.addAndGet(1_000);
+        store.tick();
+        assertEquals(0, store.size());
+        assertEquals(2L, store.stats().get("expired"));
+        assertEquals(0L, store.stats().get("scheduled"));
+    }
+
+    @Test
+    public void testNewLoginShouldReplaceSessionAndItsExpiry() {
+        // GIVEN
+        ExpiringSessionStore store = new ExpiringSessionStore(10_000, 0, 1_000, 8, clock::get);
+        store.put("mima@example.com", "token1");
+        clock.addAndGet(5_000);
+        store.put("mima@example.com", "token2");
+
+        // WHEN the first session would have expired
+        clock.addAndGet(5_000);
+        store.tick();
+
+        // THEN
+        assertEquals("token2", store.get("mima@example.com").getToken());
+        assertEquals(0L, store.stats().get("expired"));
+    }
+
+    @Test
+    public void testReplacedSessionsShouldBePurgedFromTheWheel() {
+        // GIVEN one user logging in over and over, every login leaving its predecessor in the wheel
+        ExpiringSessionStore store = new ExpiringSessionStore(3_600_000, 0, 1_000, 8, clock::get);
+        for (int i = 0; i < 2_000; i++) {
+            store.put("mima@example.com", "token" + i);
+        }
+        assertEquals(1999L, store.stats().get("dead"));
+
+        // WHEN
+        clock.addAndGet(1_000);
+        store.tick();
+
+        // THEN only the live session is left scheduled
+        assertEquals(1L, store.stats().get("scheduled"));
+        assertEquals(0L, store.stats().get("dead"));
+        assertEquals("token1999", store.get("mima@example.com").getToken());
+    }
+
+    @Test
+    public void testCapShouldEvictLeastRecentlyUsed() {
+        // GIVEN
+        ExpiringSessionStore store = new ExpiringSessionStore(60_000, 2, 1_000, 8, clock::get);
+        store.put("a@example.com", "a");
+        clock.addAndGet(1);
+        store.put("b@example.com", "b");
+        clock.addAndGet(1);
+        store.get("a@example.com");
+        clock.addAndGet(1);
+
+        // WHEN
+        store.put("c@example.com", "c");
+
+        // THEN
+        assertEquals(2, store.size());
+        assertNull(store.get("b@example.com"));
+        assertNotNull(store.get("a@example.com"));
+        assertNotNull(store.get("c@example.com"));
+        assertEquals(1L, store.stats().get("evicted"));
+    }
+
+    @Test
+    public void testMemoryShouldStayFlatUnderSteadyLogins() {
+        // GIVEN 100 logins a second with a 30 second TTL, over ten simulated minutes
+        ExpiringSessionStore store = new ExpiringSessionStore(30_000, 0, 1_000, 16, clock::get);
+
+        // WHEN
+        int login = 0;
+        for (int second = 0; second < 600; second++) {
+            for (int i = 0; i < 100; i++) {
+                store.put("user" + (login++) + "@example.com", "token");
+            }
+            clock.addAndGet(1_000);
+            store.tick();
+        }
+
+        // THEN only the last 30 seconds of sessions are left
+        assertTrue(store.size() <= 3_000, "Live sessions: " + store.size());
+        assertTrue((long) store.stats().get("scheduled") <= 3_000);
+        assertEquals(60_000L - store.size(), store.stats().get("expired"));
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingTest {
+
+    @Test
+    public void testHash64ShouldBeStableAcrossCharSequences() {
+        // GIVEN
+        String email = "user@example.com";
+
+        // WHEN
+        long fromString = Hashing.hash64(email);
+        long fromBuilder = Hashing.hash64(new StringBuilder(email));
+
+        // THEN
+        assertEquals(fromString, fromBuilder);
+        assertNotEquals(fromString, Hashing.hash64("User@example.com"));
+    }
+
+    @Test
+    public void testHash64ShouldSpreadSimilarKeysOverTheHighBits() {
+        // GIVEN
+        Set<Long> buckets = new HashSet<>();
+
+        // WHEN
+        for (int i = 0; i < 10_000; i++) {
+            buckets.add(Hashing.hash64("user" + i + "@example.com") >>> 58);
+        }
+
+        // THEN
+        assertEquals(64, buckets.size());
+    }
+
+    @Test
+    public void testMix64ShouldKeepDistinctValuesDistinct() {
+        // GIVEN
+        Set<Long> mixed = new HashSet<>();
+
+        // WHEN
+        for (long i = 0; i < 10_000; i++) {
+            mixed.add(Hashing.mix64(i));
+        }
+
+        // THEN
+        assertEquals(10_000, mixed.size());
+        assertEquals(0, Hashing.mix64(0));
+    }
+}
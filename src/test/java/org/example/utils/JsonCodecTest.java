@@ -0,0 +1,81 @@
+package org.example.utils;
+
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.model.User;
+import org.example.model.dto.LoginResponseDTO;
+import org.example.model.dto.UserForVerificationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JsonCodecTest {
+
+    @Test
+    public void testReadShouldBindUserFromStream() {
+        // GIVEN
+        String json = "{\"name\":\"Galin Petrov\",\"email\":\"petrov@example.com\",\"password\":\"12345678\"}";
+
+        // WHEN
+        User user = JsonCodec.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), User.class);
+
+        // THEN
+        assertEquals("Galin Petrov", user.getName());
+        assertEquals("petrov@example.com", user.getEmail());
+        assertEquals("12345678", user.getPassword());
+    }
+
+    @Test
+    public void testReadShouldBindVerificationDTOWithUnicode() {
+        // GIVEN
+        String json = "{\"email\":\"гален@example.com\",\"verificationCode\":\"code\"}";
+
+        // WHEN
+        UserForVerificationDTO dto = JsonCodec.read(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), UserForVerificationDTO.class);
+
+        // THEN
+        assertEquals("гален@example.com", dto.getEmail());
+        assertEquals("code", dto.getVerificationCode());
+    }
+
+    @Test
+    public void testReadShouldReturnNullForEmptyBody() {
+        // WHEN, THEN
+        assertNull(JsonCodec.read(new ByteArrayInputStream(new byte[0]), User.class));
+    }
+
+    @Test
+    public void testReadShouldThrowForMalformedJson() {
+        // WHEN, THEN
+        assertThrows(JsonParseException.class, () ->
+                JsonCodec.read(new ByteArrayInputStream("{\"email\":".getBytes(StandardCharsets.UTF_8)), User.class));
+        assertThrows(JsonParseException.class, () ->
+                JsonCodec.read(new ByteArrayInputStream("[1,2]".getBytes(StandardCharsets.UTF_8)), User.class));
+    }
+
+    @Test
+    public void testWriteShouldSerializeToResponseBody() throws Exception {
+        // GIVEN
+        HttpExchange exchange = mock(HttpExchange.class);
+        Headers headers = new Headers();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(exchange.getResponseHeaders()).thenReturn(headers);
+        when(exchange.getResponseBody()).thenReturn(body);
+
+        // WHEN
+        JsonCodec.write(exchange, 200, new LoginResponseDTO("Login successful", "petrov@example.com"));
+
+        // THEN
+        verify(exchange).sendResponseHeaders(200, 0);
+        assertEquals("application/json; charset=utf-8", headers.getFirst("Content-Type"));
+        assertEquals("{\"message\":\"Login successful\",\"userEmail\":\"petrov@example.com\"}",
+                body.toString(StandardCharsets.UTF_8));
+    }
+}
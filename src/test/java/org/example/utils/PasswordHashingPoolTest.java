@@ -0,0 +1,127 @@
+package org.example.utils;
+
+import org.example.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingPoolTest {
+
+    private PasswordHashingPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new PasswordHashingPool(1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testHashAndCheckShouldMatchPassword() {
+        // GIVEN
+        String hashed = pool.hash("password123");
+
+        // WHEN, THEN
+        assertNotEquals("password123", hashed);
+        assertTrue(pool.check("password123", hashed));
+        assertFalse(pool.check("wrongPassword", hashed));
+        assertEquals(0, pool.getRejectedCount());
+    }
+
+    @Test
+    public void testRunShouldRejectWhenQueueIsFull() throws InterruptedException {
+        // GIVEN
+        CountDownLatch workerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = new Thread(() -> pool.run(() -> {
+            workerBusy.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        Thread queued = new Thread(() -> pool.run(() -> true));
+        busy.start();
+        assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+        queued.start();
+        while (pool.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+
+        // WHEN
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> pool.check("password123", "$2a$10$invalid"));
+
+        // THEN
+        assertTrue(exception.getRetryAfterSeconds() >= 1);
+        assertEquals(1, pool.getRejectedCount());
+        assertEquals(1, pool.getQueueDepth());
+        release.countDown();
+        busy.join();
+        queued.join();
+        assertTrue(pool.getAverageWaitMillis() >= 0);
+    }
+
+    @Test
+    public void testHashAsyncShouldCompleteWithCheckableHash() throws Exception {
+        // WHEN
+        String hashed = pool.hashAsync("password123").get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertTrue(pool.checkAsync("password123", hashed).get(10, TimeUnit.SECONDS));
+        assertFalse(pool.checkAsync("wrongPassword", hashed).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancelledTaskShouldNotRun() throws Exception {
+        // GIVEN
+        CountDownLatch workerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> busy = pool.submit(() -> {
+            workerBusy.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Boolean> queued = pool.submit(() -> ran.getAndSet(true));
+
+        // WHEN
+        queued.cancel(true);
+        release.countDown();
+
+        // THEN
+        assertTrue(busy.get(5, TimeUnit.SECONDS));
+        while (pool.getQueueDepth() > 0) {
+            Thread.sleep(1);
+        }
+        // The single worker takes the tasks in order, so the cancelled one was skipped before this hash
+        assertTrue(pool.hashAsync("password123").get(10, TimeUnit.SECONDS).startsWith("$2a$"));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void testSubmitShouldFailWhenQueueIsFull() throws Exception {
+        // GIVEN
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> busy = pool.submit(() -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = pool.submit(() -> true);
+
+        // WHEN
+        CompletableFuture<String> rejected = pool.hashAsync("password123");
+
+        // THEN
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(TooManyRequestsException.class, exception.getCause());
+        release.countDown();
+        assertTrue(busy.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private void advanceSeconds(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void testShouldAllowBurstThenReject() {
+        // GIVEN 3 attempts at once, then one every 10 seconds
+        RateLimiter limiter = new RateLimiter(3, 6, 100, clock::get);
+
+        // WHEN, THEN
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        }
+        assertEquals(10_000, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.2"), "Other keys have their own bucket");
+        assertEquals(1L, limiter.stats().get("rejected"));
+    }
+
+    @Test
+    public void testShouldRefillOverTime() {
+        // GIVEN
+        RateLimiter limiter = new RateLimiter(2, 6, 100, clock::get);
+        limiter.tryAcquire("mima@example.com");
+        limiter.tryAcquire("mima@example.com");
+        assertTrue(limiter.tryAcquire("mima@example.com") > 0);
+
+        // WHEN
+        advanceSeconds(10);
+
+        // THEN one token came back, not more
+        assertEquals(0, limiter.tryAcquire("mima@example.com"));
+        assertTrue(limiter.tryAcquire("mima@example.com") > 0);
+    }
+
+    @Test
+    public void testIdleKeysShouldBeEvictedWhenFull() {
+        // GIVEN a table for two keys
+        RateLimiter limiter = new RateLimiter(1, 60, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        // WHEN a third key arrives while the others are still refilling
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertTrue(limiter.tryAcquire("c") > 0, "The overflow bucket of a key is still limited");
+
+        // THEN once the buckets are full again they are evicted and new keys get their own
+        advanceSeconds(1);
+        assertEquals(0, limiter.tryAcquire("d"));
+        assertEquals(1, limiter.stats().get("keys"));
+        assertEquals(2L, limiter.stats().get("evicted"));
+        assertEquals(2L, limiter.stats().get("overflowed"));
+    }
+
+    @Test
+    public void testFloodingKeyShouldNotLockOutOtherOverflowKeys() {
+        // GIVEN a full table and a key that used up its overflow bucket
+        RateLimiter limiter = new RateLimiter(1, 60, 1, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("flood");
+        assertTrue(limiter.tryAcquire("flood") > 0);
+        String sibling = keyWithOverflowIndex(RateLimiter.overflowIndex("flood"), true);
+        String stranger = keyWithOverflowIndex(RateLimiter.overflowIndex("flood"), false);
+
+        // WHEN
+        long strangerWait = limiter.tryAcquire(stranger);
+        long siblingWait = limiter.tryAcquire(sibling);
+
+        // THEN only the keys hashed to the same overflow bucket are limited together
+        assertEquals(0, strangerWait);
+        assertTrue(siblingWait > 0);
+        assertEquals(4L, limiter.stats().get("overflowed"));
+    }
+
+    private static String keyWithOverflowIndex(int index, boolean same) {
+        for (int i = 0; ; i++) {
+            String key = "10.0.1." + i;
+            if ((RateLimiter.overflowIndex(key) == index) == same) {
+                return key;
+            }
+        }
+    }
+
+    @Test
+    public void testFullTableShouldBeSweptAtMostOncePerSecond() {
+        // GIVEN a table for two keys, swept just now to make room for "c"
+        RateLimiter limiter = new RateLimiter(1, 600, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_500));
+        limiter.tryAcquire("c");
+        limiter.tryAcquire("d");
+        assertEquals(2L, limiter.stats().get("evicted"));
+
+        // WHEN "c" and "d" are full again 200 ms later
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        limiter.tryAcquire("e");
+
+        // THEN the new key goes to the overflow without another scan, until a second has passed
+        assertEquals(2L, limiter.stats().get("evicted"));
+        assertEquals(1L, limiter.stats().get("overflowed"));
+        advanceSeconds(1);
+        limiter.tryAcquire("f");
+        assertEquals(4L, limiter.stats().get("evicted"));
+        assertEquals(1L, limiter.stats().get("overflowed"));
+    }
+
+    @Test
+    public void testConcurrentAttemptsShouldNeverExceedBurst() throws InterruptedException {
+        // GIVEN a frozen clock, so no token comes back during the test
+        RateLimiter limiter = new RateLimiter(50, 1, 100, clock::get);
+        AtomicInteger allowed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        // WHEN
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (limiter.tryAcquire("10.0.0.1") == 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // THEN
+        assertEquals(50, allowed.get());
+    }
+}
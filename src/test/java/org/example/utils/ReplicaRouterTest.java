@@ -0,0 +1,196 @@
+package org.example.utils;
+
+import org.example.repository.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routes reads between two in-memory H2 databases, one playing the primary and one the replica.
+ * Replication is simulated by copying the heartbeat from the primary to the replica, which like an
+ * asynchronous replica trails the primary by one beat: it gets a beat only after the check that wrote it.
+ */
+class ReplicaRouterTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+    private static final long MAX_LAG_MILLIS = 800;
+    private static final long CHECK_MILLIS = 500;
+
+    private final AtomicLong clock = new AtomicLong(10_000);
+    private ConnectionPool primary;
+    private ConnectionPool replica;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = pool(PRIMARY_URL);
+        replica = pool(REPLICA_URL);
+        for (ConnectionPool pool : new ConnectionPool[]{primary, replica}) {
+            try (Connection connection = pool.getConnection()) {
+                SchemaMigrator.getInstance().migrate(connection);
+            }
+        }
+        router = new ReplicaRouter(primary, replicas(), MAX_LAG_MILLIS, CHECK_MILLIS, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        router.close();
+        for (String url : new String[]{PRIMARY_URL, REPLICA_URL}) {
+            try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                 Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+        }
+        primary.close();
+    }
+
+    private static ConnectionPool pool(String url) {
+        return new ConnectionPool(() -> DriverManager.getConnection(url, "sa", ""),
+                1, 4, 1_000, 500, 60_000, 60_000, 0, 60_000);
+    }
+
+    private Map<String, ConnectionPool> replicas() {
+        Map<String, ConnectionPool> replicas = new LinkedHashMap<>();
+        replicas.put(REPLICA_URL, replica);
+        return replicas;
+    }
+
+    /**
+     * Applies the beat currently on the primary to the replica.
+     */
+    private void replicate() throws SQLException {
+        long beat;
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT beat_millis FROM replication_heartbeat WHERE id = 1")) {
+            resultSet.next();
+            beat = resultSet.getLong(1);
+        }
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE replication_heartbeat SET beat_millis = " + beat + " WHERE id = 1");
+        }
+    }
+
+    /**
+     * One check interval later, with the replica having applied the previous beat or not.
+     */
+    private void nextCheck(boolean replicating) throws SQLException {
+        if (replicating) {
+            replicate();
+        }
+        clock.addAndGet(CHECK_MILLIS);
+        router.checkReplicas();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> replicaStats() {
+        return ((List<Map<String, Object>>) router.stats().get("replicas")).get(0);
+    }
+
+    private static String urlOf(Connection connection) throws SQLException {
+        try (connection) {
+            return connection.getMetaData().getURL();
+        }
+    }
+
+    @Test
+    public void testReadsShouldGoToPrimaryUntilReplicaIsChecked() throws SQLException {
+        // WHEN / THEN
+        assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("primary"));
+    }
+
+    @Test
+    public void testReplicaTrailingByOneBeatShouldStayInRotation() throws SQLException {
+        // GIVEN
+        router.checkReplicas();
+
+        // WHEN the replica applies every beat one check after it was written
+        for (int i = 0; i < 5; i++) {
+            nextCheck(true);
+
+            // THEN
+            assertEquals(0L, replicaStats().get("lagMillis"));
+            assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("replica"));
+        }
+    }
+
+    @Test
+    public void testLaggingReplicaShouldLeaveRotation() throws SQLException {
+        // GIVEN
+        router.checkReplicas();
+        nextCheck(true);
+
+        // WHEN the replica stops applying beats
+        nextCheck(false);
+        assertEquals(true, replicaStats().get("healthy"), "Missing one beat is within the maximum lag");
+        nextCheck(false);
+
+        // THEN it has been missing the beat written two checks ago
+        assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("primary"));
+        assertEquals(false, replicaStats().get("healthy"));
+        assertEquals(2 * CHECK_MILLIS, replicaStats().get("lagMillis"));
+
+        // Catching up brings it back
+        replicate();
+        router.checkReplicas();
+        assertEquals(true, replicaStats().get("healthy"));
+    }
+
+    @Test
+    public void testRecentlyWrittenUserShouldReadFromPrimary() throws SQLException {
+        // GIVEN
+        router.checkReplicas();
+        nextCheck(true);
+
+        // WHEN
+        router.recordWrite("mima@example.com");
+
+        // THEN
+        assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("primary"));
+        assertTrue(urlOf(router.getReadConnection("galin@example.com")).contains("replica"));
+
+        // The replicas are known to have the write after the maximum lag and one check interval
+        nextCheck(true);
+        nextCheck(true);
+        assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("primary"));
+        nextCheck(true);
+        assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("replica"));
+    }
+
+    @Test
+    public void testFailedReplicaShouldFallBackToPrimary() throws SQLException {
+        // GIVEN
+        router.checkReplicas();
+        nextCheck(true);
+
+        // WHEN
+        replica.close();
+
+        // THEN
+        assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("primary"));
+        router.checkReplicas();
+        assertTrue(urlOf(router.getReadConnection("mima@example.com")).contains("primary"));
+    }
+
+    @Test
+    public void testMaximumLagShouldBeAboveCheckInterval() {
+        // WHEN, THEN
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReplicaRouter(primary, replicas(), CHECK_MILLIS, CHECK_MILLIS, clock::get));
+    }
+}
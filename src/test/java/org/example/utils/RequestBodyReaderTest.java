@@ -0,0 +1,99 @@
+package org.example.utils;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.exception.PayloadTooLargeException;
+import org.example.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RequestBodyReaderTest {
+
+    private RequestBodyReader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = new RequestBodyReader(64, 2);
+    }
+
+    @Test
+    public void testReadJsonShouldBindBodyWithinLimit() throws IOException {
+        // GIVEN
+        HttpExchange exchange = exchangeWith("{\"email\":\"petrov@example.com\",\"password\":\"12345678\"}", null);
+
+        // WHEN
+        User user = reader.readJson(exchange, User.class);
+
+        // THEN
+        assertEquals("petrov@example.com", user.getEmail());
+        assertEquals("12345678", user.getPassword());
+        assertEquals(1, reader.stats().get("idleBuffers"));
+    }
+
+    @Test
+    public void testReadShouldRejectAnnouncedLengthWithoutReading() throws IOException {
+        // GIVEN
+        HttpExchange exchange = exchangeWith("{}", "1000000");
+
+        // WHEN, THEN
+        assertThrows(PayloadTooLargeException.class, () -> reader.read(exchange));
+        verify(exchange, never()).getRequestBody();
+        assertEquals(1L, reader.stats().get("bodiesRejected"));
+    }
+
+    @Test
+    public void testReadShouldRejectUnannouncedBodyOverLimit() {
+        // GIVEN a chunked body, without Content-Length, one byte over the limit
+        InputStream body = new ByteArrayInputStream(new byte[65]);
+
+        // WHEN, THEN
+        assertThrows(PayloadTooLargeException.class, () -> reader.read(body));
+        assertEquals(1, reader.stats().get("idleBuffers"));
+    }
+
+    @Test
+    public void testReadShouldAcceptBodyOfExactlyTheLimit() throws IOException {
+        // GIVEN
+        InputStream body = new ByteArrayInputStream(new byte[64]);
+
+        // WHEN
+        try (RequestBodyReader.Body read = reader.read(body)) {
+            // THEN
+            assertEquals(64, read.length());
+        }
+    }
+
+    @Test
+    public void testClosedBodiesShouldReuseBuffers() throws IOException {
+        // GIVEN
+        for (int i = 0; i < 10; i++) {
+            // WHEN
+            try (RequestBodyReader.Body read = reader.read(new ByteArrayInputStream(new byte[10]))) {
+                assertEquals(10, read.length());
+            }
+        }
+
+        // THEN
+        assertEquals(1L, reader.stats().get("allocatedBuffers"));
+        assertEquals(10L, reader.stats().get("bodiesRead"));
+    }
+
+    private HttpExchange exchangeWith(String body, String contentLength) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        Headers headers = new Headers();
+        if (contentLength != null) {
+            headers.set("Content-Length", contentLength);
+        }
+        when(exchange.getRequestHeaders()).thenReturn(headers);
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return exchange;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerExecutorsTest {
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("server.executor");
+    }
+
+    @Test
+    public void testConfiguredModeShouldDefaultToVirtual() {
+        // GIVEN --> no property set
+
+        // WHEN
+        ServerExecutors.Mode mode = ServerExecutors.configuredMode();
+
+        // THEN
+        assertEquals(ServerExecutors.Mode.VIRTUAL, mode);
+    }
+
+    @Test
+    public void testConfiguredModeShouldReadSystemProperty() {
+        // GIVEN
+        System.setProperty("server.executor", "Pool");
+
+        // WHEN
+        ServerExecutors.Mode mode = ServerExecutors.configuredMode();
+
+        // THEN
+        assertEquals(ServerExecutors.Mode.POOL, mode);
+    }
+
+    @Test
+    public void testCreateShouldReturnNullForInlineMode() {
+        // WHEN, THEN
+        assertNull(ServerExecutors.create(ServerExecutors.Mode.INLINE));
+    }
+
+    @Test
+    public void testBoundedPoolShouldRunTasksOnWorkerThreads() throws InterruptedException {
+        // GIVEN
+        ExecutorService pool = ServerExecutors.newBoundedPool(2, 4);
+        CountDownLatch latch = new CountDownLatch(2);
+        String[] threadNames = new String[2];
+
+        // WHEN
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            pool.execute(() -> {
+                threadNames[index] = Thread.currentThread().getName();
+                latch.countDown();
+            });
+        }
+
+        // THEN
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(threadNames[0].startsWith("http-worker-"));
+        assertEquals(2, ((ThreadPoolExecutor) pool).getMaximumPoolSize());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testVirtualModeShouldFallBackToBoundedPool() throws Exception {
+        // GIVEN
+        ServerExecutors.Mode mode = ServerExecutors.effectiveMode(ServerExecutors.Mode.VIRTUAL);
+
+        // WHEN
+        ExecutorService executor = ServerExecutors.newBlockingIoExecutor();
+
+        // THEN without virtual threads the executor must not grow without bound
+        if (mode == ServerExecutors.Mode.POOL) {
+            assertInstanceOf(ThreadPoolExecutor.class, executor);
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            assertEquals(pool.getCorePoolSize(), pool.getMaximumPoolSize());
+            assertTrue(pool.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS)
+                    .startsWith("blocking-io-"));
+        } else {
+            assertEquals(ServerExecutors.Mode.VIRTUAL, mode);
+        }
+        assertEquals(ServerExecutors.Mode.POOL, ServerExecutors.effectiveMode(ServerExecutors.Mode.POOL));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testVirtualThreadExecutorShouldRunTasks() throws Exception {
+        // GIVEN
+        ExecutorService executor = ServerExecutors.create(ServerExecutors.Mode.VIRTUAL);
+
+        // WHEN
+        String result = executor.submit(() -> "done").get(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals("done", result);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticAssetCacheTest {
+
+    @TempDir
+    Path root;
+
+    private StaticAssetCache cache;
+    private String page;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        page = "<html><body>" + "<p>Register</p>".repeat(100) + "</body></html>";
+        Files.writeString(root.resolve("register.html"), page);
+        Files.createDirectories(root.resolve("css"));
+        Files.writeString(root.resolve("css/style.css"), "body { color: black; }");
+        Files.write(root.resolve("logo.png"), new byte[]{1, 2, 3, 4});
+        cache = new StaticAssetCache(root);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        cache.close();
+    }
+
+    @Test
+    public void testGetShouldReturnCachedFilesWithValidators() {
+        // WHEN
+        StaticAssetCache.Asset asset = cache.get("/register.html");
+
+        // THEN
+        assertEquals(3, cache.size());
+        assertNotNull(asset);
+        assertEquals(page, new String(asset.getContent(), StandardCharsets.UTF_8));
+        assertEquals("text/html; charset=utf-8", asset.getContentType());
+        assertTrue(asset.getEtag().startsWith("\"") && asset.getEtag().endsWith("\""));
+        assertNotEquals(asset.getEtag(), asset.getGzipEtag());
+        assertNotNull(asset.getLastModifiedHttpDate());
+        assertNotNull(cache.get("/css/style.css"));
+        assertNull(cache.get("/missing.html"));
+    }
+
+    @Test
+    public void testGzipVariantShouldDecompressToTheOriginal() throws Exception {
+        // WHEN
+        StaticAssetCache.Asset asset = cache.get("/register.html");
+
+        // THEN
+        assertNotNull(asset.getGzipContent());
+        assertTrue(asset.getGzipContent().length < asset.getContent().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(asset.getGzipContent()))) {
+            assertEquals(page, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testBinaryFilesShouldNotHaveAGzipVariant() {
+        // WHEN
+        StaticAssetCache.Asset asset = cache.get("/logo.png");
+
+        // THEN
+        assertEquals("image/png", asset.getContentType());
+        assertNull(asset.getGzipContent());
+    }
+
+    @Test
+    public void testLargeFilesShouldOnlyHaveTheirMetadataCached() throws Exception {
+        // GIVEN
+        Files.write(root.resolve("bundle.js"), new byte[4096]);
+
+        // WHEN
+        StaticAssetCache smallLimitCache = new StaticAssetCache(root, 1024);
+
+        // THEN
+        assertNull(smallLimitCache.get("/bundle.js"));
+        StaticAssetCache.LargeFile largeFile = smallLimitCache.getLargeFile("/bundle.js");
+        assertNotNull(largeFile);
+        assertEquals(4096, largeFile.getSize());
+        assertEquals(root.resolve("bundle.js").toAbsolutePath().normalize(), largeFile.getPath());
+        assertNotNull(smallLimitCache.get("/css/style.css"));
+    }
+
+    @Test
+    public void testWatcherShouldReloadChangedAndDropDeletedFiles() throws Exception {
+        // GIVEN
+        cache.startWatching();
+        String oldEtag = cache.get("/css/style.css").getEtag();
+
+        // WHEN
+        Files.writeString(root.resolve("css/style.css"), "body { color: red; }");
+        Files.delete(root.resolve("logo.png"));
+
+        // THEN
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline
+                && (cache.get("/logo.png") != null || cache.get("/css/style.css").getEtag().equals(oldEtag))) {
+            Thread.sleep(20);
+        }
+        assertNull(cache.get("/logo.png"));
+        assertEquals("body { color: red; }",
+                new String(cache.get("/css/style.css").getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReloadAllShouldKeepServingAndDropOnlyDeletedFiles() throws Exception {
+        // GIVEN
+        StaticAssetCache.Asset unchanged = cache.get("/register.html");
+        Files.writeString(root.resolve("css/style.css"), "body { color: red; }");
+        Files.delete(root.resolve("logo.png"));
+
+        // WHEN
+        cache.reloadAll();
+
+        // THEN
+        assertEquals(2, cache.size());
+        assertNull(cache.get("/logo.png"));
+        assertEquals(unchanged.getEtag(), cache.get("/register.html").getEtag());
+        assertEquals("body { color: red; }",
+                new String(cache.get("/css/style.css").getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCloseShouldStopTheWatcherThread() throws Exception {
+        // GIVEN
+        Set<Thread> watchersBefore = watcherThreads();
+        cache.startWatching();
+        Set<Thread> watchers = watcherThreads();
+        watchers.removeAll(watchersBefore);
+        Thread watcher = watchers.iterator().next();
+
+        // WHEN
+        cache.close();
+
+        // THEN
+        watcher.join(10_000);
+        assertFalse(watcher.isAlive());
+    }
+
+    private static Set<Thread> watcherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("static-asset-watcher"))
+                .collect(Collectors.toSet());
+    }
+}